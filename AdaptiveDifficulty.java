@@ -0,0 +1,45 @@
+/**
+ * AdaptiveDifficulty picks each room's difficulty and countdown from the
+ * player's running stats. Both choices are a couple of multiplications and a
+ * table lookup, and math rooms get a pre-generated puzzle of the chosen tier
+ * from the pool, so entering a room costs next to nothing.
+ */
+public class AdaptiveDifficulty {
+    private static final Difficulty[] TIERS = Difficulty.values();
+    // Base countdown in seconds for each tier, indexed by ordinal
+    private static final int[] BASE_TIME_LIMITS = {45, 60, 90, 120};
+    private static final int MIN_TIME_LIMIT = 20;
+    private static final int MAX_TIME_LIMIT = 180;
+    
+    private final PuzzlePool pool;
+    
+    public AdaptiveDifficulty(PuzzlePool pool) {
+        this.pool = pool;
+    }
+    
+    public Difficulty chooseDifficulty(PlayerStats stats) {
+        int tier = (int) (stats.getSkill() * TIERS.length);
+        return TIERS[Math.max(0, Math.min(TIERS.length - 1, tier))];
+    }
+    
+    // Slow players get up to a quarter more time than the tier's base, fast ones up to a quarter less
+    public int chooseTimeLimit(PlayerStats stats, Difficulty difficulty) {
+        double scale = 0.75 + 0.5 * stats.getPace();
+        int limit = (int) Math.round(BASE_TIME_LIMITS[difficulty.ordinal()] * scale);
+        return Math.max(MIN_TIME_LIMIT, Math.min(MAX_TIME_LIMIT, limit));
+    }
+    
+    /**
+     * Tunes the room for the player about to enter it: math rooms get a fresh
+     * puzzle of the chosen tier.
+     * @return The countdown for the room, in seconds
+     */
+    public int prepareRoom(Room room, PlayerStats stats) {
+        Difficulty difficulty = chooseDifficulty(stats);
+        Puzzle current = room.getPuzzle();
+        if (current != null && current.getType() == Puzzle.PuzzleType.MATH && !current.isSolved()) {
+            room.setPuzzle(pool.nextMathPuzzle(difficulty, stats.getSeenPuzzles()));
+        }
+        return chooseTimeLimit(stats, difficulty);
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * AnswerMatcher decides whether a player's answer counts as correct.
+ * Puzzles use an exact case-insensitive match unless a matcher is set.
+ */
+public interface AnswerMatcher {
+    boolean matches(String userAnswer);
+}
@@ -0,0 +1,324 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BatchValidator grades many answers at once, e.g. the submissions of a
+ * correspondence tournament. Puzzles are numbered by their position in the
+ * list the validator is built from, and each puzzle's answer is worked out
+ * once up front: the trimmed, case-insensitive text, or the number for math
+ * puzzles. Answers arrive as columns (puzzle ids, and all answer text in one
+ * char array), so grading an answer allocates nothing, trims in place and
+ * parses numbers straight from the chars.
+ *
+ * The batch is cut into chunks that are graded in parallel on a fork-join
+ * pool. Within a chunk answers are grouped by kind of check, so each group
+ * runs one tight loop. Results come back as a bitmap, one bit per answer in
+ * batch order.
+ *
+ * Grading gives the same result as Puzzle.validateAnswer. Puzzles with their
+ * own AnswerMatcher, or of a class the validator doesn't know, are graded by
+ * calling validateAnswer.
+ */
+public class BatchValidator {
+    private static final int CHUNK_ITEMS = 1 << 14; // a multiple of 64, so chunks never share a result word
+    
+    // Kinds of check
+    private static final byte EXACT = 0;
+    private static final byte EXACT_OR_ANAGRAM = 1;
+    private static final byte NUMBER = 2;
+    private static final byte DELEGATE = 3; // Puzzle.validateAnswer
+    private static final int KIND_COUNT = 4;
+    
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[CHUNK_ITEMS]);
+    
+    private final Puzzle[] puzzles;
+    private final byte[] kinds;
+    private final char[][] answers; // for EXACT and EXACT_OR_ANAGRAM
+    private final int[] numbers; // for NUMBER
+    private final ForkJoinPool pool;
+    
+    public BatchValidator(List<Puzzle> puzzles) {
+        this(puzzles, ForkJoinPool.commonPool());
+    }
+    
+    public BatchValidator(List<Puzzle> puzzles, ForkJoinPool pool) {
+        this.puzzles = puzzles.toArray(new Puzzle[0]);
+        this.kinds = new byte[this.puzzles.length];
+        this.answers = new char[this.puzzles.length][];
+        this.numbers = new int[this.puzzles.length];
+        this.pool = pool;
+        for (int id = 0; id < this.puzzles.length; id++) {
+            compile(id, this.puzzles[id]);
+        }
+    }
+    
+    private void compile(int id, Puzzle puzzle) {
+        Class<?> type = puzzle.getClass();
+        kinds[id] = DELEGATE;
+        if (type == MathPuzzle.class) {
+            // Ignores any AnswerMatcher, as MathPuzzle.validateAnswer does
+            try {
+                numbers[id] = Integer.parseInt(puzzle.getAnswer());
+                kinds[id] = NUMBER;
+            } catch (NumberFormatException e) {
+                // Never valid; left to validateAnswer
+            }
+        } else if (puzzle.getAnswerMatcher() == null) {
+            if (type == RiddlePuzzle.class || type == CaesarCipherPuzzle.class
+                    || type == SubstitutionCipherPuzzle.class || type == LogicPuzzle.class) {
+                kinds[id] = EXACT;
+                answers[id] = puzzle.getAnswer().toCharArray();
+            } else if (type == WordScramblePuzzle.class) {
+                boolean anagrams = ((WordScramblePuzzle) puzzle).getDictionary() != null;
+                kinds[id] = anagrams ? EXACT_OR_ANAGRAM : EXACT;
+                answers[id] = puzzle.getAnswer().toCharArray();
+            }
+        }
+    }
+    
+    public int getPuzzleCount() {
+        return puzzles.length;
+    }
+    
+    // Grade a batch; bit i of the result is set if answer i is correct
+    public long[] validate(Batch batch) {
+        long[] results = new long[(batch.size + 63) >>> 6];
+        validate(batch, results);
+        return results;
+    }
+    
+    /**
+     * Grade a batch into a caller's bitmap, so a tournament grading batch
+     * after batch can reuse one.
+     * @throws IllegalArgumentException if the bitmap is too short or an answer names an unknown puzzle
+     */
+    public void validate(Batch batch, long[] results) {
+        int words = (batch.size + 63) >>> 6;
+        if (results.length < words) {
+            throw new IllegalArgumentException("Result bitmap needs " + words + " words for " + batch.size + " answers");
+        }
+        Arrays.fill(results, 0, words, 0);
+        if (batch.size <= CHUNK_ITEMS) {
+            validateChunk(batch, 0, batch.size, results);
+        } else {
+            pool.invoke(new ValidateTask(batch, 0, (batch.size + CHUNK_ITEMS - 1) / CHUNK_ITEMS, results));
+        }
+    }
+    
+    public static boolean isValid(long[] results, int index) {
+        return (results[index >>> 6] & (1L << index)) != 0;
+    }
+    
+    // Number of correct answers in a bitmap
+    public static int countValid(long[] results) {
+        int count = 0;
+        for (long word : results) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+    
+    /**
+     * Splits a range of chunks in half until one is left, then grades it
+     */
+    private class ValidateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Batch batch;
+        private final int from;
+        private final int to;
+        private final long[] results;
+        
+        ValidateTask(Batch batch, int from, int to, long[] results) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int start = from * CHUNK_ITEMS;
+                validateChunk(batch, start, Math.min(start + CHUNK_ITEMS, batch.size), results);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidateTask(batch, from, middle, results), new ValidateTask(batch, middle, to, results));
+        }
+    }
+    
+    // Counting sort of the chunk's answers by kind of check, then one loop per kind
+    private void validateChunk(Batch batch, int start, int end, long[] results) {
+        int[] ids = batch.puzzleIds;
+        int[] groupStart = new int[KIND_COUNT + 1];
+        for (int i = start; i < end; i++) {
+            int id = ids[i];
+            if (id < 0 || id >= puzzles.length) {
+                throw new IllegalArgumentException("Answer " + i + " names unknown puzzle " + id);
+            }
+            groupStart[kinds[id] + 1]++;
+        }
+        for (int k = 0; k < KIND_COUNT; k++) {
+            groupStart[k + 1] += groupStart[k];
+        }
+        int[] order = SCRATCH.get();
+        int[] next = Arrays.copyOf(groupStart, KIND_COUNT);
+        for (int i = start; i < end; i++) {
+            order[next[kinds[ids[i]]]++] = i;
+        }
+        
+        gradeExact(batch, order, groupStart[EXACT], groupStart[EXACT + 1], results);
+        gradeScrambles(batch, order, groupStart[EXACT_OR_ANAGRAM], groupStart[EXACT_OR_ANAGRAM + 1], results);
+        gradeNumbers(batch, order, groupStart[NUMBER], groupStart[NUMBER + 1], results);
+        gradeByPuzzle(batch, order, groupStart[DELEGATE], groupStart[DELEGATE + 1], results);
+    }
+    
+    // Each grade method handles the answers order[from .. to), all of one kind
+    private void gradeExact(Batch batch, int[] order, int from, int to, long[] results) {
+        int[] ids = batch.puzzleIds;
+        char[] chars = batch.chars;
+        int[] offsets = batch.offsets;
+        for (int n = from; n < to; n++) {
+            int i = order[n];
+            if (matchesExactly(chars, offsets[i], offsets[i + 1], answers[ids[i]])) {
+                results[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void gradeScrambles(Batch batch, int[] order, int from, int to, long[] results) {
+        int[] ids = batch.puzzleIds;
+        char[] chars = batch.chars;
+        int[] offsets = batch.offsets;
+        for (int n = from; n < to; n++) {
+            int i = order[n];
+            int id = ids[i];
+            if (matchesExactly(chars, offsets[i], offsets[i + 1], answers[id])
+                    || ((WordScramblePuzzle) puzzles[id]).getDictionary().isAnagram(puzzles[id].getAnswer(),
+                        new String(chars, offsets[i], offsets[i + 1] - offsets[i]))) {
+                results[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void gradeNumbers(Batch batch, int[] order, int from, int to, long[] results) {
+        int[] ids = batch.puzzleIds;
+        char[] chars = batch.chars;
+        int[] offsets = batch.offsets;
+        for (int n = from; n < to; n++) {
+            int i = order[n];
+            if (matchesNumber(chars, offsets[i], offsets[i + 1], numbers[ids[i]])) {
+                results[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    private void gradeByPuzzle(Batch batch, int[] order, int from, int to, long[] results) {
+        int[] ids = batch.puzzleIds;
+        char[] chars = batch.chars;
+        int[] offsets = batch.offsets;
+        for (int n = from; n < to; n++) {
+            int i = order[n];
+            if (puzzles[ids[i]].validateAnswer(new String(chars, offsets[i], offsets[i + 1] - offsets[i]))) {
+                results[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+    
+    // The same as answer.equalsIgnoreCase(text.trim())
+    private static boolean matchesExactly(char[] chars, int start, int end, char[] answer) {
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        if (end - start != answer.length) return false;
+        for (int i = 0; i < answer.length; i++) {
+            char c1 = chars[start + i];
+            char c2 = answer[i];
+            if (c1 == c2) continue;
+            if ((c1 | c2) >= 0x80) {
+                // Leave case folding beyond ASCII, surrogate pairs included, to String
+                return new String(answer).equalsIgnoreCase(new String(chars, start, end - start));
+            }
+            if (Character.toLowerCase(c1) != Character.toLowerCase(c2)) return false;
+        }
+        return true;
+    }
+    
+    // The same as Integer.parseInt(text.trim()) == expected, with unparsable text never matching
+    private static boolean matchesNumber(char[] chars, int start, int end, int expected) {
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        if (start == end) return false;
+        boolean negative = chars[start] == '-';
+        if (negative || chars[start] == '+') {
+            if (++start == end) return false;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            int digit = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+            if (digit < 0) return false;
+            value = value * 10 + digit;
+            if (value > 1L << 31) return false; // out of int range either way
+        }
+        return (negative ? -value : value) == expected;
+    }
+    
+    /**
+     * A batch of answers stored as columns: the puzzle id of each answer, and
+     * the text of all answers back to back in one char array. Clear and refill
+     * a batch to reuse its arrays. Not thread-safe while being filled.
+     */
+    public static final class Batch {
+        private int size;
+        private int[] puzzleIds;
+        private int[] offsets; // answer i is chars[offsets[i] .. offsets[i + 1])
+        private char[] chars;
+        
+        public Batch() {
+            this(1024);
+        }
+        
+        public Batch(int capacity) {
+            int initial = Math.max(1, capacity);
+            this.puzzleIds = new int[initial];
+            this.offsets = new int[initial + 1];
+            this.chars = new char[initial * 8];
+        }
+        
+        public Batch add(int puzzleId, CharSequence answer) {
+            if (answer == null) {
+                throw new IllegalArgumentException("Answer " + size + " is missing");
+            }
+            if (size == puzzleIds.length) {
+                puzzleIds = Arrays.copyOf(puzzleIds, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            }
+            int start = offsets[size];
+            int length = answer.length();
+            if (start + length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, start + length));
+            }
+            if (answer instanceof String) {
+                ((String) answer).getChars(0, length, chars, start);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    chars[start + i] = answer.charAt(i);
+                }
+            }
+            puzzleIds[size] = puzzleId;
+            offsets[size + 1] = start + length;
+            size++;
+            return this;
+        }
+        
+        public void clear() {
+            size = 0;
+        }
+        
+        public int size() { return size; }
+        public int getPuzzleId(int index) { return puzzleIds[index]; }
+        public String getAnswer(int index) { return new String(chars, offsets[index], offsets[index + 1] - offsets[index]); }
+    }
+}
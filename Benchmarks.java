@@ -0,0 +1,430 @@
+/**
+ * Micro-benchmarks for game components. Run with: java Benchmarks [name]
+ */
+public class Benchmarks {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    
+    public static void main(String[] args) {
+        String name = args.length > 0 ? args[0] : "all";
+        if (name.equals("all") || name.equals("matcher")) {
+            benchmarkAnswerMatching();
+        }
+        if (name.equals("all") || name.equals("router")) {
+            benchmarkRouting();
+        }
+        if (name.equals("all") || name.equals("adaptive")) {
+            benchmarkAdaptiveDifficulty();
+        }
+        if (name.equals("all") || name.equals("graph")) {
+            benchmarkRoomGraph();
+        }
+        if (name.equals("all") || name.equals("bootstrap")) {
+            benchmarkSessionBootstrap();
+        }
+        if (name.equals("all") || name.equals("filter")) {
+            benchmarkPuzzleFilter();
+        }
+        if (name.equals("all") || name.equals("profiles")) {
+            benchmarkProfileStore();
+        }
+        if (name.equals("all") || name.equals("batch")) {
+            benchmarkBatchValidation();
+        }
+        if (name.equals("all") || name.equals("scoring")) {
+            benchmarkScoring();
+        }
+    }
+    
+    // Exact riddle matching against the fuzzy matcher, on hits, near-misses and wrong answers
+    private static void benchmarkAnswerMatching() {
+        String[] answers = {"echo", "Echo ", "an echo", "echos", "ecko", "the wind", "reverberation", "silence"};
+        Puzzle exact = new RiddlePuzzle("?", "echo", "");
+        Puzzle fuzzy = new RiddlePuzzle("?", "echo", "");
+        fuzzy.setAnswerMatcher(new FuzzyAnswerMatcher("echo", "reverberation"));
+        
+        report("exact match", answers, exact);
+        report("fuzzy match", answers, fuzzy);
+    }
+    
+    // Consistent-hash lookups over 16 nodes, and how many keys move when a 17th joins
+    private static void benchmarkRouting() {
+        ConsistentHashRouter<String> router = new ConsistentHashRouter<>();
+        for (int n = 0; n < 16; n++) {
+            router.addNode("node" + n, "node" + n);
+        }
+        String[] keys = new String[100_000];
+        String[] owners = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "player" + i;
+            owners[i] = router.route(keys[i]);
+        }
+        
+        int iterations = 1_000_000;
+        int checksum = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                checksum += router.route(keys[i % keys.length]).length();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%d)%n", "route", (double) best / iterations, checksum);
+        
+        router.addNode("node16", "node16");
+        int moved = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (!router.route(keys[i]).equals(owners[i])) moved++;
+        }
+        System.out.printf("%-24s %8.2f%% of keys moved (ideal %.2f%%)%n", "add 17th node", 100.0 * moved / keys.length, 100.0 / 17);
+    }
+    
+    // Choosing a tier and countdown, preparing a math room from the pool, and a wrong answer in a live game for scale
+    private static void benchmarkAdaptiveDifficulty() {
+        AdaptiveDifficulty adaptive = new AdaptiveDifficulty(new PuzzlePool());
+        PlayerStats stats = new PlayerStats();
+        Room room = new Room(2, "Bench", "", java.awt.Color.BLACK);
+        room.setPuzzle(new MathPuzzle("1 + 1", "2", ""));
+        GameEngine engine = new GameEngine();
+        engine.startNewGame("bench");
+        
+        int iterations = 1_000_000;
+        long checksum = 0;
+        long bestChoose = Long.MAX_VALUE;
+        long bestPrepare = Long.MAX_VALUE;
+        long bestSubmit = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                stats.recordSolve(i % 60, 60);
+                checksum += adaptive.chooseTimeLimit(stats, adaptive.chooseDifficulty(stats));
+            }
+            long choose = System.nanoTime() - start;
+            
+            // Stay within what the pool has ready, then let the background refill catch up
+            int prepares = 1000;
+            start = System.nanoTime();
+            for (int i = 0; i < prepares; i++) {
+                checksum += adaptive.prepareRoom(room, stats);
+            }
+            long prepare = (System.nanoTime() - start) * (iterations / prepares);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                // Top the lives back up so every answer is graded in a running game, not ignored by an ended one
+                engine.getPlayer().setLives(3);
+                if (engine.submitAnswer("wrong")) checksum++;
+            }
+            long submit = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                bestChoose = Math.min(bestChoose, choose);
+                bestPrepare = Math.min(bestPrepare, prepare);
+                bestSubmit = Math.min(bestSubmit, submit);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%d)%n", "choose tier + time", (double) bestChoose / iterations, checksum);
+        System.out.printf("%-24s %8.1f ns/op%n", "prepare math room", (double) bestPrepare / iterations);
+        System.out.printf("%-24s %8.1f ns/op%n", "submitAnswer (wrong)", (double) bestSubmit / iterations);
+    }
+    
+    // Building a 200k-room branching campaign with item-gated doors, then door checks against it
+    private static void benchmarkRoomGraph() {
+        int rooms = 200_000;
+        java.util.Random random = new java.util.Random(42);
+        long bestBuild = Long.MAX_VALUE;
+        RoomGraph graph = null;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            random.setSeed(42);
+            long start = System.nanoTime();
+            RoomGraph.Builder builder = new RoomGraph.Builder();
+            int handedOut = 0; // item kinds 0 .. handedOut-1 are rewards of earlier rooms
+            for (int i = 0; i < rooms; i++) {
+                // Every tenth room is locked behind an item handed out somewhere earlier
+                long required = i % 10 == 0 && handedOut > 0 ? 1L << random.nextInt(handedOut) : 0;
+                long reward = handedOut < 64 && random.nextInt(1000) == 0 ? 1L << handedOut++ : 0;
+                builder.addRoom(required, reward);
+            }
+            for (int i = 0; i + 1 < rooms; i++) {
+                builder.addDoor(i, i + 1);
+                if (random.nextBoolean()) {
+                    builder.addDoor(i, Math.min(rooms - 1, i + 2 + random.nextInt(50)));
+                }
+            }
+            graph = builder.build();
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                bestBuild = Math.min(bestBuild, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ms  (%d rooms, %d doors, %d reachable)%n", "build + reachability",
+            bestBuild / 1e6, graph.getRoomCount(), graph.getDoorCount(), graph.getReachableCount());
+        
+        int iterations = 10_000_000;
+        long inventory = random.nextLong();
+        long checksum = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                int room = i % rooms;
+                if (graph.isReachable(room)) {
+                    checksum += graph.nextRoom(room, inventory);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%d)%n", "reachable + next room", (double) best / iterations, checksum);
+    }
+    
+    // Session start latency with its parts run one after another and side by side
+    private static void benchmarkSessionBootstrap() {
+        SessionHost host = new SessionHost(SessionHost.ExecutionMode.PLATFORM_POOL, 1, new SimulatedGameClock());
+        // Stand-ins for a 3 ms content service and a 5 ms profile read
+        host.setRoomSource(() -> {
+            sleepMillis(3);
+            return GameEngine.createRooms();
+        });
+        host.setProfileLoader(playerName -> {
+            sleepMillis(5);
+            return new PlayerStats();
+        });
+        
+        double parallel = measureSessionStarts(host);
+        host.setBootstrapExecutor(Runnable::run);
+        double sequential = measureSessionStarts(host);
+        host.shutdown();
+        System.out.printf("%-24s %8.2f ms/start%n", "sequential start", sequential);
+        System.out.printf("%-24s %8.2f ms/start%n", "parallel start", parallel);
+    }
+    
+    private static double measureSessionStarts(SessionHost host) {
+        int starts = 20;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < starts; i++) {
+                host.startSession("bench" + i).send(SessionCommand.quit());
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best / 1e6 / starts;
+    }
+    
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Memory and false positives of a player's seen-puzzle filter, and the cost of a lookup
+    private static void benchmarkPuzzleFilter() {
+        for (int puzzles : new int[] {1000, 5000}) {
+            PuzzleFilter filter = new PuzzleFilter();
+            for (int i = 0; i < puzzles; i++) {
+                filter.add(Puzzle.fingerprint(Puzzle.PuzzleType.MATH, "seen " + i));
+            }
+            int falsePositives = 0;
+            int probes = 100_000;
+            for (int i = 0; i < probes; i++) {
+                if (filter.mightContain(Puzzle.fingerprint(Puzzle.PuzzleType.MATH, "fresh " + i))) falsePositives++;
+            }
+            System.out.printf("%-24s %8d bytes  %.2f%% false positives%n", puzzles + " puzzles seen",
+                filter.getByteSize(), 100.0 * falsePositives / probes);
+        }
+        
+        PuzzleFilter filter = new PuzzleFilter();
+        long[] fingerprints = new long[4096];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = Puzzle.fingerprint(Puzzle.PuzzleType.MATH, i + " + " + i);
+            if (i % 2 == 0) filter.add(fingerprints[i]);
+        }
+        int iterations = 10_000_000;
+        int hits = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (filter.mightContain(fingerprints[i & 4095])) hits++;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%d hits)%n", "mightContain", (double) best / iterations, hits);
+    }
+    
+    // Writes and point lookups against a profile store of a million players in a temporary directory
+    private static void benchmarkProfileStore() {
+        int profiles = 1_000_000;
+        int lookups = 1_000_000;
+        java.nio.file.Path directory = null;
+        try {
+            directory = java.nio.file.Files.createTempDirectory("profiles");
+            try (ProfileStore store = new ProfileStore(directory)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < profiles; i++) {
+                    store.put(new PlayerProfile("player" + i));
+                }
+                long putNanos = System.nanoTime() - start;
+                
+                java.util.Random random = new java.util.Random(1);
+                int found = 0;
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+                    start = System.nanoTime();
+                    for (int i = 0; i < lookups / 10; i++) {
+                        if (store.get("player" + random.nextInt(profiles)) != null) found++;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (round >= WARMUP_ROUNDS) {
+                        best = Math.min(best, elapsed);
+                    }
+                }
+                System.out.printf("%-24s %8.2f us/op  (%d MB of data)%n", "profile put", putNanos / 1e3 / profiles,
+                    store.getDataBytes() >> 20);
+                System.out.printf("%-24s %8.2f us/op  (%d found)%n", "profile get", best / 1e3 / (lookups / 10), found);
+            }
+        } catch (java.io.IOException e) {
+            System.err.println("Profile store benchmark failed: " + e.getMessage());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+    
+    // Grading a million mixed answers one validateAnswer call at a time, then as one batch
+    private static void benchmarkBatchValidation() {
+        java.util.List<Puzzle> puzzles = new java.util.ArrayList<>();
+        for (Room room : GameEngine.createRooms().getRooms()) {
+            puzzles.add(room.getPuzzle());
+        }
+        PuzzlePool pool = new PuzzlePool(new java.util.Random(7), 64);
+        for (int i = 0; i < 1000; i++) {
+            puzzles.add(pool.nextMathPuzzle(Difficulty.values()[i % Difficulty.values().length]));
+        }
+        BatchValidator validator = new BatchValidator(puzzles);
+        
+        int answers = 1_000_000;
+        java.util.Random random = new java.util.Random(3);
+        int[] ids = new int[answers];
+        String[] texts = new String[answers];
+        BatchValidator.Batch batch = new BatchValidator.Batch(answers);
+        for (int i = 0; i < answers; i++) {
+            ids[i] = random.nextInt(puzzles.size());
+            String answer = puzzles.get(ids[i]).getAnswer();
+            texts[i] = random.nextBoolean() ? " " + answer.toLowerCase() : Integer.toString(random.nextInt(100));
+            batch.add(ids[i], texts[i]);
+        }
+        
+        int valid = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < answers; i++) {
+                if (puzzles.get(ids[i]).validateAnswer(texts[i])) valid++;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%.1f M/s)%n", "validateAnswer", (double) best / answers, answers * 1e3 / best);
+        
+        long[] results = new long[(answers + 63) >>> 6];
+        best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            validator.validate(batch, results);
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%.1f M/s, %d valid, %d threads)%n", "batch validate", (double) best / answers,
+            answers * 1e3 / best, BatchValidator.countValid(results), java.util.concurrent.ForkJoinPool.commonPool().getParallelism());
+    }
+    
+    // Cost of scoring one event, and of finishing a game onto a leaderboard of 100k players
+    private static void benchmarkScoring() {
+        ScoreKeeper keeper = new ScoreKeeper(ScoringRules.DEFAULT);
+        keeper.onGameStarted("bench");
+        int iterations = 10_000_000;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                switch (i & 3) {
+                    case 0: keeper.onRoomCompleted(0, i & 63); break;
+                    case 1: keeper.onHintUsed(0, 2); break;
+                    case 2: keeper.onWrongAnswer(0, "", 2); break;
+                    default: keeper.onTimeUp(0, 2);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (score %d)%n", "score event", (double) best / iterations, keeper.getScore());
+        
+        Leaderboard leaderboard = new Leaderboard();
+        java.util.Random random = new java.util.Random(11);
+        int players = 100_000;
+        int submissions = 1_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < submissions; i++) {
+            leaderboard.submit("player" + random.nextInt(players), random.nextInt(10_000));
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-24s %8.1f ns/op  (top %s)%n", "leaderboard submit", (double) elapsed / submissions,
+            leaderboard.top(1));
+    }
+    
+    private static void deleteDirectory(java.nio.file.Path directory) {
+        if (directory == null) return;
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(directory)) {
+            for (java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+                java.nio.file.Files.deleteIfExists(file);
+            }
+            java.nio.file.Files.deleteIfExists(directory);
+        } catch (java.io.IOException e) {
+            System.err.println("Could not delete " + directory);
+        }
+    }
+    
+    private static void report(String label, String[] answers, Puzzle puzzle) {
+        int iterations = 1_000_000;
+        int accepted = 0;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (puzzle.checkAnswer(answers[i % answers.length])) {
+                    accepted++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-24s %8.1f ns/op  (%d accepted)%n", label, (double) best / iterations, accepted);
+    }
+}
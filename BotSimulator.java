@@ -0,0 +1,153 @@
+import java.util.Random;
+
+/**
+ * BotSimulator plays many games at once on a SimulatedGameClock. Every bot
+ * gets a skill level from a seeded Random and each game second decides whether
+ * to answer, guess wrong or keep thinking, so time-ups, deaths and wins all
+ * occur. Nothing sleeps: the same seed always produces the same results, as
+ * fast as the engine can run.
+ * Usage: java BotSimulator [bots] [gameSeconds] [seed] [adaptive]
+ */
+public class BotSimulator {
+    private static final double WRONG_GUESS_CHANCE = 0.01;
+    
+    private final SimulatedGameClock clock;
+    private final Random random;
+    private final Bot[] bots;
+    private final Leaderboard leaderboard;
+    
+    private long gamesWon;
+    private long gamesLost;
+    private long roomsCompleted;
+    private long wrongAnswers;
+    private long timeUps;
+    
+    public BotSimulator(int botCount, long seed, boolean adaptive) {
+        this.clock = new SimulatedGameClock();
+        this.random = new Random(seed);
+        this.bots = new Bot[botCount];
+        this.leaderboard = new Leaderboard();
+        AdaptiveDifficulty adaptiveDifficulty = adaptive
+            ? new AdaptiveDifficulty(new PuzzlePool(new Random(seed), 1024)) : null;
+        for (int i = 0; i < botCount; i++) {
+            // Mean time to solve a puzzle between 10 and 90 game seconds
+            bots[i] = new Bot("bot" + i, 1.0 / (10 + random.nextInt(81)));
+            bots[i].engine.setAdaptiveDifficulty(adaptiveDifficulty);
+            bots[i].engine.setLeaderboard(leaderboard);
+        }
+    }
+    
+    public static void main(String[] args) {
+        int botCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long gameSeconds = args.length > 1 ? Long.parseLong(args[1]) : 10_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        boolean adaptive = args.length > 3 && args[3].equals("adaptive");
+        
+        BotSimulator simulator = new BotSimulator(botCount, seed, adaptive);
+        long started = System.nanoTime();
+        simulator.run(gameSeconds);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        
+        System.out.printf("bots=%d  game seconds=%d  wall time=%.2fs%n", botCount, gameSeconds, seconds);
+        System.out.printf("bot-seconds simulated per wall second: %.0f%n", botCount * gameSeconds / seconds);
+        System.out.println(simulator.summary());
+    }
+    
+    // Advance every bot's game by the given number of game seconds
+    public void run(long gameSeconds) {
+        for (Bot bot : bots) {
+            bot.startGame();
+        }
+        clock.advance(gameSeconds);
+    }
+    
+    public String summary() {
+        return String.format("won=%d  lost=%d  rooms=%d  wrong=%d  timeUps=%d  top=%s",
+            gamesWon, gamesLost, roomsCompleted, wrongAnswers, timeUps, leaderboard.top(3));
+    }
+    
+    // Getters
+    public long getGamesWon() { return gamesWon; }
+    public long getGamesLost() { return gamesLost; }
+    public long getRoomsCompleted() { return roomsCompleted; }
+    public Leaderboard getLeaderboard() { return leaderboard; }
+    public long getElapsedSeconds() { return clock.getElapsedSeconds(); }
+    
+    /**
+     * One simulated player. It reacts to its engine's events like the Swing UI
+     * does - restarting the puzzle timer on each new room - and plays another
+     * game as soon as one ends.
+     */
+    private class Bot implements GameEventListener {
+        private final String name;
+        private final double solveChance;
+        private final GameEngine engine;
+        private boolean restartPending;
+        
+        Bot(String name, double solveChance) {
+            this.name = name;
+            this.solveChance = solveChance;
+            this.engine = new GameEngine(clock);
+            engine.setRoomPrefetchExecutor(null); // build rooms on the simulation thread
+            engine.addListener(this);
+            clock.everySecond(this::act);
+        }
+        
+        void startGame() {
+            restartPending = false;
+            engine.startNewGame(name);
+            engine.startTimer();
+        }
+        
+        private void act() {
+            if (restartPending) {
+                restartPending = false;
+                engine.startNewGame(name);
+                engine.startTimer();
+                return;
+            }
+            if (!engine.isGameRunning()) return;
+            double roll = random.nextDouble();
+            if (roll < solveChance) {
+                engine.submitAnswer(engine.getCurrentRoom().getPuzzle().getAnswer());
+            } else if (roll < solveChance + WRONG_GUESS_CHANCE) {
+                engine.submitAnswer("no idea");
+            }
+        }
+        
+        @Override
+        public void onRoomCompleted(int roomIndex, int timeRemaining) {
+            roomsCompleted++;
+        }
+        
+        @Override
+        public void onRoomEntered(int roomIndex) {
+            engine.startTimer();
+        }
+        
+        @Override
+        public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+            wrongAnswers++;
+        }
+        
+        @Override
+        public void onTimeUp(int roomIndex, int livesLeft) {
+            timeUps++;
+            if (livesLeft > 0) {
+                engine.startTimer();
+            }
+        }
+        
+        @Override
+        public void onVictory(int livesLeft) {
+            gamesWon++;
+            restartPending = true;
+        }
+        
+        @Override
+        public void onGameOver(int roomIndex) {
+            gamesLost++;
+            restartPending = true;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Caesar cipher puzzle implementation
+ */
+class CaesarCipherPuzzle extends Puzzle {
+    private int shift;
+    
+    public CaesarCipherPuzzle(String encryptedText, String answer, String hint, int shift) {
+        super(encryptedText, answer, hint, PuzzleType.CAESAR_CIPHER);
+        this.shift = shift;
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        return checkAnswer(userAnswer);
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Decrypt this Caesar cipher (shift by " + shift + "):";
+    }
+    
+    public int getShift() { return shift; }
+}
@@ -0,0 +1,332 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * CampaignGenerator builds large random campaigns. The campaign is cut into
+ * regions of consecutive rooms that are generated and checked in parallel on
+ * a fork-join pool; each region draws from its own Random, seeded from the
+ * campaign seed and the region number, so a seed always gives the same
+ * campaign however the work was split.
+ *
+ * Within a region the rooms form a main corridor with optional side rooms.
+ * Side rooms may hand out an item that a later corridor room in the same
+ * region needs, so every lock has its key earlier in the region.
+ */
+public class CampaignGenerator {
+    public static final int DEFAULT_REGION_SIZE = 256;
+    
+    private static final int SIDE_ROOM_CHANCE = 4; // one slot in four becomes a side room
+    private static final int LOCK_CHANCE = 2; // half of the side rooms hand out a key for a later lock
+    
+    private static final String[] ADJECTIVES = {
+        "Dusty", "Flooded", "Silent", "Gilded", "Crumbling", "Frozen", "Hidden", "Echoing",
+        "Forgotten", "Sunken", "Burning", "Shadowed", "Mirrored", "Twisting", "Ancient", "Hollow"
+    };
+    private static final String[] PLACES = {
+        "Archive", "Vault", "Gallery", "Cellar", "Observatory", "Library", "Crypt", "Workshop",
+        "Greenhouse", "Armory", "Chapel", "Laboratory", "Passage", "Atrium", "Study", "Tower"
+    };
+    private static final String[] MATERIALS = {
+        "Brass", "Silver", "Iron", "Copper", "Jade", "Bone", "Crystal", "Obsidian",
+        "Ivory", "Golden", "Rusty", "Amber", "Pearl", "Onyx", "Coral", "Steel"
+    };
+    private static final String[] TOKENS = {"Key", "Gear", "Lens", "Rune"}; // 16 x 4 = 64 item kinds
+    private static final String[] PHRASES = {
+        "OPEN THE DOOR", "FIND THE LIGHT", "THE KEY IS NEAR", "LOOK BEHIND YOU", "TIME IS SHORT",
+        "FOLLOW THE STARS", "TRUST NO MIRROR", "THE WALLS LISTEN", "ESCAPE SUCCESS", "KNOWLEDGE IS FREEDOM"
+    };
+    private static final String[] WORDS = {
+        "FREEDOM", "LANTERN", "MYSTERY", "CHAMBER", "PUZZLE", "JOURNEY", "ANCIENT", "COMPASS",
+        "LABYRINTH", "TREASURE", "SHADOW", "WHISPER", "CRYSTAL", "LIBRARY", "SCROLL", "HORIZON"
+    };
+    private static final String[][] RIDDLES = {
+        {"I speak without a mouth and hear without ears. What am I?", "echo"},
+        {"The more you take, the more you leave behind. What am I?", "footsteps"},
+        {"I have keys but open no locks. What am I?", "piano"},
+        {"I have hands but cannot clap. What am I?", "clock"},
+        {"What has to be broken before you can use it?", "egg"},
+        {"I am always in front of you but can't be seen. What am I?", "future"}
+    };
+    
+    private final long seed;
+    private final int regionSize;
+    private final ForkJoinPool pool;
+    private final WordDictionary dictionary;
+    
+    public CampaignGenerator(long seed) {
+        this(seed, DEFAULT_REGION_SIZE, ForkJoinPool.commonPool(), WordDictionary.getDefault());
+    }
+    
+    public CampaignGenerator(long seed, int regionSize, ForkJoinPool pool, WordDictionary dictionary) {
+        if (regionSize < 2) {
+            throw new IllegalArgumentException("Regions need at least two rooms");
+        }
+        this.seed = seed;
+        this.regionSize = regionSize;
+        this.pool = pool;
+        this.dictionary = dictionary;
+    }
+    
+    /**
+     * Generates and verifies a campaign of the given number of rooms.
+     * @throws IllegalStateException if the finished campaign cannot be won,
+     *         which would be a bug in the generator
+     */
+    public Campaign generate(int roomCount) {
+        if (roomCount < 1) {
+            throw new IllegalArgumentException("A campaign needs at least one room");
+        }
+        Region[] regions = new Region[(roomCount + regionSize - 1) / regionSize];
+        pool.invoke(new GenerateTask(regions, 0, regions.length, roomCount));
+        
+        // Stitch the regions together: the last corridor room of each leads to the next region
+        Room[] rooms = new Room[roomCount];
+        RoomGraph.Builder graph = new RoomGraph.Builder();
+        for (Region region : regions) {
+            System.arraycopy(region.rooms, 0, rooms, region.base, region.rooms.length);
+        }
+        for (Room room : rooms) {
+            graph.addRoom(room);
+        }
+        for (int r = 0; r < regions.length; r++) {
+            Region region = regions[r];
+            for (int d = 0; d < region.doorCount; d++) {
+                graph.addDoor(region.doorFrom[d], region.doorTo[d]);
+            }
+            if (r + 1 < regions.length) {
+                graph.addDoor(region.base + region.rooms.length - 1, regions[r + 1].base);
+            }
+        }
+        RoomGraph roomGraph = graph.build();
+        if (!roomGraph.isSolvable() || roomGraph.getReachableCount() != roomCount) {
+            throw new IllegalStateException("Generated campaign cannot be completed: " + roomGraph.getReachableCount()
+                + " of " + roomCount + " rooms reachable");
+        }
+        return new Campaign(Collections.unmodifiableList(Arrays.asList(rooms)), roomGraph);
+    }
+    
+    /**
+     * Splits a range of regions in half until one region is left, then
+     * generates and verifies it.
+     */
+    private class GenerateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Region[] regions;
+        private final int from;
+        private final int to;
+        private final int roomCount;
+        
+        GenerateTask(Region[] regions, int from, int to, int roomCount) {
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+            this.roomCount = roomCount;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int base = from * regionSize;
+                Region region = generateRegion(from, base, Math.min(regionSize, roomCount - base));
+                verifyRegion(region);
+                regions[from] = region;
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GenerateTask(regions, from, middle, roomCount), new GenerateTask(regions, middle, to, roomCount));
+        }
+    }
+    
+    private Region generateRegion(int index, int base, int size) {
+        Random random = new Random(seed * 0x9E3779B97F4A7C15L + index);
+        Region region = new Region(base, size);
+        List<Integer> pending = new ArrayList<>(); // rooms whose door leads to the next corridor room
+        List<String> keys = new ArrayList<>(); // keys handed out in this region and not yet used by a lock
+        int lastSlot = size - 1;
+        
+        for (int slot = 0; slot < size; slot++) {
+            int id = base + slot;
+            Room room = createRoom(id, random);
+            region.rooms[slot] = room;
+            boolean previousIsCorridor = slot > 0 && pending.size() == 1 && pending.get(0) == id - 1;
+            
+            if (previousIsCorridor && slot < lastSlot && random.nextInt(SIDE_ROOM_CHANCE) == 0) {
+                // A side room off the previous corridor room; its door is added first, so it is tried first
+                region.addDoor(id - 1, id);
+                pending.add(id);
+                if (random.nextInt(LOCK_CHANCE) == 0) {
+                    String key = MATERIALS[random.nextInt(MATERIALS.length)] + " " + TOKENS[random.nextInt(TOKENS.length)];
+                    room.setRewardItem(key);
+                    keys.add(key);
+                }
+            } else {
+                for (int from : pending) {
+                    region.addDoor(from, id);
+                }
+                pending.clear();
+                pending.add(id);
+                if (!keys.isEmpty() && random.nextBoolean()) {
+                    String key = keys.remove(keys.size() - 1);
+                    room.addRequiredItem(key);
+                    room.setDoorDescription("The door is sealed. It needs the " + key + ".");
+                }
+            }
+        }
+        return region;
+    }
+    
+    /**
+     * Walks the region the way GameEngine does, always taking the first door
+     * it can open and collecting each room's item, and checks that every lock
+     * is reached with its key already in hand. Keys never cross regions, so
+     * regions can be checked independently.
+     */
+    private void verifyRegion(Region region) {
+        int[] doorOffsets = new int[region.rooms.length + 1];
+        for (int d = 0; d < region.doorCount; d++) {
+            doorOffsets[region.doorFrom[d] - region.base + 1]++;
+        }
+        for (int i = 0; i < region.rooms.length; i++) {
+            doorOffsets[i + 1] += doorOffsets[i];
+        }
+        int[] targets = new int[region.doorCount];
+        int[] next = Arrays.copyOf(doorOffsets, region.rooms.length);
+        for (int d = 0; d < region.doorCount; d++) {
+            targets[next[region.doorFrom[d] - region.base]++] = region.doorTo[d] - region.base;
+        }
+        
+        List<String> held = new ArrayList<>();
+        int room = 0;
+        int last = region.rooms.length - 1;
+        while (room != last) {
+            Room current = region.rooms[room];
+            if (current.getRewardItem() != null) {
+                held.add(current.getRewardItem());
+            }
+            int chosen = -1;
+            for (int d = doorOffsets[room]; d < doorOffsets[room + 1] && chosen < 0; d++) {
+                if (held.containsAll(region.rooms[targets[d]].getRequiredItems())) {
+                    chosen = targets[d];
+                }
+            }
+            if (chosen < 0) {
+                throw new IllegalStateException("Room " + (region.base + room) + " has no door the player can open");
+            }
+            room = chosen;
+        }
+        if (!held.containsAll(region.rooms[last].getRequiredItems())) {
+            throw new IllegalStateException("Room " + (region.base + last) + " is locked without its key");
+        }
+    }
+    
+    private Room createRoom(int id, Random random) {
+        String name = "The " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + PLACES[random.nextInt(PLACES.length)];
+        Color color = Color.getHSBColor(random.nextFloat(), 0.6f, 0.35f);
+        Room room = new Room(id, name, "Room " + (id + 1) + " of the campaign. Another puzzle guards the way on.", color);
+        room.setPuzzle(createPuzzle(random));
+        return room;
+    }
+    
+    private Puzzle createPuzzle(Random random) {
+        switch (random.nextInt(5)) {
+            case 0: {
+                String[] riddle = RIDDLES[random.nextInt(RIDDLES.length)];
+                Puzzle puzzle = new RiddlePuzzle(riddle[0], riddle[1], "Think about it literally...");
+                puzzle.setAnswerMatcher(new FuzzyAnswerMatcher(riddle[1]));
+                return puzzle;
+            }
+            case 1: {
+                String phrase = PHRASES[random.nextInt(PHRASES.length)];
+                int shift = CipherUtils.generateCaesarShift(random);
+                return new CaesarCipherPuzzle(CipherUtils.caesarEncrypt(phrase, shift), phrase,
+                    "Each letter is shifted by " + shift + " positions in the alphabet", shift);
+            }
+            case 2: {
+                String phrase = PHRASES[random.nextInt(PHRASES.length)];
+                String key = CipherUtils.generateSubstitutionKey(random);
+                return new SubstitutionCipherPuzzle(CipherUtils.substitutionEncrypt(phrase, key), phrase,
+                    "Each letter is replaced with another letter according to a pattern", key);
+            }
+            case 3: {
+                String[] math = CipherUtils.generateMathPuzzle(random);
+                return new MathPuzzle(math[0], math[1], "Remember your basic arithmetic operations");
+            }
+            default: {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                return new WordScramblePuzzle(CipherUtils.scrambleWord(word, dictionary, random), word,
+                    "The word has " + word.length() + " letters", dictionary);
+            }
+        }
+    }
+    
+    /**
+     * The rooms of one region and the doors that start in it, as global room ids
+     */
+    private static final class Region {
+        final int base;
+        final Room[] rooms;
+        int[] doorFrom;
+        int[] doorTo;
+        int doorCount;
+        
+        Region(int base, int size) {
+            this.base = base;
+            this.rooms = new Room[size];
+            this.doorFrom = new int[size + size / 2];
+            this.doorTo = new int[doorFrom.length];
+        }
+        
+        void addDoor(int from, int to) {
+            if (doorCount == doorFrom.length) {
+                doorFrom = Arrays.copyOf(doorFrom, doorCount * 2);
+                doorTo = Arrays.copyOf(doorTo, doorCount * 2);
+            }
+            doorFrom[doorCount] = from;
+            doorTo[doorCount] = to;
+            doorCount++;
+        }
+    }
+    
+    /**
+     * A generated campaign: its rooms, indexed by room id, and the doors between them
+     */
+    public static final class Campaign {
+        private final List<Room> rooms;
+        private final RoomGraph graph;
+        
+        Campaign(List<Room> rooms, RoomGraph graph) {
+            this.rooms = rooms;
+            this.graph = graph;
+        }
+        
+        public List<Room> getRooms() { return rooms; }
+        public RoomGraph getGraph() { return graph; }
+    }
+    
+    // Usage: java CampaignGenerator [rooms] [seed]
+    public static void main(String[] args) {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        WordDictionary.getDefault(); // load the word list before timing
+        
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            Campaign campaign = new CampaignGenerator(seed).generate(rooms);
+            long elapsed = System.nanoTime() - start;
+            RoomGraph graph = campaign.getGraph();
+            int locked = 0;
+            for (int r = 0; r < graph.getRoomCount(); r++) {
+                if (graph.getRequiredItems(r) != 0) locked++;
+            }
+            System.out.printf("rooms=%d  doors=%d  locked=%d  item kinds=%d  %.1f ms on %d threads%n",
+                graph.getRoomCount(), graph.getDoorCount(), locked, graph.getItemKindCount(),
+                elapsed / 1e6, ForkJoinPool.commonPool().getParallelism());
+        }
+    }
+}
@@ -47,6 +47,15 @@ public class CipherUtils {
      * @return Random shift value between 1 and 25
      */
     public static int generateCaesarShift() {
+        return generateCaesarShift(random);
+    }
+    
+    /**
+     * Generates a Caesar cipher shift value from the given source
+     * @param random Source of randomness, e.g. one seeded per campaign region
+     * @return Shift value between 1 and 25
+     */
+    public static int generateCaesarShift(Random random) {
         return random.nextInt(25) + 1;
     }
     
@@ -107,6 +116,15 @@ public class CipherUtils {
      * @return Random 26-character substitution key
      */
     public static String generateSubstitutionKey() {
+        return generateSubstitutionKey(random);
+    }
+    
+    /**
+     * Generates a substitution cipher key from the given source
+     * @param random Source of randomness
+     * @return 26-character substitution key
+     */
+    public static String generateSubstitutionKey(Random random) {
         StringBuilder key = new StringBuilder(ALPHABET);
         for (int i = 0; i < key.length(); i++) {
             int j = random.nextInt(key.length());
@@ -118,19 +136,62 @@ public class CipherUtils {
     }
     
     /**
-     * Creates a simple word scramble
+     * Creates a simple word scramble that differs from the original word
+     * whenever the word has at least two different letters
      * @param word The word to scramble
      * @return Scrambled word
      */
     public static String scrambleWord(String word) {
+        return scrambleWord(word, null);
+    }
+    
+    /**
+     * Creates a word scramble that is not the original word and, when a
+     * dictionary is given, not any other valid word either
+     * @param word The word to scramble
+     * @param dictionary Words the scramble must not spell, or null
+     * @return Scrambled word
+     * @throws IllegalArgumentException if every arrangement of the letters is a valid word
+     */
+    public static String scrambleWord(String word, WordDictionary dictionary) {
+        return scrambleWord(word, dictionary, random);
+    }
+    
+    /**
+     * Creates a word scramble like scrambleWord(word, dictionary), shuffling
+     * with the given source
+     * @param random Source of randomness
+     * @return Scrambled word
+     * @throws IllegalArgumentException if every arrangement of the letters is a valid word
+     */
+    public static String scrambleWord(String word, WordDictionary dictionary, Random random) {
         char[] chars = word.toCharArray();
-        for (int i = 0; i < chars.length; i++) {
-            int j = random.nextInt(chars.length);
-            char temp = chars[i];
-            chars[i] = chars[j];
-            chars[j] = temp;
+        if (!hasDistinctLetters(chars)) {
+            throw new IllegalArgumentException("Cannot scramble a word with only one distinct letter: " + word);
         }
-        return new String(chars);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            // Fisher-Yates shuffle so every arrangement is equally likely
+            for (int i = chars.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                char temp = chars[i];
+                chars[i] = chars[j];
+                chars[j] = temp;
+            }
+            String scrambled = new String(chars);
+            if (!scrambled.equalsIgnoreCase(word) && (dictionary == null || !dictionary.contains(scrambled))) {
+                return scrambled;
+            }
+        }
+        throw new IllegalArgumentException("Every arrangement of '" + word + "' is a valid word");
+    }
+    
+    private static boolean hasDistinctLetters(char[] chars) {
+        for (int i = 1; i < chars.length; i++) {
+            if (Character.toUpperCase(chars[i]) != Character.toUpperCase(chars[0])) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -138,6 +199,15 @@ public class CipherUtils {
      * @return Array containing [question, answer] as strings
      */
     public static String[] generateMathPuzzle() {
+        return generateMathPuzzle(random);
+    }
+    
+    /**
+     * Generates a single-operation math puzzle from the given source
+     * @param random Source of randomness
+     * @return Array containing [question, answer] as strings
+     */
+    public static String[] generateMathPuzzle(Random random) {
         int a = random.nextInt(20) + 1;
         int b = random.nextInt(20) + 1;
         int operation = random.nextInt(4);
@@ -178,4 +248,13 @@ public class CipherUtils {
         
         return new String[]{question, String.valueOf(answer)};
     }
+    
+    /**
+     * Generates a random multi-step math puzzle for the given difficulty tier
+     * @param difficulty How many operators and how large the numbers may be
+     * @return Array containing [question, answer] as strings
+     */
+    public static String[] generateMathPuzzle(Difficulty difficulty) {
+        return new MathPuzzleGenerator(random).generate(difficulty);
+    }
 }
@@ -0,0 +1,122 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ConsistentHashRouter maps session ids or player names to engine nodes.
+ * Each node is placed on a 64-bit hash ring at many virtual points, so load
+ * spreads evenly and adding or removing one of N nodes moves only about 1/N
+ * of the keys. The ring is an immutable pair of sorted arrays swapped in on
+ * membership changes; routing is a hash plus a binary search with no locking
+ * and no allocation.
+ */
+public class ConsistentHashRouter<N> {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+    
+    private final int virtualNodes;
+    private final Map<String, N> members; // guarded by this
+    private volatile Ring<N> ring;
+    
+    public ConsistentHashRouter() {
+        this(DEFAULT_VIRTUAL_NODES);
+    }
+    
+    public ConsistentHashRouter(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one virtual node per node");
+        }
+        this.virtualNodes = virtualNodes;
+        this.members = new LinkedHashMap<>();
+        this.ring = new Ring<>(new long[0], new int[0], new Object[0]);
+    }
+    
+    public synchronized void addNode(String nodeId, N node) {
+        members.put(nodeId, node);
+        rebuild();
+    }
+    
+    public synchronized void removeNode(String nodeId) {
+        if (members.remove(nodeId) != null) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Returns the node owning the key: the first virtual point at or after
+     * the key's hash, wrapping around the ring.
+     * @throws IllegalStateException if there are no nodes
+     */
+    public N route(CharSequence key) {
+        Ring<N> current = ring;
+        if (current.points.length == 0) {
+            throw new IllegalStateException("No nodes to route to");
+        }
+        int index = Arrays.binarySearch(current.points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == current.points.length) index = 0;
+        }
+        return current.node(index);
+    }
+    
+    public synchronized int getNodeCount() {
+        return members.size();
+    }
+    
+    // Rebuild the ring from the current members; called with the lock held
+    private void rebuild() {
+        Object[] nodes = members.values().toArray();
+        String[] ids = members.keySet().toArray(new String[0]);
+        int total = ids.length * virtualNodes;
+        long[] hashes = new long[total];
+        int position = 0;
+        for (int n = 0; n < ids.length; n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[position++] = hash(ids[n] + "#" + v);
+            }
+        }
+        // Sort the points, carrying each point's owner along
+        long[] points = new long[total];
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        int[] owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+        ring = new Ring<>(points, owners, nodes);
+    }
+    
+    /**
+     * 64-bit FNV-1a over the characters followed by a finalizer, so similar
+     * keys such as "bot1" and "bot2" land far apart on the ring
+     */
+    static long hash(CharSequence key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+    
+    private static final class Ring<N> {
+        final long[] points;  // sorted virtual point hashes
+        final int[] owners;   // node index for each point
+        final Object[] nodes;
+        
+        Ring(long[] points, int[] owners, Object[] nodes) {
+            this.points = points;
+            this.owners = owners;
+            this.nodes = nodes;
+        }
+        
+        @SuppressWarnings("unchecked")
+        N node(int index) {
+            return (N) nodes[owners[index]];
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CountMinSketch estimates how often each string has been seen in fixed
+ * memory. Estimates never undercount; with width w they overcount by at most
+ * about 2N/w with high probability, where N is the total count.
+ */
+public class CountMinSketch {
+    private final int depth;
+    private final int widthMask;
+    private final AtomicLongArray counts;
+    
+    // Width is rounded up to a power of two
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int size = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.widthMask = size - 1;
+        this.counts = new AtomicLongArray(depth * size);
+    }
+    
+    // Count one occurrence and return the new estimate
+    public long add(CharSequence key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+            estimate = Math.min(estimate, counts.incrementAndGet(index));
+        }
+        return estimate;
+    }
+    
+    public long estimate(CharSequence key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(row * (widthMask + 1) + ((h1 + row * h2) & widthMask)));
+        }
+        return estimate;
+    }
+    
+    // 64-bit FNV-1a with a finalizer; its two halves seed the row hashes
+    private static long hash(CharSequence key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
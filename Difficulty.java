@@ -0,0 +1,30 @@
+/**
+ * Difficulty tiers for generated puzzles
+ */
+public enum Difficulty {
+    EASY(1, 1, 20, 20, 100),
+    MEDIUM(2, 2, 20, 100, 400),
+    HARD(3, 3, 50, 500, 5000),
+    EXPERT(4, 5, 99, 2000, 100000);
+    
+    private final int minOperators;
+    private final int maxOperators;
+    private final int maxOperand;
+    private final int maxAnswer;
+    private final int maxIntermediate;
+    
+    Difficulty(int minOperators, int maxOperators, int maxOperand, int maxAnswer, int maxIntermediate) {
+        this.minOperators = minOperators;
+        this.maxOperators = maxOperators;
+        this.maxOperand = maxOperand;
+        this.maxAnswer = maxAnswer;
+        this.maxIntermediate = maxIntermediate;
+    }
+    
+    // Getters
+    public int getMinOperators() { return minOperators; }
+    public int getMaxOperators() { return maxOperators; }
+    public int getMaxOperand() { return maxOperand; }
+    public int getMaxAnswer() { return maxAnswer; }
+    public int getMaxIntermediate() { return maxIntermediate; }
+}
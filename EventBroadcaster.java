@@ -0,0 +1,138 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventBroadcaster fans game events out to any number of spectators.
+ * Each event is written once into a pre-allocated ring; every subscriber keeps
+ * its own cursor and reads at its own pace. Publishing never waits for
+ * subscribers: a spectator that falls a full ring behind skips ahead to the
+ * oldest event still available.
+ */
+public class EventBroadcaster {
+    public enum EventType {
+        GAME_STARTED, ROOM_COMPLETED, WRONG_ANSWER, HINT_USED, TICK, TIME_UP, VICTORY, GAME_OVER, GAME_QUIT
+    }
+    
+    private static final EventType[] TYPES = EventType.values();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    
+    private final int mask;
+    private final AtomicLong nextSequence;
+    private final AtomicLongArray published; // sequence currently stored in each slot, -1 while being written
+    private final int[] types;
+    private final int[] rooms;
+    private final int[] values;
+    private final String[] sessionIds;
+    
+    public EventBroadcaster(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.nextSequence = new AtomicLong();
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, Long.MIN_VALUE);
+        }
+        this.types = new int[size];
+        this.rooms = new int[size];
+        this.values = new int[size];
+        this.sessionIds = new String[size];
+    }
+    
+    /**
+     * Publishes one event. Safe from any thread; never blocks.
+     * @param value Event-specific number: time remaining, lives left or hints left
+     */
+    public void publish(EventType type, String sessionId, int room, int value) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) sequence & mask;
+        published.set(slot, -1);
+        VarHandle.releaseFence(); // the -1 marker must land before the new fields
+        types[slot] = type.ordinal();
+        rooms[slot] = room;
+        values[slot] = value;
+        sessionIds[slot] = sessionId;
+        published.set(slot, sequence);
+    }
+    
+    // Start reading from the next event published
+    public Subscriber subscribe() {
+        return new Subscriber(nextSequence.get());
+    }
+    
+    public long getPublishedCount() {
+        return nextSequence.get();
+    }
+    
+    /**
+     * One spectator's cursor. Not thread-safe; each subscriber is read by one thread.
+     */
+    public class Subscriber {
+        private long cursor;
+        private long dropped;
+        
+        // Fields of the event most recently returned by next
+        private long sequence;
+        private EventType type;
+        private String sessionId;
+        private int room;
+        private int value;
+        
+        private Subscriber(long cursor) {
+            this.cursor = cursor;
+        }
+        
+        /**
+         * Moves to the next event, waiting up to the timeout for one to be published.
+         * @return true if an event was read into this subscriber's fields
+         */
+        public boolean next(long timeout, TimeUnit unit) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (true) {
+                int slot = (int) cursor & mask;
+                long stored = published.get(slot);
+                if (stored == cursor) {
+                    int typeIndex = types[slot];
+                    String id = sessionIds[slot];
+                    int roomValue = rooms[slot];
+                    int eventValue = values[slot];
+                    // The slot may have been reused while we copied it
+                    VarHandle.acquireFence();
+                    if (published.get(slot) == cursor) {
+                        sequence = cursor++;
+                        type = TYPES[typeIndex];
+                        sessionId = id;
+                        room = roomValue;
+                        value = eventValue;
+                        return true;
+                    }
+                } else if (stored > cursor || cursor < nextSequence.get() - mask) {
+                    skipAhead();
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(Math.min(remaining, IDLE_PARK_NANOS));
+            }
+        }
+        
+        // The ring lapped this subscriber: jump to the oldest event that is still intact
+        private void skipAhead() {
+            long oldest = Math.max(cursor, nextSequence.get() - mask);
+            dropped += oldest - cursor;
+            cursor = oldest;
+        }
+        
+        // Events this subscriber missed because it fell too far behind
+        public long getDropped() { return dropped; }
+        public long getSequence() { return sequence; }
+        public EventType getType() { return type; }
+        public String getSessionId() { return sessionId; }
+        public int getRoom() { return room; }
+        public int getValue() { return value; }
+    }
+}
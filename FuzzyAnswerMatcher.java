@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * FuzzyAnswerMatcher accepts an answer, its synonyms and their common variants
+ * ("an echo", "echoes") exactly, and near-misses within a small edit distance.
+ * All variants are precomputed, so a query is one normalization pass, a hash
+ * lookup and, only on a miss, a banded edit-distance check per variant.
+ */
+public class FuzzyAnswerMatcher implements AnswerMatcher {
+    private static final String[] ARTICLES = {"a ", "an ", "the "};
+    
+    private final String[] terms; // the answer and synonyms as given
+    private final Set<String> variants;
+    private final char[][] variantChars;
+    private final int[] maxEdits;
+    
+    public FuzzyAnswerMatcher(String answer, String... synonyms) {
+        this.terms = new String[synonyms.length + 1];
+        terms[0] = answer;
+        System.arraycopy(synonyms, 0, terms, 1, synonyms.length);
+        this.variants = new HashSet<>();
+        addVariants(answer);
+        for (String synonym : synonyms) {
+            addVariants(synonym);
+        }
+        List<String> ordered = new ArrayList<>(variants);
+        this.variantChars = new char[ordered.size()][];
+        this.maxEdits = new int[ordered.size()];
+        for (int i = 0; i < ordered.size(); i++) {
+            variantChars[i] = ordered.get(i).toCharArray();
+            maxEdits[i] = allowedEdits(variantChars[i].length);
+        }
+    }
+    
+    @Override
+    public boolean matches(String userAnswer) {
+        if (userAnswer == null) return false;
+        String normalized = normalize(userAnswer);
+        if (normalized.isEmpty()) return false;
+        if (variants.contains(normalized)) return true;
+        
+        for (int i = 0; i < variantChars.length; i++) {
+            if (maxEdits[i] > 0 && withinDistance(normalized, variantChars[i], maxEdits[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // The answer followed by its synonyms, enough to build an equal matcher
+    public String[] getTerms() {
+        return terms.clone();
+    }
+    
+    // Typos allowed for a variant of the given length; short answers must be exact
+    static int allowedEdits(int length) {
+        if (length <= 3) return 0;
+        if (length <= 7) return 1;
+        return 2;
+    }
+    
+    private void addVariants(String text) {
+        String base = normalize(text);
+        if (base.isEmpty()) return;
+        variants.add(base);
+        // Plural forms of the last word
+        if (base.endsWith("y") && base.length() > 1) {
+            variants.add(base.substring(0, base.length() - 1) + "ies");
+        } else if (base.endsWith("s") || base.endsWith("x") || base.endsWith("ch") || base.endsWith("sh") || base.endsWith("o")) {
+            variants.add(base + "es");
+        }
+        if (!base.endsWith("s")) {
+            variants.add(base + "s");
+        }
+    }
+    
+    /**
+     * Lower-cases the text, turns punctuation into spaces, collapses runs of
+     * spaces and drops a leading article.
+     */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else if (c != '\'') {
+                pendingSpace = true;
+            }
+        }
+        for (String article : ARTICLES) {
+            if (sb.length() > article.length() && sb.indexOf(article) == 0) {
+                return sb.substring(article.length());
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Bounded Levenshtein check. Only the diagonal band of width 2k+1 is
+     * filled, and the scan stops as soon as every cell in a row exceeds k.
+     */
+    static boolean withinDistance(String text, char[] target, int k) {
+        int n = text.length();
+        int m = target.length;
+        if (Math.abs(n - m) > k) return false;
+        
+        int big = k + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= k ? j : big;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - k);
+            int to = Math.min(m, i + k);
+            current[0] = i <= k ? i : big;
+            if (from > 1) current[from - 1] = big;
+            int rowMin = current[0];
+            char c = text.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c == target[j - 1] ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(value, big);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) current[to + 1] = big;
+            if (rowMin > k) return false;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m] <= k;
+    }
+}
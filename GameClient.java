@@ -0,0 +1,128 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client for GameServer, used for loopback testing and load generation.
+ * Timer pushes that arrive while waiting for a reply are recorded, not returned.
+ */
+public class GameClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer out;
+    private final ByteBuffer in;
+    private volatile int lastTimeRemaining = -1;
+    
+    public GameClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        this.out = ByteBuffer.allocate(GameProtocol.MAX_FRAME_SIZE);
+        this.in = ByteBuffer.allocate(GameProtocol.MAX_FRAME_SIZE);
+        in.flip();
+    }
+    
+    // Returns the number of rooms in the new game
+    public int startGame(String playerName) throws IOException {
+        send(GameProtocol.START_GAME, playerName);
+        ByteBuffer reply = await(GameProtocol.START_GAME);
+        reply.get();
+        reply.getInt();
+        return reply.getInt();
+    }
+    
+    public String getRoom() throws IOException {
+        send(GameProtocol.GET_ROOM, null);
+        ByteBuffer reply = await(GameProtocol.GET_ROOM);
+        reply.getInt();
+        return GameProtocol.getString(reply);
+    }
+    
+    public boolean submitAnswer(String answer) throws IOException {
+        send(GameProtocol.SUBMIT_ANSWER, answer);
+        return await(GameProtocol.SUBMIT_ANSWER).get() == 1;
+    }
+    
+    public String useHint() throws IOException {
+        send(GameProtocol.USE_HINT, null);
+        ByteBuffer reply = await(GameProtocol.USE_HINT);
+        reply.get();
+        return GameProtocol.getString(reply);
+    }
+    
+    public void quit() throws IOException {
+        send(GameProtocol.QUIT, null);
+        await(GameProtocol.QUIT);
+    }
+    
+    public int getLastTimeRemaining() { return lastTimeRemaining; }
+    
+    private void send(byte opcode, String text) throws IOException {
+        if (text != null && GameProtocol.HEADER_SIZE + 2 + text.getBytes(StandardCharsets.UTF_8).length > out.capacity()) {
+            throw new IllegalArgumentException("Text too long for one frame: " + text.length() + " chars");
+        }
+        out.clear();
+        int start = GameProtocol.beginFrame(out, opcode);
+        if (text != null) {
+            GameProtocol.putString(out, text);
+        }
+        GameProtocol.endFrame(out, start);
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+    
+    // Read frames until the reply with the given opcode arrives; the returned buffer is positioned at its payload
+    private ByteBuffer await(byte opcode) throws IOException {
+        while (true) {
+            int length = readFrame();
+            int end = in.position() + length;
+            byte received = in.get();
+            if (received == opcode) {
+                ByteBuffer payload = in.slice();
+                payload.limit(length - 1);
+                in.position(end);
+                return payload;
+            }
+            if (received == GameProtocol.TIMER) {
+                lastTimeRemaining = in.getInt();
+            } else if (received == GameProtocol.ERROR) {
+                ByteBuffer payload = in.slice();
+                payload.limit(length - 1);
+                String message = GameProtocol.getString(payload);
+                in.position(end);
+                throw new IOException("Server error: " + message);
+            }
+            in.position(end);
+        }
+    }
+    
+    private int readFrame() throws IOException {
+        fill(4);
+        int length = in.getInt();
+        if (length < 1 || length > in.capacity() - 4) {
+            throw new IOException("Bad frame length " + length);
+        }
+        fill(length);
+        return length;
+    }
+    
+    private void fill(int needed) throws IOException {
+        if (in.remaining() >= needed) return;
+        in.compact();
+        while (in.position() < needed) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+        in.flip();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
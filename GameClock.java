@@ -0,0 +1,16 @@
+/**
+ * GameClock is the engine's only source of time. Game logic asks to be called
+ * once per game second; the system clock does that in real time, while a
+ * SimulatedGameClock steps through seconds only when told to.
+ */
+public interface GameClock {
+    /**
+     * A repeating task scheduled on a clock
+     */
+    interface Registration {
+        void cancel();
+    }
+    
+    // Run the task once every game second, starting one second from now
+    Registration everySecond(Runnable task);
+}
@@ -1,60 +1,170 @@
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * GameEngine manages the overall game state, progression, and game loop
  */
 public class GameEngine {
+    public static final int DEFAULT_TIME_LIMIT = 60; // seconds per puzzle
+    private static final int MAX_FRESH_PUZZLE_TRIES = 8; // puzzles generated before a seen one is kept anyway
+    
+    // Builds the next game's rooms for every engine that prefetches; the thread starts on first use
+    private static final Executor ROOM_PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "room-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     private Player player;
     private List<Room> rooms;
+    private RoomGraph roomGraph; // doors between rooms; room ids are indexes into rooms
     private int currentRoomIndex;
     private boolean gameRunning;
     private boolean gameWon;
-    private Timer puzzleTimer;
+    private final GameClock clock;
+    private GameClock.Registration puzzleTimer;
+    private int timerGeneration; // bumped whenever the timer is started or stopped
     private int timeLimit; // in seconds
     private int timeRemaining;
-    private UIManager uiManager;
+    private boolean countdownActive;
+    private final GameEventBus events;
+    private final ScoreKeeper scoreKeeper;
+    private Executor timerExecutor; // thread that owns game state, or null to tick on the timer thread
+    private AdaptiveDifficulty adaptiveDifficulty; // null for the fixed difficulty and time limit
+    private Supplier<CampaignGenerator.Campaign> roomSource;
+    private Executor roomPrefetchExecutor = ROOM_PREFETCH_EXECUTOR; // null to build rooms when a game starts
+    private CompletableFuture<CampaignGenerator.Campaign> nextRooms; // rooms for the next game, while prefetching
+    private boolean roomsPlayed; // the current rooms have been used by a game
+    private Function<String, PlayerStats> statsLoader; // saved stats for a new player, or null to start fresh
     
     public GameEngine() {
-        this.rooms = new ArrayList<>();
+        this(SystemGameClock.getDefault());
+    }
+    
+    // Drive the puzzle timer from the given clock, e.g. a SimulatedGameClock for bots and replays
+    public GameEngine(GameClock clock) {
+        this(clock, createRooms());
+    }
+    
+    // Start out on rooms that were already built, instead of building the hand-written ones
+    public GameEngine(CampaignGenerator.Campaign rooms) {
+        this(SystemGameClock.getDefault(), rooms);
+    }
+    
+    public GameEngine(GameClock clock, CampaignGenerator.Campaign rooms) {
+        this.clock = clock;
         this.gameRunning = false;
         this.gameWon = false;
-        this.timeLimit = 60; // 60 seconds per puzzle
+        this.timeLimit = DEFAULT_TIME_LIMIT;
         this.timeRemaining = timeLimit;
-        initializeRooms();
+        this.events = new GameEventBus();
+        // First listener, so the score already counts an event when the others hear of it
+        this.scoreKeeper = new ScoreKeeper(ScoringRules.DEFAULT);
+        events.addListener(scoreKeeper);
+        this.roomSource = GameEngine::createRooms;
+        useRooms(rooms);
     }
     
+    // Attach the Swing UI: it listens for events, and timer ticks run on the EDT
     public void setUIManager(UIManager uiManager) {
-        this.uiManager = uiManager;
+        this.timerExecutor = javax.swing.SwingUtilities::invokeLater;
+        events.addListener(uiManager);
+    }
+    
+    // Run timer ticks on the thread that owns game state, e.g. a front end's event loop; null ticks on the clock's thread
+    public void setTimerExecutor(Executor timerExecutor) {
+        this.timerExecutor = timerExecutor;
     }
     
-    // Initialize all rooms with puzzles
-    private void initializeRooms() {
+    // Let each room's difficulty and countdown follow the player's stats, or pass null for fixed settings
+    public void setAdaptiveDifficulty(AdaptiveDifficulty adaptiveDifficulty) {
+        this.adaptiveDifficulty = adaptiveDifficulty;
+        if (adaptiveDifficulty == null) {
+            this.timeLimit = DEFAULT_TIME_LIMIT;
+        }
+    }
+    
+    /**
+     * Where each game's rooms come from, e.g. a CampaignGenerator. The rooms
+     * prepared so far are dropped, and the next game uses the new source.
+     */
+    public void setRoomSource(Supplier<CampaignGenerator.Campaign> roomSource) {
+        this.roomSource = roomSource;
+        if (nextRooms != null) {
+            nextRooms.cancel(false);
+            nextRooms = null;
+        }
+        roomsPlayed = true;
+    }
+    
+    // Build the next game's rooms on this executor while a game is played, or pass null to build them at the start of each game
+    public void setRoomPrefetchExecutor(Executor executor) {
+        this.roomPrefetchExecutor = executor;
+    }
+    
+    public void setScoringRules(ScoringRules rules) {
+        scoreKeeper.setRules(rules);
+    }
+    
+    // Where final scores are ranked, or null to keep them to this engine
+    public void setLeaderboard(Leaderboard leaderboard) {
+        scoreKeeper.setLeaderboard(leaderboard);
+    }
+    
+    // Where a new player's saved stats come from, e.g. a ProfileStore; null starts every new player fresh
+    public void setStatsLoader(Function<String, PlayerStats> statsLoader) {
+        this.statsLoader = statsLoader;
+    }
+    
+    public void addListener(GameEventListener listener) {
+        events.addListener(listener);
+    }
+    
+    public void addListener(GameEventListener listener, GameEventBus.DispatchMode mode) {
+        events.addListener(listener, mode);
+    }
+    
+    public void removeListener(GameEventListener listener) {
+        events.removeListener(listener);
+    }
+    
+    // Create a fresh set of the hand-written rooms, with new puzzles where they are generated
+    public static CampaignGenerator.Campaign createRooms() {
+        List<Room> rooms = new ArrayList<>();
+        
         // Room 1: Welcome Room - Riddle
         Room room1 = new Room(0, "The Entrance", 
             "You find yourself in a dimly lit entrance hall. Ancient symbols cover the walls, and a single door stands before you.",
             new java.awt.Color(139, 69, 19)); // Brown
-        room1.setPuzzle(new RiddlePuzzle(
+        Puzzle riddle = new RiddlePuzzle(
             "I speak without a mouth and hear without ears. I have no body, but come alive with wind. What am I?",
             "echo",
             "Think about what happens when you shout in a canyon..."
-        ));
+        );
+        riddle.setAnswerMatcher(new FuzzyAnswerMatcher("echo", "reverberation"));
+        room1.setPuzzle(riddle);
+        room1.setBackgroundImagePath("images/room1.png");
         rooms.add(room1);
         
         // Room 2: Caesar Cipher Room
         Room room2 = new Room(1, "The Cipher Chamber",
             "The door creaks open to reveal a chamber filled with ancient scrolls. Cryptic messages line the walls.",
             new java.awt.Color(75, 0, 130)); // Indigo
-        String caesarText = CipherUtils.caesarEncrypt("OPEN THE DOOR", 3);
+        int shift = CipherUtils.generateCaesarShift();
+        String caesarText = CipherUtils.caesarEncrypt("OPEN THE DOOR", shift);
         room2.setPuzzle(new CaesarCipherPuzzle(
             caesarText,
             "OPEN THE DOOR",
-            "Each letter is shifted by 3 positions in the alphabet",
-            3
+            "Each letter is shifted by " + shift + " positions in the alphabet",
+            shift
         ));
         room2.addRequiredItem("key");
+        room2.setBackgroundImagePath("images/room2.png");
         rooms.add(room2);
         
         // Room 3: Math Puzzle Room
@@ -67,18 +177,22 @@ public class GameEngine {
             mathPuzzle[1],
             "Remember your basic arithmetic operations"
         ));
+        room3.setBackgroundImagePath("images/room3.png");
         rooms.add(room3);
         
         // Room 4: Word Scramble Room
         Room room4 = new Room(3, "The Word Vault",
             "Bookshelves line every wall, filled with scrambled words. A single word holds the key to freedom.",
             new java.awt.Color(128, 0, 128)); // Purple
-        String scrambledWord = CipherUtils.scrambleWord("FREEDOM");
+        WordDictionary dictionary = WordDictionary.getDefault();
+        String scrambledWord = CipherUtils.scrambleWord("FREEDOM", dictionary);
         room4.setPuzzle(new WordScramblePuzzle(
             scrambledWord,
             "FREEDOM",
-            "The word has 7 letters and means liberation"
+            "The word has 7 letters and means liberation",
+            dictionary
         ));
+        room4.setBackgroundImagePath("images/room4.png");
         rooms.add(room4);
         
         // Room 5: Substitution Cipher Room
@@ -93,23 +207,108 @@ public class GameEngine {
             "Each letter is replaced with another letter according to a pattern",
             subKey
         ));
+        room5.setBackgroundImagePath("images/room5.png");
         rooms.add(room5);
+        
+        // The hand-written campaign is a single corridor
+        RoomGraph.Builder graph = new RoomGraph.Builder();
+        for (Room room : rooms) {
+            graph.addRoom(room);
+        }
+        for (int i = 0; i + 1 < rooms.size(); i++) {
+            graph.addDoor(i, i + 1);
+        }
+        graph.setStartItems(1L << graph.itemId("key"));
+        return new CampaignGenerator.Campaign(rooms, graph.build());
+    }
+    
+    private void useRooms(CampaignGenerator.Campaign campaign) {
+        this.rooms = campaign.getRooms();
+        this.roomGraph = campaign.getGraph();
+    }
+    
+    /**
+     * Swap in unplayed rooms if the current ones have been used, then start
+     * preparing the rooms for the game after this one.
+     */
+    private void refreshRooms() {
+        if (roomsPlayed) {
+            CompletableFuture<CampaignGenerator.Campaign> prefetched = nextRooms;
+            nextRooms = null;
+            useRooms(prefetched != null ? prefetched.join() : roomSource.get());
+        }
+        roomsPlayed = true;
+        if (roomPrefetchExecutor != null) {
+            nextRooms = CompletableFuture.supplyAsync(roomSource, roomPrefetchExecutor);
+        }
     }
     
     // Start a new game
     public void startNewGame(String playerName) {
-        this.player = new Player(playerName);
-        this.currentRoomIndex = 0;
+        // The same player playing again keeps their stats
+        boolean samePlayer = player != null && player.getName().equals(playerName);
+        PlayerStats stats;
+        if (samePlayer) {
+            stats = player.getStats();
+        } else {
+            stats = statsLoader != null ? statsLoader.apply(playerName) : new PlayerStats();
+        }
+        refreshRooms();
+        beginGame(playerName, stats);
+    }
+    
+    // Start a game on rooms and stats prepared elsewhere, e.g. by a SessionBootstrap
+    public void startNewGame(String playerName, CampaignGenerator.Campaign campaign, PlayerStats stats) {
+        useRooms(campaign);
+        roomsPlayed = true;
+        beginGame(playerName, stats);
+    }
+    
+    private void beginGame(String playerName, PlayerStats stats) {
+        this.player = new Player(playerName, stats);
+        this.currentRoomIndex = roomGraph.getStartRoom();
         this.gameRunning = true;
         this.gameWon = false;
+        prepareRoom(getCurrentRoom());
         this.timeRemaining = timeLimit;
         
         // Give player starting items
-        player.addItem("key");
+        long startItems = roomGraph.getStartItems();
+        for (int id = 0; id < roomGraph.getItemKindCount(); id++) {
+            if ((startItems & (1L << id)) != 0) {
+                player.addItem(roomGraph.getItemName(id));
+            }
+        }
         
-        if (uiManager != null) {
-            uiManager.showGameScreen();
-            uiManager.updateHUD();
+        events.onGameStarted(playerName);
+    }
+    
+    // Adapt the room to the player before they enter it
+    private void prepareRoom(Room room) {
+        if (adaptiveDifficulty != null && room != null) {
+            timeLimit = adaptiveDifficulty.prepareRoom(room, player.getStats());
+        } else if (room != null && room.getPuzzle() != null) {
+            replaceSeenPuzzle(room, player.getStats().getSeenPuzzles());
+        }
+        if (room != null && room.getPuzzle() != null) {
+            player.getStats().getSeenPuzzles().add(room.getPuzzle().fingerprint());
+        }
+    }
+    
+    /**
+     * Give a math room a fresh puzzle if the player has seen its one before.
+     * Other kinds of puzzle are written for their room, so they are kept.
+     */
+    private static void replaceSeenPuzzle(Room room, PuzzleFilter seen) {
+        Puzzle puzzle = room.getPuzzle();
+        if (puzzle.getType() != Puzzle.PuzzleType.MATH || puzzle.isSolved()) return;
+        Puzzle fresh = puzzle;
+        for (int tries = 0; tries < MAX_FRESH_PUZZLE_TRIES && seen.mightContain(fresh.fingerprint()); tries++) {
+            String[] math = CipherUtils.generateMathPuzzle();
+            fresh = new MathPuzzle(math[0], math[1], puzzle.getHint());
+        }
+        if (fresh != puzzle) {
+            room.setPuzzle(fresh);
         }
     }
     
@@ -121,8 +320,11 @@ public class GameEngine {
         return null;
     }
     
-    // Submit answer for current puzzle
+    // Submit answer for current puzzle; once the game has ended, answers are ignored
     public boolean submitAnswer(String answer) {
+        if (!gameRunning) {
+            return false;
+        }
         Room currentRoom = getCurrentRoom();
         if (currentRoom == null || currentRoom.getPuzzle() == null) {
             return false;
@@ -130,48 +332,72 @@ public class GameEngine {
         
         if (currentRoom.getPuzzle().validateAnswer(answer)) {
             // Correct answer
+            player.getStats().recordSolve(timeLimit - timeRemaining, timeLimit);
             currentRoom.complete();
+            if (currentRoom.getRewardItem() != null) {
+                player.addItem(currentRoom.getRewardItem());
+            }
             stopTimer();
+            events.onRoomCompleted(currentRoomIndex, timeRemaining);
             
-            if (currentRoomIndex == rooms.size() - 1) {
-                // Last room completed - player wins!
+            int next = getNextRoomIndex();
+            if (roomGraph.isExit(currentRoomIndex)) {
+                // Exit room completed - player wins!
                 gameWon = true;
                 gameRunning = false;
-                if (uiManager != null) {
-                    uiManager.showVictoryScreen();
-                }
+                events.onVictory(player.getLives());
+            } else if (next < 0) {
+                // Every door out of this room needs an item the player doesn't have
+                gameRunning = false;
+                events.onGameOver(currentRoomIndex);
             } else {
                 // Move to next room
-                currentRoomIndex++;
+                currentRoomIndex = next;
                 Room nextRoom = getCurrentRoom();
-                if (nextRoom != null) {
-                    nextRoom.setUnlocked(true);
-                }
-                if (uiManager != null) {
-                    uiManager.updateHUD();
-                    uiManager.showRoomTransition();
-                }
+                nextRoom.setUnlocked(true);
+                prepareRoom(nextRoom);
+                events.onRoomEntered(currentRoomIndex);
             }
             return true;
         } else {
             // Wrong answer - lose a life
+            player.getStats().recordWrongAnswer();
             player.loseLife();
-            if (uiManager != null) {
-                uiManager.updateHUD();
-                uiManager.showWrongAnswerMessage();
-            }
+            events.onWrongAnswer(currentRoomIndex, answer, player.getLives());
             
             if (!player.isAlive()) {
                 // Game over
                 gameRunning = false;
-                if (uiManager != null) {
-                    uiManager.showGameOverScreen();
-                }
+                events.onGameOver(currentRoomIndex);
             }
             return false;
         }
     }
     
+    // The room the player would move to from the current one, or -1 if every door is locked
+    public int getNextRoomIndex() {
+        if (player == null || currentRoomIndex >= rooms.size()) return -1;
+        return roomGraph.nextRoom(currentRoomIndex, roomGraph.itemMask(player.getInventory()));
+    }
+    
+    // Resume a game captured elsewhere, on its own rooms, or on this engine's if campaign is null
+    void restore(Player player, CampaignGenerator.Campaign campaign, int currentRoomIndex, boolean gameRunning,
+                 boolean gameWon, int timeLimit, int timeRemaining, boolean countdownActive, long score) {
+        stopTimer();
+        if (campaign != null) {
+            useRooms(campaign);
+        }
+        this.roomsPlayed = true;
+        this.timeLimit = timeLimit;
+        this.player = player;
+        this.currentRoomIndex = currentRoomIndex;
+        this.gameRunning = gameRunning;
+        this.gameWon = gameWon;
+        this.timeRemaining = timeRemaining;
+        this.countdownActive = countdownActive;
+        scoreKeeper.restore(player.getName(), score);
+    }
+    
     // Use hint for current puzzle
     public String useHint() {
         if (!player.hasHints()) {
@@ -181,9 +407,7 @@ public class GameEngine {
         if (player.useHint()) {
             Room currentRoom = getCurrentRoom();
             if (currentRoom != null && currentRoom.getPuzzle() != null) {
-                if (uiManager != null) {
-                    uiManager.updateHUD();
-                }
+                events.onHintUsed(currentRoomIndex, player.getHints());
                 return currentRoom.getPuzzle().getHint();
             }
         }
@@ -193,39 +417,57 @@ public class GameEngine {
     // Start puzzle timer
     public void startTimer() {
         stopTimer(); // Stop any existing timer
-        timeRemaining = timeLimit;
+        resetCountdown();
         
-        puzzleTimer = new Timer();
-        puzzleTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                timeRemaining--;
-                if (uiManager != null) {
-                    uiManager.updateTimer(timeRemaining);
-                }
-                
-                if (timeRemaining <= 0) {
-                    // Time's up - lose a life
-                    player.loseLife();
-                    if (uiManager != null) {
-                        uiManager.updateHUD();
-                        uiManager.showTimeUpMessage();
-                    }
-                    
-                    if (!player.isAlive()) {
-                        gameRunning = false;
-                        if (uiManager != null) {
-                            uiManager.showGameOverScreen();
-                        }
-                    }
-                    stopTimer();
+        int generation = ++timerGeneration;
+        puzzleTimer = clock.everySecond(() -> {
+            if (timerExecutor == null) {
+                tick();
+                return;
+            }
+            // Only the owning thread may touch game state;
+            // drop ticks from a timer that was replaced before they got there
+            timerExecutor.execute(() -> {
+                if (timerGeneration == generation) {
+                    tick();
                 }
+            });
+        });
+    }
+    
+    // Restart the countdown for the current puzzle without scheduling a timer
+    public void resetCountdown() {
+        timeRemaining = timeLimit;
+        countdownActive = true;
+    }
+    
+    // Advance the countdown by one second
+    public void tick() {
+        if (!gameRunning || !countdownActive) {
+            return;
+        }
+        
+        timeRemaining--;
+        events.onTimerTick(timeRemaining);
+        
+        if (timeRemaining <= 0) {
+            // Time's up - lose a life
+            player.getStats().recordTimeUp();
+            player.loseLife();
+            stopTimer();
+            events.onTimeUp(currentRoomIndex, player.getLives());
+            
+            if (!player.isAlive()) {
+                gameRunning = false;
+                events.onGameOver(currentRoomIndex);
             }
-        }, 1000, 1000); // Update every second
+        }
     }
     
     // Stop puzzle timer
     public void stopTimer() {
+        countdownActive = false;
+        timerGeneration++;
         if (puzzleTimer != null) {
             puzzleTimer.cancel();
             puzzleTimer = null;
@@ -234,19 +476,27 @@ public class GameEngine {
     
     // Quit game
     public void quitGame() {
+        boolean wasRunning = gameRunning;
         gameRunning = false;
         stopTimer();
-        if (uiManager != null) {
-            uiManager.showMainMenu();
+        if (wasRunning) {
+            events.onGameQuit(currentRoomIndex);
         }
     }
     
     // Getters
     public Player getPlayer() { return player; }
     public List<Room> getRooms() { return rooms; }
+    public RoomGraph getRoomGraph() { return roomGraph; }
     public boolean isGameRunning() { return gameRunning; }
     public boolean isGameWon() { return gameWon; }
     public int getTimeRemaining() { return timeRemaining; }
+    public int getTimeLimit() { return timeLimit; }
+    public boolean isCountdownActive() { return countdownActive; }
     public int getCurrentRoomIndex() { return currentRoomIndex; }
     public int getTotalRooms() { return rooms.size(); }
+    public GameClock getClock() { return clock; }
+    public long getScore() { return scoreKeeper.getScore(); }
+    public ScoringRules getScoringRules() { return scoreKeeper.getRules(); }
+    public Leaderboard getLeaderboard() { return scoreKeeper.getLeaderboard(); }
 }
@@ -0,0 +1,203 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * GameEventBus fans engine events out to its listeners. Synchronous listeners
+ * run inline on the engine's thread; asynchronous ones get their own mailbox
+ * that is drained in batches on an executor, so a slow subscriber never
+ * delays the engine.
+ */
+public class GameEventBus implements GameEventListener {
+    public enum DispatchMode {
+        SYNC, ASYNC
+    }
+    
+    private static final int BATCH_SIZE = 256;
+    private static volatile ExecutorService defaultExecutor;
+    
+    private final List<GameEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final Executor asyncExecutor;
+    
+    public GameEventBus() {
+        this(null);
+    }
+    
+    // Async listeners are drained on the given executor, or a shared daemon pool if null
+    public GameEventBus(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+    
+    public void addListener(GameEventListener listener) {
+        addListener(listener, DispatchMode.SYNC);
+    }
+    
+    public void addListener(GameEventListener listener, DispatchMode mode) {
+        if (mode == DispatchMode.ASYNC) {
+            listeners.add(new AsyncListener(listener, asyncExecutor != null ? asyncExecutor : sharedExecutor()));
+        } else {
+            listeners.add(listener);
+        }
+    }
+    
+    public void removeListener(GameEventListener listener) {
+        listeners.removeIf(registered -> registered == listener
+            || (registered instanceof AsyncListener && ((AsyncListener) registered).target == listener));
+    }
+    
+    private static ExecutorService sharedExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (GameEventBus.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "game-event-dispatch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
+    @Override
+    public void onGameStarted(String playerName) {
+        for (GameEventListener listener : listeners) listener.onGameStarted(playerName);
+    }
+    
+    @Override
+    public void onRoomCompleted(int roomIndex, int timeRemaining) {
+        for (GameEventListener listener : listeners) listener.onRoomCompleted(roomIndex, timeRemaining);
+    }
+    
+    @Override
+    public void onRoomEntered(int roomIndex) {
+        for (GameEventListener listener : listeners) listener.onRoomEntered(roomIndex);
+    }
+    
+    @Override
+    public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+        for (GameEventListener listener : listeners) listener.onWrongAnswer(roomIndex, answer, livesLeft);
+    }
+    
+    @Override
+    public void onHintUsed(int roomIndex, int hintsLeft) {
+        for (GameEventListener listener : listeners) listener.onHintUsed(roomIndex, hintsLeft);
+    }
+    
+    @Override
+    public void onTimerTick(int timeRemaining) {
+        for (GameEventListener listener : listeners) listener.onTimerTick(timeRemaining);
+    }
+    
+    @Override
+    public void onTimeUp(int roomIndex, int livesLeft) {
+        for (GameEventListener listener : listeners) listener.onTimeUp(roomIndex, livesLeft);
+    }
+    
+    @Override
+    public void onVictory(int livesLeft) {
+        for (GameEventListener listener : listeners) listener.onVictory(livesLeft);
+    }
+    
+    @Override
+    public void onGameOver(int roomIndex) {
+        for (GameEventListener listener : listeners) listener.onGameOver(roomIndex);
+    }
+    
+    @Override
+    public void onGameQuit(int roomIndex) {
+        for (GameEventListener listener : listeners) listener.onGameQuit(roomIndex);
+    }
+    
+    /**
+     * Queues events for one listener and delivers them in order, in batches,
+     * from at most one executor thread at a time.
+     */
+    private static class AsyncListener implements GameEventListener {
+        private final GameEventListener target;
+        private final Executor executor;
+        private final MpscMailbox<Consumer<GameEventListener>> mailbox = new MpscMailbox<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        AsyncListener(GameEventListener target, Executor executor) {
+            this.target = target;
+            this.executor = executor;
+        }
+        
+        private void enqueue(Consumer<GameEventListener> event) {
+            mailbox.offer(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            try {
+                mailbox.drain(event -> event.accept(target), BATCH_SIZE);
+            } finally {
+                scheduled.set(false);
+                if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+        
+        @Override
+        public void onGameStarted(String playerName) {
+            enqueue(listener -> listener.onGameStarted(playerName));
+        }
+        
+        @Override
+        public void onRoomCompleted(int roomIndex, int timeRemaining) {
+            enqueue(listener -> listener.onRoomCompleted(roomIndex, timeRemaining));
+        }
+        
+        @Override
+        public void onRoomEntered(int roomIndex) {
+            enqueue(listener -> listener.onRoomEntered(roomIndex));
+        }
+        
+        @Override
+        public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+            enqueue(listener -> listener.onWrongAnswer(roomIndex, answer, livesLeft));
+        }
+        
+        @Override
+        public void onHintUsed(int roomIndex, int hintsLeft) {
+            enqueue(listener -> listener.onHintUsed(roomIndex, hintsLeft));
+        }
+        
+        @Override
+        public void onTimerTick(int timeRemaining) {
+            enqueue(listener -> listener.onTimerTick(timeRemaining));
+        }
+        
+        @Override
+        public void onTimeUp(int roomIndex, int livesLeft) {
+            enqueue(listener -> listener.onTimeUp(roomIndex, livesLeft));
+        }
+        
+        @Override
+        public void onVictory(int livesLeft) {
+            enqueue(listener -> listener.onVictory(livesLeft));
+        }
+        
+        @Override
+        public void onGameOver(int roomIndex) {
+            enqueue(listener -> listener.onGameOver(roomIndex));
+        }
+        
+        @Override
+        public void onGameQuit(int roomIndex) {
+            enqueue(listener -> listener.onGameQuit(roomIndex));
+        }
+    }
+}
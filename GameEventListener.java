@@ -0,0 +1,27 @@
+/**
+ * GameEventListener receives game events from a GameEngine.
+ * All methods have empty defaults so listeners only override what they need.
+ * Events carry plain values, so asynchronous listeners never have to read
+ * engine state from another thread.
+ */
+public interface GameEventListener {
+    default void onGameStarted(String playerName) {}
+    
+    default void onRoomCompleted(int roomIndex, int timeRemaining) {}
+    
+    default void onRoomEntered(int roomIndex) {}
+    
+    default void onWrongAnswer(int roomIndex, String answer, int livesLeft) {}
+    
+    default void onHintUsed(int roomIndex, int hintsLeft) {}
+    
+    default void onTimerTick(int timeRemaining) {}
+    
+    default void onTimeUp(int roomIndex, int livesLeft) {}
+    
+    default void onVictory(int livesLeft) {}
+    
+    default void onGameOver(int roomIndex) {}
+    
+    default void onGameQuit(int roomIndex) {}
+}
@@ -0,0 +1,76 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary wire protocol shared by GameServer and GameClient.
+ * Every frame is [int length][byte opcode][payload], where length counts the
+ * opcode and payload. Strings are [unsigned short length][UTF-8 bytes].
+ */
+public class GameProtocol {
+    // Client requests; the server answers with a frame carrying the same opcode
+    public static final byte START_GAME = 1;     // name                -> byte ok, int roomIndex, int totalRooms
+    public static final byte GET_ROOM = 2;       //                     -> int roomIndex, string description
+    public static final byte SUBMIT_ANSWER = 3;  // answer              -> byte correct, byte lives, byte state
+    public static final byte USE_HINT = 4;       //                     -> byte hints, string hint
+    public static final byte QUIT = 5;           //                     -> (empty)
+    
+    // Server pushes
+    public static final byte TIMER = 16;         // int timeRemaining, byte lives, byte state
+    public static final byte ERROR = 127;        // string message
+    
+    // Game states carried in SUBMIT_ANSWER replies and TIMER pushes
+    public static final byte STATE_RUNNING = 0;
+    public static final byte STATE_WON = 1;
+    public static final byte STATE_LOST = 2;
+    
+    public static final int HEADER_SIZE = 5;
+    public static final int MAX_FRAME_SIZE = 8192;
+    
+    private GameProtocol() {
+    }
+    
+    public static byte stateOf(GameEngine engine) {
+        if (engine.isGameWon()) return STATE_WON;
+        return engine.isGameRunning() ? STATE_RUNNING : STATE_LOST;
+    }
+    
+    // Start a frame; the length is patched in by endFrame. Returns the frame's start position.
+    public static int beginFrame(ByteBuffer buffer, byte opcode) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put(opcode);
+        return start;
+    }
+    
+    public static void endFrame(ByteBuffer buffer, int start) {
+        buffer.putInt(start, buffer.position() - start - 4);
+    }
+    
+    public static void putString(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+    
+    /**
+     * Reads a string ending at or before the buffer's limit; callers set the
+     * limit to the end of the frame, so a bad length can't read into the next.
+     * @throws BufferUnderflowException if the length runs past the limit
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+    
+    // Worst-case encoded size of a string, for capacity checks before writing
+    public static int stringSize(String text) {
+        return 2 + Math.min(text.length() * 3, 0xFFFF);
+    }
+}
@@ -0,0 +1,464 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GameServer exposes hosted sessions over TCP using the GameProtocol framing.
+ * A few selector event loops own all connections; engine work happens on the
+ * session actors and results are handed back to the owning loop to be written.
+ */
+public class GameServer {
+    private static final int READ_BUFFER_SIZE = GameProtocol.MAX_FRAME_SIZE;
+    private static final int WRITE_BUFFER_SIZE = 2048;
+    private static final int MAX_WRITE_BUFFER_SIZE = 64 * 1024;
+    
+    private final SessionHost host;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private int nextLoop;
+    private volatile boolean running;
+    
+    public GameServer(SessionHost host, int port, int loopCount) throws IOException {
+        this.host = host;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 4096);
+        serverChannel.configureBlocking(false);
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int loopCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SessionHost host = new SessionHost(SessionHost.ExecutionMode.VIRTUAL_THREADS, loopCount);
+        host.setAdaptiveDifficulty(new AdaptiveDifficulty(new PuzzlePool()));
+        GameServer server = new GameServer(host, port, loopCount);
+        server.start();
+        System.out.println("Escape Room server listening on port " + server.getPort());
+    }
+    
+    public void start() throws IOException {
+        running = true;
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+    
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    public void stop() {
+        running = false;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing server socket: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * One selector thread. Other threads hand it work through a lock-free
+     * task mailbox and a single wakeup per batch of tasks.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final MpscMailbox<Runnable> tasks;
+        private final AtomicBoolean wakeupPending;
+        private final List<Connection> pendingFlush;
+        
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "game-server-loop-" + index);
+            this.tasks = new MpscMailbox<>();
+            this.wakeupPending = new AtomicBoolean();
+            this.pendingFlush = new ArrayList<>();
+        }
+        
+        void execute(Runnable task) {
+            tasks.offer(task);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+        
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    System.err.println("Selector failed: " + e.getMessage());
+                    break;
+                }
+                wakeupPending.set(false);
+                tasks.drain(Runnable::run, Integer.MAX_VALUE);
+                
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        acceptAll();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) connection.read();
+                        if (key.isValid() && key.isWritable()) connection.flush();
+                    }
+                }
+                selector.selectedKeys().clear();
+                
+                // Flush everything written during this iteration with one write per connection
+                for (Connection connection : pendingFlush) {
+                    connection.flush();
+                }
+                pendingFlush.clear();
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing selector: " + e.getMessage());
+            }
+        }
+        
+        private void acceptAll() {
+            try {
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    EventLoop target = loops[nextLoop];
+                    nextLoop = (nextLoop + 1) % loops.length;
+                    SocketChannel accepted = channel;
+                    if (target == this) {
+                        register(accepted);
+                    } else {
+                        target.execute(() -> target.register(accepted));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Accept failed: " + e.getMessage());
+            }
+        }
+        
+        private void register(SocketChannel channel) {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                System.err.println("Could not register connection: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Per-connection state. Only the owning event loop touches the buffers.
+     */
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private ByteBuffer out;
+        private SelectionKey key;
+        private GameSession session;
+        private GameEventListener timerListener;
+        private boolean starting; // a START_GAME is in flight; later frames wait in the read buffer
+        private boolean flushQueued;
+        private boolean closed;
+        
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            this.out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        }
+        
+        void read() {
+            try {
+                if (channel.read(in) < 0) {
+                    close();
+                    return;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            handleFrames();
+        }
+        
+        // Handle every whole frame in the read buffer, stopping early while a game is starting
+        private void handleFrames() {
+            in.flip();
+            while (in.remaining() >= 4 && !starting) {
+                int length = in.getInt(in.position());
+                if (length < 1 || length > in.capacity() - 4) {
+                    close();
+                    return;
+                }
+                if (in.remaining() < 4 + length) break;
+                int limit = in.limit();
+                int end = in.position() + 4 + length;
+                // Fields are read up to the end of this frame and no further
+                in.position(in.position() + 4).limit(end);
+                try {
+                    handle(in.get());
+                } catch (RuntimeException e) {
+                    // A malformed frame costs only this connection, never the loop
+                    sendError("Malformed frame");
+                    flush();
+                    close();
+                }
+                if (closed) return;
+                in.limit(limit).position(end);
+            }
+            in.compact();
+            updateInterest();
+        }
+        
+        private void handle(byte opcode) {
+            if (opcode != GameProtocol.START_GAME && session == null) {
+                sendError("Start a game first");
+                return;
+            }
+            GameSession current = session;
+            switch (opcode) {
+                case GameProtocol.START_GAME:
+                    startGame(GameProtocol.getString(in));
+                    break;
+                case GameProtocol.GET_ROOM:
+                    // Commands from one thread are applied in order, so both replies describe the same turn
+                    CompletableFuture<Integer> roomIndex = current.query(GameEngine::getCurrentRoomIndex);
+                    current.describeRoom().thenCombine(roomIndex, (description, index) -> {
+                        reply(() -> {
+                            int start = beginFrame(GameProtocol.GET_ROOM, 4 + GameProtocol.stringSize(description));
+                            if (start < 0) return;
+                            out.putInt(index);
+                            GameProtocol.putString(out, description);
+                            endFrame(start);
+                        });
+                        return null;
+                    }).exceptionally(this::sessionFailed);
+                    break;
+                case GameProtocol.SUBMIT_ANSWER:
+                    CompletableFuture<Boolean> correct = current.submitAnswer(GameProtocol.getString(in));
+                    CompletableFuture<byte[]> status = current.query(engine ->
+                        new byte[]{(byte) engine.getPlayer().getLives(), GameProtocol.stateOf(engine)});
+                    correct.thenCombine(status, (accepted, livesAndState) -> {
+                        reply(() -> {
+                            int start = beginFrame(GameProtocol.SUBMIT_ANSWER, 3);
+                            if (start < 0) return;
+                            out.put((byte) (accepted ? 1 : 0));
+                            out.put(livesAndState);
+                            endFrame(start);
+                        });
+                        return null;
+                    }).exceptionally(this::sessionFailed);
+                    break;
+                case GameProtocol.USE_HINT:
+                    CompletableFuture<Integer> hints = current.query(engine -> engine.getPlayer().getHints());
+                    current.useHint().thenCombine(hints, (hint, remaining) -> {
+                        reply(() -> {
+                            int start = beginFrame(GameProtocol.USE_HINT, 1 + GameProtocol.stringSize(hint));
+                            if (start < 0) return;
+                            out.put((byte) (int) remaining);
+                            GameProtocol.putString(out, hint);
+                            endFrame(start);
+                        });
+                        return null;
+                    }).exceptionally(this::sessionFailed);
+                    break;
+                case GameProtocol.QUIT:
+                    endSession();
+                    int start = beginFrame(GameProtocol.QUIT, 0);
+                    if (start >= 0) endFrame(start);
+                    break;
+                default:
+                    sendError("Unknown opcode " + opcode);
+            }
+        }
+        
+        /**
+         * Sessions take a while to start, so the loop carries on with other
+         * connections. This one stops reading until the reply is written, so
+         * frames sent after START_GAME still apply to the new game, in order.
+         */
+        private void startGame(String playerName) {
+            endSession();
+            starting = true;
+            host.startSessionAsync(playerName).whenComplete((started, error) ->
+                loop.execute(() -> sessionStarted(started, error)));
+        }
+        
+        private void sessionStarted(GameSession started, Throwable error) {
+            starting = false;
+            if (closed) {
+                // The client left while the game was starting
+                if (started != null) started.send(SessionCommand.quit());
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                sendError(cause.getMessage());
+            } else {
+                attach(started);
+            }
+            handleFrames();
+        }
+        
+        private void attach(GameSession started) {
+            session = started;
+            GameEngine engine = started.getEngine();
+            // Runs on the session's actor thread; the frame itself is written by this connection's loop
+            timerListener = new GameEventListener() {
+                @Override
+                public void onTimerTick(int timeRemaining) {
+                    if (timeRemaining > 0) {
+                        byte lives = (byte) engine.getPlayer().getLives();
+                        loop.execute(() -> pushTimer(timeRemaining, lives, GameProtocol.STATE_RUNNING));
+                    }
+                }
+                
+                @Override
+                public void onTimeUp(int roomIndex, int livesLeft) {
+                    byte state = livesLeft > 0 ? GameProtocol.STATE_RUNNING : GameProtocol.STATE_LOST;
+                    loop.execute(() -> pushTimer(0, (byte) livesLeft, state));
+                }
+            };
+            started.addListener(timerListener, GameEventBus.DispatchMode.SYNC);
+            // Rooms are ints on the wire: generated campaigns run to thousands of rooms
+            int start = beginFrame(GameProtocol.START_GAME, 9);
+            if (start < 0) return;
+            out.put((byte) 1);
+            out.putInt(started.getEngine().getCurrentRoomIndex());
+            out.putInt(started.getEngine().getTotalRooms());
+            endFrame(start);
+        }
+        
+        private void pushTimer(int timeRemaining, byte lives, byte state) {
+            int start = beginFrame(GameProtocol.TIMER, 6);
+            if (start < 0) return;
+            out.putInt(timeRemaining);
+            out.put(lives);
+            out.put(state);
+            endFrame(start);
+        }
+        
+        private void sendError(String message) {
+            int start = beginFrame(GameProtocol.ERROR, GameProtocol.stringSize(message));
+            if (start < 0) return;
+            GameProtocol.putString(out, message);
+            endFrame(start);
+        }
+        
+        // Write a reply from the connection's own loop
+        private void reply(Runnable write) {
+            loop.execute(write);
+        }
+        
+        private Void sessionFailed(Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            // A refused command, e.g. an answer after the game ended, leaves the session open
+            String message = cause instanceof IllegalStateException ? cause.getMessage() : "Session closed";
+            reply(() -> sendError(message));
+            return null;
+        }
+        
+        // Reserve room for a frame, growing the write buffer for slow readers up to a cap
+        private int beginFrame(byte opcode, int payloadSize) {
+            if (closed) return -1;
+            int needed = GameProtocol.HEADER_SIZE + payloadSize;
+            if (out.remaining() < needed) {
+                int capacity = out.capacity();
+                while (capacity - out.position() < needed) capacity *= 2;
+                if (capacity > MAX_WRITE_BUFFER_SIZE) {
+                    // The client is not reading; drop it rather than buffer without bound
+                    close();
+                    return -1;
+                }
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            return GameProtocol.beginFrame(out, opcode);
+        }
+        
+        private void endFrame(int start) {
+            GameProtocol.endFrame(out, start);
+            if (!flushQueued) {
+                flushQueued = true;
+                loop.pendingFlush.add(this);
+            }
+        }
+        
+        void flush() {
+            flushQueued = false;
+            if (closed) return;
+            try {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            updateInterest();
+        }
+        
+        // Read unless a game is starting; write while output is waiting
+        private void updateInterest() {
+            if (closed) return;
+            int interest = (starting ? 0 : SelectionKey.OP_READ) | (out.position() > 0 ? SelectionKey.OP_WRITE : 0);
+            if (key.interestOps() != interest) {
+                key.interestOps(interest);
+            }
+        }
+        
+        private void endSession() {
+            if (session != null) {
+                session.removeListener(timerListener);
+                timerListener = null;
+                session.send(SessionCommand.quit());
+                session = null;
+            }
+        }
+        
+        void close() {
+            if (closed) return;
+            closed = true;
+            endSession();
+            if (key != null) key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+}
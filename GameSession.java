@@ -0,0 +1,231 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * GameSession drives one hosted game as a single-writer actor: any thread may
+ * send commands, but only one drain at a time ever touches the GameEngine
+ */
+public class GameSession {
+    private static final int BATCH_SIZE = 64;
+    
+    private final String id;
+    private final GameEngine engine;
+    private final Executor executor;
+    private final MpscMailbox<SessionCommand> mailbox;
+    private final AtomicBoolean scheduled;
+    private volatile boolean closed;
+    private volatile int leaderboardRank; // the player's rank when the game started, 0 if unranked
+    private Runnable closeListener;
+    
+    // Start a game on rooms and stats that were prepared before the session was created
+    public GameSession(String id, String playerName, CampaignGenerator.Campaign rooms, PlayerStats stats, Executor executor) {
+        this.id = id;
+        this.engine = new GameEngine(rooms);
+        this.executor = executor;
+        this.mailbox = new MpscMailbox<>();
+        this.scheduled = new AtomicBoolean();
+        engine.setRoomPrefetchExecutor(null); // a hosted session plays a single game
+        engine.startNewGame(playerName, rooms, stats);
+        engine.resetCountdown();
+    }
+    
+    // Resume a game frozen on another node
+    public GameSession(String id, SessionSnapshot snapshot, Executor executor) {
+        this.id = id;
+        this.engine = snapshot.restore();
+        this.executor = executor;
+        this.mailbox = new MpscMailbox<>();
+        this.scheduled = new AtomicBoolean();
+        engine.setRoomPrefetchExecutor(null);
+    }
+    
+    public void setLeaderboardRank(int leaderboardRank) {
+        this.leaderboardRank = leaderboardRank;
+    }
+    
+    public void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
+    }
+    
+    // Publish this session's game events for spectators
+    public void setBroadcaster(EventBroadcaster broadcaster) {
+        engine.addListener(new BroadcastListener(broadcaster));
+    }
+    
+    /**
+     * Subscribes to the engine's events. Synchronous listeners run on the
+     * session's actor thread, so they may read the engine directly.
+     */
+    public void addListener(GameEventListener listener, GameEventBus.DispatchMode mode) {
+        engine.addListener(listener, mode);
+    }
+    
+    public void removeListener(GameEventListener listener) {
+        engine.removeListener(listener);
+    }
+    
+    // Queue a command; its reply completes once the actor has applied it
+    public CompletableFuture<Object> send(SessionCommand command) {
+        if (closed) {
+            command.getReply().cancel(false);
+            return command.getReply();
+        }
+        mailbox.offer(command);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+        return command.getReply();
+    }
+    
+    public CompletableFuture<Boolean> submitAnswer(String answer) {
+        return send(SessionCommand.answer(answer)).thenApply(Boolean.class::cast);
+    }
+    
+    public CompletableFuture<String> useHint() {
+        return send(SessionCommand.hint()).thenApply(String.class::cast);
+    }
+    
+    // Stop the session and hand back its state; commands queued behind this are cancelled
+    public CompletableFuture<SessionSnapshot> freeze() {
+        return send(SessionCommand.freeze()).thenApply(SessionSnapshot.class::cast);
+    }
+    
+    public CompletableFuture<String> describeRoom() {
+        return send(SessionCommand.room()).thenApply(String.class::cast);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> query(Function<GameEngine, T> query) {
+        return send(SessionCommand.query(query)).thenApply(result -> (T) result);
+    }
+    
+    /**
+     * Applies one batch of queued commands, then yields the thread so other
+     * sessions' batches can run back-to-back on the same carrier.
+     */
+    private void drain() {
+        mailbox.drain(this::execute, BATCH_SIZE);
+        scheduled.set(false);
+        // A producer may have enqueued after the batch ended but before the flag was cleared
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+    
+    // Apply one command to the engine; only ever called from the draining thread
+    private void execute(SessionCommand command) {
+        if (closed) {
+            command.getReply().cancel(false);
+            return;
+        }
+        try {
+            command.getReply().complete(apply(command));
+        } catch (RuntimeException e) {
+            command.getReply().completeExceptionally(e);
+        }
+        if (command.getType() == SessionCommand.Type.QUIT || command.getType() == SessionCommand.Type.FREEZE) {
+            closed = true;
+            if (closeListener != null) {
+                closeListener.run();
+            }
+        }
+    }
+    
+    private Object apply(SessionCommand command) {
+        switch (command.getType()) {
+            case ANSWER:
+                if (!engine.isGameRunning()) {
+                    throw new IllegalStateException("The game is over");
+                }
+                boolean correct = engine.submitAnswer(command.getArgument());
+                if (correct && engine.isGameRunning()) {
+                    engine.resetCountdown();
+                }
+                return correct;
+            case HINT:
+                if (!engine.isGameRunning()) {
+                    return "The game is over.";
+                }
+                return engine.useHint();
+            case TICK:
+                engine.tick();
+                if (engine.isGameRunning() && !engine.isCountdownActive()) {
+                    // Time ran out but the player survived - give them a fresh countdown
+                    engine.resetCountdown();
+                }
+                return engine.getTimeRemaining();
+            case ROOM:
+                Room currentRoom = engine.getCurrentRoom();
+                return currentRoom != null ? currentRoom.getFullDescription() : "";
+            case QUERY:
+                return command.getQuery().apply(engine);
+            case QUIT:
+                engine.quitGame();
+                return Boolean.TRUE;
+            case FREEZE:
+                return SessionSnapshot.capture(id, engine);
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command.getType());
+        }
+    }
+    
+    /**
+     * Copies engine events into the spectator ring. Runs synchronously on the
+     * actor thread; publishing never blocks, so it adds no latency to a turn.
+     */
+    private class BroadcastListener implements GameEventListener {
+        private final EventBroadcaster broadcaster;
+        
+        BroadcastListener(EventBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+        
+        @Override
+        public void onRoomCompleted(int roomIndex, int timeRemaining) {
+            broadcaster.publish(EventBroadcaster.EventType.ROOM_COMPLETED, id, roomIndex, timeRemaining);
+        }
+        
+        @Override
+        public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+            broadcaster.publish(EventBroadcaster.EventType.WRONG_ANSWER, id, roomIndex, livesLeft);
+        }
+        
+        @Override
+        public void onHintUsed(int roomIndex, int hintsLeft) {
+            broadcaster.publish(EventBroadcaster.EventType.HINT_USED, id, roomIndex, hintsLeft);
+        }
+        
+        @Override
+        public void onTimerTick(int timeRemaining) {
+            broadcaster.publish(EventBroadcaster.EventType.TICK, id, engine.getCurrentRoomIndex(), timeRemaining);
+        }
+        
+        @Override
+        public void onTimeUp(int roomIndex, int livesLeft) {
+            broadcaster.publish(EventBroadcaster.EventType.TIME_UP, id, roomIndex, livesLeft);
+        }
+        
+        @Override
+        public void onVictory(int livesLeft) {
+            broadcaster.publish(EventBroadcaster.EventType.VICTORY, id, engine.getCurrentRoomIndex(), livesLeft);
+        }
+        
+        @Override
+        public void onGameOver(int roomIndex) {
+            broadcaster.publish(EventBroadcaster.EventType.GAME_OVER, id, roomIndex, 0);
+        }
+        
+        @Override
+        public void onGameQuit(int roomIndex) {
+            broadcaster.publish(EventBroadcaster.EventType.GAME_QUIT, id, roomIndex, 0);
+        }
+    }
+    
+    // Getters
+    public String getId() { return id; }
+    public GameEngine getEngine() { return engine; }
+    public boolean isClosed() { return closed; }
+    public int getLeaderboardRank() { return leaderboardRank; }
+}
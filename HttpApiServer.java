@@ -0,0 +1,395 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * HttpApiServer exposes hosted sessions as a small HTTP/JSON API:
+ *
+ *   POST   /sessions?player=NAME      start a game
+ *   GET    /sessions/{id}/room        current room (supports If-None-Match)
+ *   POST   /sessions/{id}/answer      body is the answer text
+ *   POST   /sessions/{id}/hint        use a hint
+ *   GET    /sessions/{id}/time        time remaining, lives and state
+ *   DELETE /sessions/{id}             quit
+ *   GET    /events[?session=ID]       Server-Sent Events stream for spectators
+ *   GET    /analytics                 per-room puzzle statistics
+ *
+ * Each exchange runs on its own virtual thread (platform pool before Java 21),
+ * so handlers simply block on the session actor's reply. Event streams are
+ * handed to a SpectatorFeed and written from its threads, so any number of
+ * spectators leave the pool free for API requests.
+ */
+public class HttpApiServer {
+    private static final long REPLY_TIMEOUT_SECONDS = 5;
+    private static final int MAX_SPECTATORS = 4096;
+    private static final int MAX_BODY_BYTES = 4096;
+    private static final int LEADERBOARD_DEFAULT_LIMIT = 10;
+    private static final int LEADERBOARD_MAX_LIMIT = 100;
+    
+    private final SessionHost host;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SpectatorFeed spectators;
+    
+    public HttpApiServer(SessionHost host, int port, int poolSize) throws IOException {
+        this.host = host;
+        this.server = HttpServer.create(new InetSocketAddress(port), 4096);
+        ExecutorService virtualExecutor = SessionHost.newVirtualExecutor();
+        this.executor = virtualExecutor != null ? virtualExecutor : SessionHost.newPlatformPool(poolSize);
+        server.setExecutor(executor);
+        // Spectators stay connected, so they get their own threads and never take the API's
+        ExecutorService streamExecutor = virtualExecutor != null ? SessionHost.newVirtualExecutor() : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "spectator-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.spectators = new SpectatorFeed(host.getBroadcaster(), streamExecutor, MAX_SPECTATORS);
+        server.createContext("/sessions", this::handle);
+        server.createContext("/events", this::streamEvents);
+        server.createContext("/analytics", this::getAnalytics);
+        server.createContext("/leaderboard", this::getLeaderboard);
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int poolSize = Runtime.getRuntime().availableProcessors() * 4;
+        SessionHost host = new SessionHost(SessionHost.ExecutionMode.VIRTUAL_THREADS, poolSize);
+        host.setAdaptiveDifficulty(new AdaptiveDifficulty(new PuzzlePool()));
+        if (args.length > 1) {
+            // Also write the analytics to a file once a minute
+            host.getAnalytics().startExport(Paths.get(args[1]), 60, TimeUnit.SECONDS);
+        }
+        if (args.length > 2) {
+            // Keep players' profiles between sessions and restarts
+            host.setProfileStore(new ProfileStore(Paths.get(args[2])));
+        }
+        HttpApiServer api = new HttpApiServer(host, port, poolSize);
+        api.start();
+        System.out.println("Escape Room HTTP API listening on port " + api.getPort());
+    }
+    
+    public void start() {
+        spectators.start();
+        server.start();
+    }
+    
+    public void stop() {
+        spectators.stop();
+        server.stop(0);
+        executor.shutdown();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (TimeoutException e) {
+            sendError(exchange, 503, "Session did not respond in time");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException) {
+                // The session is still there but refused the command, e.g. an answer after the game ended
+                sendError(exchange, 409, e.getCause().getMessage());
+            } else {
+                sendError(exchange, 410, "Session has ended");
+            }
+        } catch (CancellationException e) {
+            // The session closed before it got to the command
+            sendError(exchange, 410, "Session has ended");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Interrupted");
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    // Hands the spectator to the feed, which streams to it off the request threads
+    private void streamEvents(HttpExchange exchange) throws IOException {
+        if (!spectators.open(exchange, queryParameter(exchange, "session"))) {
+            try {
+                sendError(exchange, 503, "Too many spectators");
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+    
+    private void getAnalytics(HttpExchange exchange) throws IOException {
+        try {
+            StringWriter body = new StringWriter(1024);
+            host.getAnalytics().writeJson(body);
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            send(exchange, 200, body);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    // Top scores, best first; ?limit=n, default 10
+    private void getLeaderboard(HttpExchange exchange) throws IOException {
+        try {
+            int limit = LEADERBOARD_DEFAULT_LIMIT;
+            String requested = queryParameter(exchange, "limit");
+            if (requested != null) {
+                try {
+                    limit = Math.max(1, Math.min(LEADERBOARD_MAX_LIMIT, Integer.parseInt(requested)));
+                } catch (NumberFormatException e) {
+                    sendError(exchange, 400, "limit must be a number");
+                    return;
+                }
+            }
+            StringWriter body = new StringWriter(64 * limit);
+            JsonWriter json = new JsonWriter(body).beginArray();
+            int rank = 1;
+            for (Leaderboard.Entry entry : host.getLeaderboard().top(limit)) {
+                json.beginObject()
+                    .name("rank").value(rank++)
+                    .name("player").value(entry.getPlayerName())
+                    .name("score").value(entry.getScore())
+                    .endObject();
+            }
+            json.endArray();
+            json.flush();
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            send(exchange, 200, body);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void route(HttpExchange exchange) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        // parts: "", "sessions", id, action
+        if (parts.length == 2) {
+            if (method.equals("POST")) {
+                createSession(exchange);
+            } else {
+                sendError(exchange, 405, "Use POST to start a game");
+            }
+            return;
+        }
+        
+        GameSession session = host.getSession(parts[2]);
+        if (session == null) {
+            sendError(exchange, 404, "No such session");
+            return;
+        }
+        String action = parts.length > 3 ? parts[3] : "";
+        switch (method + " " + action) {
+            case "GET room":
+                getRoom(exchange, session);
+                break;
+            case "POST answer":
+                postAnswer(exchange, session);
+                break;
+            case "POST hint":
+                postHint(exchange, session);
+                break;
+            case "GET time":
+                getTime(exchange, session);
+                break;
+            case "DELETE ":
+                await(session.send(SessionCommand.quit()));
+                exchange.sendResponseHeaders(204, -1);
+                break;
+            default:
+                sendError(exchange, 404, "Unknown endpoint");
+        }
+    }
+    
+    private void createSession(HttpExchange exchange) throws IOException {
+        String player = queryParameter(exchange, "player");
+        if (player == null || player.isEmpty()) {
+            String body = readBody(exchange);
+            if (body == null) {
+                sendError(exchange, 413, "Request body is too large");
+                return;
+            }
+            player = body.trim();
+        }
+        if (player.isEmpty() || player.length() > 20) {
+            sendError(exchange, 400, "Player name must be 1 to 20 characters");
+            return;
+        }
+        GameSession session = host.startSession(player);
+        StringWriter body = new StringWriter(128);
+        new JsonWriter(body).beginObject()
+            .name("id").value(session.getId())
+            .name("player").value(player)
+            .name("totalRooms").value(session.getEngine().getTotalRooms())
+            .name("rank").value(session.getLeaderboardRank())
+            .endObject();
+        exchange.getResponseHeaders().set("Location", "/sessions/" + session.getId());
+        send(exchange, 201, body);
+    }
+    
+    /**
+     * Room text only changes when the player moves to another room, so the
+     * room index is the content version: clients revalidate with If-None-Match
+     * and get an empty 304 without the description being rebuilt. The index,
+     * name and description are read in one command, so they are of one room.
+     */
+    private void getRoom(HttpExchange exchange, GameSession session) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        RoomView view = await(session.query(engine -> {
+            int index = engine.getCurrentRoomIndex();
+            if (etag(session, index).equals(ifNoneMatch)) {
+                return new RoomView(index, null, null);
+            }
+            Room room = engine.getCurrentRoom();
+            return room != null ? new RoomView(index, room.getName(), room.getFullDescription()) : new RoomView(index, null, "");
+        }));
+        String etag = etag(session, view.index);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "private, no-cache");
+        if (view.description == null) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        StringWriter body = new StringWriter(view.description.length() + 128);
+        new JsonWriter(body).beginObject()
+            .name("index").value(view.index)
+            .name("name").value(view.name)
+            .name("description").value(view.description)
+            .endObject();
+        send(exchange, 200, body);
+    }
+    
+    private static String etag(GameSession session, int roomIndex) {
+        return "\"" + session.getId() + "." + roomIndex + "\"";
+    }
+    
+    /**
+     * One room as read on the session thread; description is null when the
+     * client's copy is current
+     */
+    private static final class RoomView {
+        final int index;
+        final String name;
+        final String description;
+        
+        RoomView(int index, String name, String description) {
+            this.index = index;
+            this.name = name;
+            this.description = description;
+        }
+    }
+    
+    private void postAnswer(HttpExchange exchange, GameSession session) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        String answer = readBody(exchange);
+        if (answer == null) {
+            sendError(exchange, 413, "Answer is too long");
+            return;
+        }
+        // Commands from this thread run in order, so the status reflects this answer
+        boolean correct = await(session.submitAnswer(answer));
+        StringWriter body = new StringWriter(128);
+        JsonWriter json = new JsonWriter(body).beginObject().name("correct").value(correct);
+        writeStatus(json, await(session.query(HttpApiServer::status)));
+        json.endObject();
+        send(exchange, 200, body);
+    }
+    
+    private void postHint(HttpExchange exchange, GameSession session) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        String hint = await(session.useHint());
+        int hints = await(session.query(engine -> engine.getPlayer().getHints()));
+        StringWriter body = new StringWriter(hint.length() + 64);
+        new JsonWriter(body).beginObject()
+            .name("hint").value(hint)
+            .name("hintsRemaining").value(hints)
+            .endObject();
+        send(exchange, 200, body);
+    }
+    
+    private void getTime(HttpExchange exchange, GameSession session) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        StringWriter body = new StringWriter(96);
+        JsonWriter json = new JsonWriter(body).beginObject();
+        writeStatus(json, await(session.query(HttpApiServer::status)));
+        json.endObject();
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        send(exchange, 200, body);
+    }
+    
+    // Snapshot taken on the session thread: time remaining, lives, hints, room index, state, score
+    private static int[] status(GameEngine engine) {
+        return new int[]{
+            engine.getTimeRemaining(),
+            engine.getPlayer().getLives(),
+            engine.getPlayer().getHints(),
+            engine.getCurrentRoomIndex(),
+            GameProtocol.stateOf(engine),
+            (int) Math.min(Integer.MAX_VALUE, engine.getScore())
+        };
+    }
+    
+    private static void writeStatus(JsonWriter json, int[] status) throws IOException {
+        json.name("timeRemaining").value(status[0])
+            .name("lives").value(status[1])
+            .name("hints").value(status[2])
+            .name("room").value(status[3])
+            .name("state").value(status[4] == GameProtocol.STATE_WON ? "won"
+                : status[4] == GameProtocol.STATE_LOST ? "lost" : "running")
+            .name("score").value(status[5]);
+    }
+    
+    private static <T> T await(CompletableFuture<T> reply) throws InterruptedException, ExecutionException, TimeoutException {
+        return reply.get(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+    
+    // The request body, or null if it is longer than MAX_BODY_BYTES
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            return body.length <= MAX_BODY_BYTES ? new String(body, StandardCharsets.UTF_8) : null;
+        }
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter body = new StringWriter(64 + message.length());
+        new JsonWriter(body).beginObject().name("error").value(message).endObject();
+        send(exchange, status, body);
+    }
+    
+    private static void send(HttpExchange exchange, int status, StringWriter body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Minimal streaming JSON writer. Values are written straight to the
+ * underlying Writer; only a small nesting stack is kept.
+ */
+public class JsonWriter {
+    private static final int MAX_DEPTH = 32;
+    
+    private final Writer out;
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+    
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+    
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+    
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+    
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+    
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+    
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+    
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+    
+    public JsonWriter value(double value) throws IOException {
+        separate();
+        out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+    
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    private JsonWriter open(char bracket) throws IOException {
+        separate();
+        out.write(bracket);
+        first[++depth] = true;
+        return this;
+    }
+    
+    private JsonWriter close(char bracket) throws IOException {
+        out.write(bracket);
+        depth--;
+        return this;
+    }
+    
+    // Write the comma between values, except right after a name or at the start of a container
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (!first[depth]) {
+                out.write(',');
+            }
+            first[depth] = false;
+        }
+    }
+    
+    private void writeString(String text) throws IOException {
+        out.write('"');
+        int runStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String escape;
+            switch (c) {
+                case '"': escape = "\\\""; break;
+                case '\\': escape = "\\\\"; break;
+                case '\n': escape = "\\n"; break;
+                case '\r': escape = "\\r"; break;
+                case '\t': escape = "\\t"; break;
+                default:
+                    if (c >= 0x20) continue;
+                    escape = String.format("\\u%04x", (int) c);
+            }
+            out.write(text, runStart, i - runStart);
+            out.write(escape);
+            runStart = i + 1;
+        }
+        out.write(text, runStart, text.length() - runStart);
+        out.write('"');
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Leaderboard ranks players by their best final score. Each game's score is
+ * submitted once as it ends; only a player's best is kept, and the ranking
+ * is a sorted tree updated in O(log n), so reading the top of the board never
+ * revisits past games. Each node counts the entries below it, so a player's
+ * rank is found in O(log n) as well. Ties go to whoever reached the score first.
+ *
+ * Thread-safe: every game on a host may submit to one board.
+ */
+public class Leaderboard {
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong((Entry entry) -> -entry.score)
+        .thenComparingLong(entry -> entry.sequence);
+    
+    private final Map<String, Entry> best;
+    private final RankTree ranked;
+    private long nextSequence;
+    
+    public Leaderboard() {
+        this.best = new HashMap<>();
+        this.ranked = new RankTree();
+    }
+    
+    /**
+     * Record a finished game's score.
+     * @return true if it is the player's new best
+     */
+    public synchronized boolean submit(String playerName, long score) {
+        Entry previous = best.get(playerName);
+        if (previous != null) {
+            if (previous.score >= score) return false;
+            ranked.remove(previous);
+        }
+        Entry entry = new Entry(playerName, score, nextSequence++);
+        best.put(playerName, entry);
+        ranked.add(entry);
+        return true;
+    }
+    
+    // The best entries, highest first
+    public synchronized List<Entry> top(int count) {
+        List<Entry> top = new ArrayList<>(Math.min(count, best.size()));
+        ranked.collectFirst(count, top);
+        return top;
+    }
+    
+    // The player's best, or null if they have not finished a game
+    public synchronized Entry getBest(String playerName) {
+        return best.get(playerName);
+    }
+    
+    // The player's place on the board, 1 for the top, or 0 if they have not finished a game
+    public synchronized int getRank(String playerName) {
+        Entry entry = best.get(playerName);
+        return entry != null ? ranked.countBefore(entry) + 1 : 0;
+    }
+    
+    public synchronized int size() {
+        return best.size();
+    }
+    
+    /**
+     * Entries in ranking order, as a treap whose nodes know the size of their
+     * subtree: a random priority per node keeps it balanced in expectation
+     */
+    private static final class RankTree {
+        private final SplittableRandom priorities = new SplittableRandom();
+        private final Node[] halves = new Node[2]; // split's result
+        private Node root;
+        
+        void add(Entry entry) {
+            root = insert(root, new Node(entry, priorities.nextInt()));
+        }
+        
+        void remove(Entry entry) {
+            root = delete(root, entry);
+        }
+        
+        // How many entries rank above this one, which must be in the tree
+        int countBefore(Entry entry) {
+            int count = 0;
+            Node node = root;
+            while (node != null) {
+                int order = RANKING.compare(entry, node.entry);
+                if (order == 0) return count + size(node.left);
+                if (order < 0) {
+                    node = node.left;
+                } else {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            throw new IllegalStateException("Not ranked: " + entry);
+        }
+        
+        // Add the first count entries, best first
+        void collectFirst(int count, List<Entry> into) {
+            ArrayDeque<Node> path = new ArrayDeque<>();
+            Node node = root;
+            while ((node != null || !path.isEmpty()) && into.size() < count) {
+                if (node != null) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = path.pop();
+                    into.add(node.entry);
+                    node = node.right;
+                }
+            }
+        }
+        
+        private Node insert(Node node, Node added) {
+            if (node == null) return added;
+            if (added.priority > node.priority) {
+                split(node, added.entry);
+                added.left = halves[0];
+                added.right = halves[1];
+                added.update();
+                return added;
+            }
+            if (RANKING.compare(added.entry, node.entry) < 0) {
+                node.left = insert(node.left, added);
+            } else {
+                node.right = insert(node.right, added);
+            }
+            node.update();
+            return node;
+        }
+        
+        private Node delete(Node node, Entry entry) {
+            if (node == null) return null;
+            int order = RANKING.compare(entry, node.entry);
+            if (order == 0) return merge(node.left, node.right);
+            if (order < 0) {
+                node.left = delete(node.left, entry);
+            } else {
+                node.right = delete(node.right, entry);
+            }
+            node.update();
+            return node;
+        }
+        
+        // Into halves: the entries ranked before the key, then the rest
+        private void split(Node node, Entry key) {
+            if (node == null) {
+                halves[0] = null;
+                halves[1] = null;
+            } else if (RANKING.compare(node.entry, key) < 0) {
+                split(node.right, key);
+                node.right = halves[0];
+                node.update();
+                halves[0] = node;
+            } else {
+                split(node.left, key);
+                node.left = halves[1];
+                node.update();
+                halves[1] = node;
+            }
+        }
+        
+        // Every entry of left ranks before every entry of right
+        private static Node merge(Node left, Node right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                left.update();
+                return left;
+            }
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+        
+        private static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+        
+        private static final class Node {
+            final Entry entry;
+            final int priority;
+            Node left;
+            Node right;
+            int size;
+            
+            Node(Entry entry, int priority) {
+                this.entry = entry;
+                this.priority = priority;
+                this.size = 1;
+            }
+            
+            void update() {
+                size = 1 + size(left) + size(right);
+            }
+        }
+    }
+    
+    /**
+     * One player's best score
+     */
+    public static final class Entry {
+        private final String playerName;
+        private final long score;
+        private final long sequence; // submission order, for breaking ties
+        
+        private Entry(String playerName, long score, long sequence) {
+            this.playerName = playerName;
+            this.score = score;
+            this.sequence = sequence;
+        }
+        
+        // Getters
+        public String getPlayerName() { return playerName; }
+        public long getScore() { return score; }
+        
+        @Override
+        public String toString() {
+            return playerName + " " + score;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadGenerator opens many loopback connections to a GameServer and keeps
+ * each one busy with requests, reporting connections held and replies per second.
+ * Usage: java LoadGenerator tcp|http [host] [port] [connections] [seconds] [threads]
+ */
+public class LoadGenerator {
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "tcp";
+        String host = args.length > 1 ? args[1] : "127.0.0.1";
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 7777;
+        int connections = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        
+        if (mode.equals("tcp")) {
+            runTcp(host, port, connections, seconds, threads);
+        } else if (mode.equals("http")) {
+            runHttp(host, port, connections, seconds);
+        } else {
+            System.err.println("Unknown mode: " + mode);
+        }
+    }
+    
+    private static void runTcp(String host, int port, int connections, int seconds, int threads) throws Exception {
+        AtomicLong replies = new AtomicLong();
+        AtomicLong connected = new AtomicLong();
+        TcpWorker[] workers = new TcpWorker[threads];
+        for (int i = 0; i < threads; i++) {
+            int share = connections / threads + (i < connections % threads ? 1 : 0);
+            workers[i] = new TcpWorker(new InetSocketAddress(host, port), share, replies, connected);
+            workers[i].start();
+        }
+        
+        long previous = 0;
+        for (int second = 1; second <= seconds; second++) {
+            TimeUnit.SECONDS.sleep(1);
+            long total = replies.get();
+            System.out.printf("t=%2ds  connections=%d  replies/s=%d%n", second, connected.get(), total - previous);
+            previous = total;
+        }
+        for (TcpWorker worker : workers) {
+            worker.interrupt();
+        }
+        System.out.printf("total replies=%d  average/s=%d%n", previous, previous / Math.max(1, seconds));
+    }
+    
+    /**
+     * Each client thread starts a game over HTTP, then alternates room and
+     * time polls. Room polls send If-None-Match, as a caching client would.
+     */
+    private static void runHttp(String host, int port, int clients, int seconds) throws Exception {
+        AtomicLong replies = new AtomicLong();
+        AtomicLong notModified = new AtomicLong();
+        String base = "http://" + host + ":" + port + "/sessions";
+        Thread[] workers = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            String player = "bot" + i;
+            workers[i] = new Thread(() -> {
+                try {
+                    HttpURLConnection create = (HttpURLConnection) new URL(base + "?player=" + player).openConnection();
+                    create.setRequestMethod("POST");
+                    String location = create.getHeaderField("Location");
+                    drain(create);
+                    String session = "http://" + host + ":" + port + location;
+                    String etag = null;
+                    while (!Thread.currentThread().isInterrupted()) {
+                        HttpURLConnection room = (HttpURLConnection) new URL(session + "/room").openConnection();
+                        if (etag != null) room.setRequestProperty("If-None-Match", etag);
+                        if (room.getResponseCode() == 304) notModified.incrementAndGet();
+                        etag = room.getHeaderField("ETag");
+                        drain(room);
+                        HttpURLConnection time = (HttpURLConnection) new URL(session + "/time").openConnection();
+                        drain(time);
+                        replies.addAndGet(2);
+                    }
+                } catch (IOException e) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        System.err.println("HTTP client stopped: " + e.getMessage());
+                    }
+                }
+            }, "load-http");
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        
+        long previous = 0;
+        for (int second = 1; second <= seconds; second++) {
+            TimeUnit.SECONDS.sleep(1);
+            long total = replies.get();
+            System.out.printf("t=%2ds  clients=%d  requests/s=%d  (304s so far: %d)%n", second, clients, total - previous, notModified.get());
+            previous = total;
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        System.out.printf("total requests=%d  average/s=%d%n", previous, previous / Math.max(1, seconds));
+    }
+    
+    // Read and discard the response so the connection can be kept alive and reused
+    private static void drain(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try (InputStream body = in) {
+                body.readAllBytes();
+            }
+        }
+    }
+    
+    /**
+     * Drives a share of the connections from one selector. Each connection
+     * starts a game and then asks for its room again every time a reply arrives.
+     */
+    private static class TcpWorker extends Thread {
+        private final InetSocketAddress address;
+        private final int connections;
+        private final AtomicLong replies;
+        private final AtomicLong connected;
+        private final ByteBuffer request;
+        
+        TcpWorker(InetSocketAddress address, int connections, AtomicLong replies, AtomicLong connected) {
+            super("load-tcp");
+            setDaemon(true);
+            this.address = address;
+            this.connections = connections;
+            this.replies = replies;
+            this.connected = connected;
+            this.request = ByteBuffer.allocate(64);
+        }
+        
+        @Override
+        public void run() {
+            try (Selector selector = Selector.open()) {
+                for (int i = 0; i < connections; i++) {
+                    SocketChannel channel = SocketChannel.open(address);
+                    channel.configureBlocking(false);
+                    ByteBuffer in = ByteBuffer.allocate(2048);
+                    channel.register(selector, SelectionKey.OP_READ, in);
+                    send(channel, GameProtocol.START_GAME, "bot-" + getId() + "-" + i);
+                    connected.incrementAndGet();
+                }
+                while (!isInterrupted()) {
+                    selector.select(100);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        onReadable((SocketChannel) key.channel(), (ByteBuffer) key.attachment());
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                System.err.println("Load worker stopped: " + e.getMessage());
+            }
+        }
+        
+        private void onReadable(SocketChannel channel, ByteBuffer in) throws IOException {
+            if (channel.read(in) < 0) {
+                channel.close();
+                connected.decrementAndGet();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                int length = in.getInt();
+                byte opcode = in.get(in.position());
+                in.position(in.position() + length);
+                if (opcode != GameProtocol.TIMER) {
+                    replies.incrementAndGet();
+                    send(channel, GameProtocol.GET_ROOM, null);
+                }
+            }
+            in.compact();
+        }
+        
+        private void send(SocketChannel channel, byte opcode, String text) throws IOException {
+            request.clear();
+            int start = GameProtocol.beginFrame(request, opcode);
+            if (text != null) {
+                GameProtocol.putString(request, text);
+            }
+            GameProtocol.endFrame(request, start);
+            request.flip();
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+        }
+    }
+}
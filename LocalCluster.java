@@ -0,0 +1,171 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LocalCluster is a stand-in for a multi-host deployment: it launches several
+ * GameServer JVMs on loopback and routes players to them with a
+ * ConsistentHashRouter, the way a front end would pick an engine node.
+ * Usage: java LocalCluster [nodes] [players]
+ */
+public class LocalCluster {
+    private static final String LISTENING = "listening on port ";
+    private static final long START_TIMEOUT_SECONDS = 30;
+    
+    private final ConsistentHashRouter<Node> router;
+    private final Map<String, Node> nodes;
+    private int nextNodeId;
+    
+    public LocalCluster() {
+        this.router = new ConsistentHashRouter<>();
+        this.nodes = new HashMap<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "cluster-shutdown"));
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        
+        LocalCluster cluster = new LocalCluster();
+        try {
+            for (int i = 0; i < nodeCount; i++) {
+                Node node = cluster.addNode();
+                System.out.println("Started " + node.id + " on port " + node.port);
+            }
+            
+            // Play a short game on each player's node and count where they landed
+            Map<String, Integer> perNode = new HashMap<>();
+            String[] before = new String[players];
+            for (int i = 0; i < players; i++) {
+                String player = "player" + i;
+                Node node = cluster.nodeFor(player);
+                before[i] = node.id;
+                perNode.merge(node.id, 1, Integer::sum);
+                try (GameClient client = node.connect()) {
+                    client.startGame(player);
+                    client.getRoom();
+                    client.quit();
+                }
+            }
+            System.out.println("Players per node: " + perNode);
+            
+            // Only the keys the new node takes over should move
+            Node added = cluster.addNode();
+            int moved = 0;
+            for (int i = 0; i < players; i++) {
+                if (!cluster.nodeFor("player" + i).id.equals(before[i])) moved++;
+            }
+            System.out.printf("Added %s: %d of %d players moved (%.1f%%, ideal %.1f%%)%n",
+                added.id, moved, players, 100.0 * moved / players, 100.0 / (nodeCount + 1));
+        } finally {
+            cluster.shutdown();
+        }
+    }
+    
+    /**
+     * Launches one more GameServer process using this JVM's class path and
+     * waits for it to report its port before adding it to the ring
+     */
+    public synchronized Node addNode() throws IOException {
+        String id = "node" + (nextNodeId++);
+        String java = System.getProperty("java.home") + "/bin/java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "GameServer", "0", "1");
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        int port = awaitPort(process, output);
+        // Keep reading so the child never blocks on a full pipe
+        Thread drain = new Thread(() -> {
+            try {
+                while (output.readLine() != null) {
+                    // Discard
+                }
+            } catch (IOException e) {
+                // Process ended
+            }
+        }, id + "-output");
+        drain.setDaemon(true);
+        drain.start();
+        
+        Node node = new Node(id, "127.0.0.1", port, process);
+        nodes.put(id, node);
+        router.addNode(id, node);
+        return node;
+    }
+    
+    // Take a node out of the ring and stop its process
+    public synchronized void removeNode(String id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            router.removeNode(id);
+            node.process.destroy();
+        }
+    }
+    
+    public Node nodeFor(String playerOrSessionId) {
+        return router.route(playerOrSessionId);
+    }
+    
+    // Open a client to whichever node owns this player
+    public GameClient connect(String playerName) throws IOException {
+        return nodeFor(playerName).connect();
+    }
+    
+    public synchronized List<Node> getNodes() {
+        return new ArrayList<>(nodes.values());
+    }
+    
+    public synchronized void shutdown() {
+        for (String id : new ArrayList<>(nodes.keySet())) {
+            removeNode(id);
+        }
+    }
+    
+    private static int awaitPort(Process process, BufferedReader output) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(START_TIMEOUT_SECONDS);
+        String line;
+        while (System.nanoTime() < deadline && (line = output.readLine()) != null) {
+            int at = line.indexOf(LISTENING);
+            if (at >= 0) {
+                return Integer.parseInt(line.substring(at + LISTENING.length()).trim());
+            }
+        }
+        process.destroy();
+        throw new IOException("Game server did not start");
+    }
+    
+    /**
+     * One engine process in the cluster
+     */
+    public static class Node {
+        private final String id;
+        private final String host;
+        private final int port;
+        private final Process process;
+        
+        Node(String id, String host, int port, Process process) {
+            this.id = id;
+            this.host = host;
+            this.port = port;
+            this.process = process;
+        }
+        
+        public GameClient connect() throws IOException {
+            return new GameClient(host, port);
+        }
+        
+        // Getters
+        public String getId() { return id; }
+        public String getHost() { return host; }
+        public int getPort() { return port; }
+        public boolean isAlive() { return process.isAlive(); }
+    }
+}
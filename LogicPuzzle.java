@@ -0,0 +1,18 @@
+/**
+ * Logic puzzle implementation
+ */
+class LogicPuzzle extends Puzzle {
+    public LogicPuzzle(String question, String answer, String hint) {
+        super(question, answer, hint, PuzzleType.LOGIC);
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        return checkAnswer(userAnswer);
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Solve this logic puzzle:";
+    }
+}
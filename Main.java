@@ -18,6 +18,25 @@ public class Main {
                 // Initialize game engine
                 GameEngine gameEngine = new GameEngine();
                 
+                // Rank this run's games against each other
+                gameEngine.setLeaderboard(new Leaderboard());
+                
+                // Remember players between runs; the game still works without it
+                try {
+                    ProfileStore profiles = new ProfileStore(java.nio.file.Paths.get("profiles"));
+                    profiles.track(gameEngine);
+                    // Every way out of the game ends in System.exit, so close the store on the way down
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            profiles.close();
+                        } catch (java.io.IOException e) {
+                            System.err.println("Could not close player profiles: " + e.getMessage());
+                        }
+                    }, "profile-store-close"));
+                } catch (java.io.IOException e) {
+                    System.out.println("Could not open player profiles: " + e.getMessage());
+                }
+                
                 // Initialize UI manager
                 UIManager uiManager = new UIManager();
                 
@@ -0,0 +1,24 @@
+/**
+ * Math puzzle implementation
+ */
+class MathPuzzle extends Puzzle {
+    public MathPuzzle(String question, String answer, String hint) {
+        super(question, answer, hint, PuzzleType.MATH);
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        try {
+            int userNum = Integer.parseInt(userAnswer.trim());
+            int correctNum = Integer.parseInt(answer);
+            return userNum == correctNum;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Solve this math problem:";
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MathPuzzleGenerator builds random multi-step arithmetic expressions.
+ * Trees are grown top-down from the answer, so every division is exact and
+ * every intermediate value stays within the tier's bounds (no int overflow).
+ * Node storage is reused between puzzles; an instance is not thread-safe.
+ */
+public class MathPuzzleGenerator {
+    private static final int LEAF = 0;
+    private static final int ADD = 1;
+    private static final int SUBTRACT = 2;
+    private static final int MULTIPLY = 3;
+    private static final int DIVIDE = 4;
+    private static final String[] SYMBOLS = {"", " + ", " - ", " × ", " ÷ "};
+    private static final int MAX_ATTEMPTS = 32;
+    private static final int MAX_FACTOR = 12;
+    private static final int MAX_BATCH_MISSES = 1000;
+    
+    private final Random random;
+    private final int[] op;
+    private final int[] value;
+    private final int[] left;
+    private final int[] right;
+    private final long[] stack;
+    private final StringBuilder text;
+    private final int[] reach;
+    private Difficulty reachDifficulty;
+    private int nodeCount;
+    
+    // Fingerprints of the current batch, to keep batches free of duplicates
+    private long[] seen;
+    private int seenCount;
+    
+    public MathPuzzleGenerator(Random random) {
+        int maxNodes = 2 * Difficulty.EXPERT.getMaxOperators() + 1;
+        this.random = random;
+        this.op = new int[maxNodes];
+        this.value = new int[maxNodes];
+        this.left = new int[maxNodes];
+        this.right = new int[maxNodes];
+        this.stack = new long[maxNodes];
+        this.text = new StringBuilder(64);
+        this.reach = new int[Difficulty.EXPERT.getMaxOperators() + 1];
+        this.seen = new long[1024];
+    }
+    
+    /**
+     * Generates one puzzle
+     * @return Array containing [question, answer] as strings, like CipherUtils.generateMathPuzzle
+     */
+    public String[] generate(Difficulty difficulty) {
+        int answer = build(difficulty);
+        return new String[]{text.toString(), String.valueOf(answer)};
+    }
+    
+    /**
+     * Fills the arrays with puzzles that are all different from each other
+     * @return Number of puzzles written, which is less than count only if the tier ran out of variety
+     */
+    public int generateBatch(Difficulty difficulty, String[] questions, int[] answers, int offset, int count) {
+        resetSeen(count);
+        int written = 0;
+        int misses = 0;
+        while (written < count && misses < MAX_BATCH_MISSES) {
+            int answer = build(difficulty);
+            if (!markSeen(fingerprint())) {
+                misses++;
+                continue;
+            }
+            misses = 0;
+            questions[offset + written] = text.toString();
+            answers[offset + written] = answer;
+            written++;
+        }
+        return written;
+    }
+    
+    // Grow a tree for a random answer, render it into text and return the answer
+    private int build(Difficulty difficulty) {
+        computeReach(difficulty);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            nodeCount = 0;
+            int operators = difficulty.getMinOperators()
+                + random.nextInt(difficulty.getMaxOperators() - difficulty.getMinOperators() + 1);
+            int target = 1 + random.nextInt(difficulty.getMaxAnswer());
+            if (grow(target, operators, difficulty) >= 0 && evaluate(0) == target) {
+                text.setLength(0);
+                render(0, 0, false);
+                text.append(" = ?");
+                return target;
+            }
+        }
+        // Tiers are loose enough that this is practically unreachable
+        nodeCount = 0;
+        int a = 1 + random.nextInt(difficulty.getMaxOperand());
+        int b = 1 + random.nextInt(difficulty.getMaxOperand());
+        text.setLength(0);
+        text.append(a).append(SYMBOLS[ADD]).append(b).append(" = ?");
+        return a + b;
+    }
+    
+    // Add a subtree with the given value and operator count; returns its node index or -1
+    private int grow(int target, int operators, Difficulty difficulty) {
+        int node = nodeCount++;
+        if (operators == 0) {
+            if (target < 1 || target > difficulty.getMaxOperand()) {
+                return -1;
+            }
+            op[node] = LEAF;
+            value[node] = target;
+            return node;
+        }
+        
+        // Try each operator split and operator, starting at random ones, until a subtree fits the bounds
+        int firstSplit = random.nextInt(operators);
+        int firstKind = random.nextInt(4);
+        for (int split = 0; split < operators; split++) {
+            int leftOperators = (firstSplit + split) % operators;
+            int rightOperators = operators - 1 - leftOperators;
+            // Never ask a child for a value it cannot reach with its operators
+            int leftMax = reach[leftOperators];
+            int rightMax = reach[rightOperators];
+            int factorMax = Math.min(rightMax, MAX_FACTOR);
+            
+            for (int i = 0; i < 4; i++) {
+                int kind = ADD + (firstKind + i) % 4;
+                int leftValue;
+                int rightValue;
+                int high;
+                switch (kind) {
+                    case ADD:
+                        int low = Math.max(1, target - leftMax);
+                        high = Math.min(target - 1, rightMax);
+                        if (low > high) continue;
+                        rightValue = low + random.nextInt(high - low + 1);
+                        leftValue = target - rightValue;
+                        break;
+                    case SUBTRACT:
+                        high = Math.min(rightMax, leftMax - target);
+                        if (high < 1) continue;
+                        rightValue = 1 + random.nextInt(high);
+                        leftValue = target + rightValue;
+                        break;
+                    case MULTIPLY:
+                        if (factorMax < 2) continue;
+                        rightValue = 2 + random.nextInt(factorMax - 1);
+                        if (target % rightValue != 0 || target / rightValue > leftMax) continue;
+                        leftValue = target / rightValue;
+                        break;
+                    default:
+                        // Pick the divisor first so the division is always exact
+                        high = Math.min(factorMax, leftMax / target);
+                        if (high < 2) continue;
+                        rightValue = 2 + random.nextInt(high - 1);
+                        leftValue = target * rightValue;
+                }
+                op[node] = kind;
+                value[node] = target;
+                left[node] = grow(leftValue, leftOperators, difficulty);
+                right[node] = left[node] < 0 ? -1 : grow(rightValue, rightOperators, difficulty);
+                if (right[node] >= 0) {
+                    return node;
+                }
+                nodeCount = node + 1; // discard the failed children
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Works out the largest value a subtree with n operators can produce under
+     * the tier's operand bound, so generation only asks for reachable values.
+     */
+    private void computeReach(Difficulty difficulty) {
+        if (reachDifficulty == difficulty) return;
+        reach[0] = difficulty.getMaxOperand();
+        for (int operators = 1; operators < reach.length; operators++) {
+            long best = 0;
+            for (int leftOperators = 0; leftOperators < operators; leftOperators++) {
+                long a = reach[leftOperators];
+                long b = reach[operators - 1 - leftOperators];
+                best = Math.max(best, Math.max(a + b, a * Math.min(b, MAX_FACTOR)));
+            }
+            reach[operators] = (int) Math.min(best, difficulty.getMaxIntermediate());
+        }
+        reachDifficulty = difficulty;
+    }
+    
+    /**
+     * Evaluates the tree bottom-up without recursion or boxing. Returns -1 if a
+     * division is inexact or a value leaves the int range.
+     */
+    private long evaluate(int root) {
+        // Children always have higher indexes than their parent, so walk the nodes backwards
+        for (int node = nodeCount - 1; node >= root; node--) {
+            if (op[node] == LEAF) {
+                stack[node] = value[node];
+                continue;
+            }
+            long a = stack[left[node]];
+            long b = stack[right[node]];
+            long result;
+            switch (op[node]) {
+                case ADD: result = a + b; break;
+                case SUBTRACT: result = a - b; break;
+                case MULTIPLY: result = a * b; break;
+                default:
+                    if (b == 0 || a % b != 0) return -1;
+                    result = a / b;
+            }
+            if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) return -1;
+            stack[node] = result;
+        }
+        return stack[root];
+    }
+    
+    // Write the subtree in infix form with only the parentheses precedence requires
+    private void render(int node, int parentOp, boolean rightChild) {
+        if (op[node] == LEAF) {
+            text.append(value[node]);
+            return;
+        }
+        boolean parens = needsParentheses(op[node], parentOp, rightChild);
+        if (parens) text.append('(');
+        render(left[node], op[node], false);
+        text.append(SYMBOLS[op[node]]);
+        render(right[node], op[node], true);
+        if (parens) text.append(')');
+    }
+    
+    private static boolean needsParentheses(int child, int parent, boolean rightChild) {
+        if (parent == LEAF) return false;
+        int childPrecedence = precedence(child);
+        int parentPrecedence = precedence(parent);
+        if (childPrecedence != parentPrecedence) return childPrecedence < parentPrecedence;
+        // a - (b + c) and a ÷ (b × c) keep their grouping
+        return rightChild && (parent == SUBTRACT || parent == DIVIDE);
+    }
+    
+    private static int precedence(int kind) {
+        return kind == MULTIPLY || kind == DIVIDE ? 2 : 1;
+    }
+    
+    private long fingerprint() {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+    
+    private void resetSeen(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+        if (seen.length < capacity) {
+            seen = new long[capacity];
+        } else {
+            Arrays.fill(seen, 0L);
+        }
+        seenCount = 0;
+    }
+    
+    // Record the fingerprint; returns false if it was already in this batch
+    private boolean markSeen(long hash) {
+        if (seenCount * 2 >= seen.length) {
+            return false;
+        }
+        int mask = seen.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (seen[slot] != 0) {
+            if (seen[slot] == hash) return false;
+            slot = (slot + 1) & mask;
+        }
+        seen[slot] = hash;
+        seenCount++;
+        return true;
+    }
+}
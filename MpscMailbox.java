@@ -0,0 +1,65 @@
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free multi-producer / single-consumer queue.
+ * Any thread may offer; only the owning consumer may poll or drain.
+ */
+public class MpscMailbox<T> {
+    private static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+        
+        Node(T value) {
+            this.value = value;
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+    
+    private final AtomicReference<Node<T>> tail;
+    private Node<T> head; // consumer-only
+    
+    public MpscMailbox() {
+        Node<T> stub = new Node<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+    
+    // Add a value; safe to call from any thread
+    public void offer(T value) {
+        Node<T> node = new Node<>(value);
+        Node<T> previous = tail.getAndSet(node);
+        NEXT.lazySet(previous, node);
+    }
+    
+    // Remove the oldest value, or return null if none is visible yet
+    public T poll() {
+        Node<T> next = head.next;
+        if (next == null) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;
+        head = next;
+        return value;
+    }
+    
+    // Hand up to limit values to the consumer and return how many were taken
+    public int drain(Consumer<? super T> consumer, int limit) {
+        int count = 0;
+        T value;
+        while (count < limit && (value = poll()) != null) {
+            consumer.accept(value);
+            count++;
+        }
+        return count;
+    }
+    
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+}
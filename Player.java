@@ -8,14 +8,21 @@ public class Player {
     private int maxHints;
     private java.util.List<String> inventory;
     private int currentRoom;
+    private PlayerStats stats;
     
     public Player(String name) {
+        this(name, new PlayerStats());
+    }
+    
+    // Start a player who keeps the stats from their earlier games
+    public Player(String name, PlayerStats stats) {
         this.name = name;
         this.lives = 3;
         this.maxHints = 3;
         this.hints = maxHints;
         this.inventory = new java.util.ArrayList<>();
         this.currentRoom = 0;
+        this.stats = stats;
     }
     
     // Getters and setters
@@ -25,8 +32,11 @@ public class Player {
     public int getMaxHints() { return maxHints; }
     public int getCurrentRoom() { return currentRoom; }
     public java.util.List<String> getInventory() { return inventory; }
+    public PlayerStats getStats() { return stats; }
     
     public void setCurrentRoom(int room) { this.currentRoom = room; }
+    public void setLives(int lives) { this.lives = lives; }
+    public void setHints(int hints) { this.hints = hints; }
     
     // Life management
     public void loseLife() {
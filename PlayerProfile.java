@@ -0,0 +1,97 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PlayerProfile is what survives between a player's sessions: lifetime
+ * totals, their fastest escape, their PlayerStats (including the puzzles they
+ * have seen) and free-form settings. Stored by ProfileStore.
+ */
+public class PlayerProfile {
+    private static final int FORMAT_VERSION = 1;
+    
+    private final String name;
+    private int gamesPlayed;
+    private int gamesWon;
+    private int roomsCompleted;
+    private int bestEscapeSeconds; // 0 until the first escape
+    private PlayerStats stats;
+    private final Map<String, String> settings;
+    
+    public PlayerProfile(String name) {
+        this.name = name;
+        this.stats = new PlayerStats();
+        this.settings = new TreeMap<>();
+    }
+    
+    // Add one finished game to the lifetime totals
+    public void recordGame(boolean won, int rooms, int seconds) {
+        gamesPlayed++;
+        roomsCompleted += rooms;
+        if (won) {
+            gamesWon++;
+            if (bestEscapeSeconds == 0 || seconds < bestEscapeSeconds) {
+                bestEscapeSeconds = seconds;
+            }
+        }
+    }
+    
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(gamesPlayed);
+            out.writeInt(gamesWon);
+            out.writeInt(roomsCompleted);
+            out.writeInt(bestEscapeSeconds);
+            out.writeShort(settings.size());
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                out.writeUTF(setting.getKey());
+                out.writeUTF(setting.getValue());
+            }
+            stats.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e); // cannot happen
+        }
+        return bytes.toByteArray();
+    }
+    
+    public static PlayerProfile fromBytes(String name, byte[] bytes) throws IOException {
+        return readFrom(name, new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+    
+    public static PlayerProfile readFrom(String name, DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported profile version " + version);
+        }
+        PlayerProfile profile = new PlayerProfile(name);
+        profile.gamesPlayed = in.readInt();
+        profile.gamesWon = in.readInt();
+        profile.roomsCompleted = in.readInt();
+        profile.bestEscapeSeconds = in.readInt();
+        int settings = in.readUnsignedShort();
+        for (int i = 0; i < settings; i++) {
+            profile.settings.put(in.readUTF(), in.readUTF());
+        }
+        profile.stats = PlayerStats.readFrom(in);
+        return profile;
+    }
+    
+    // Getters and setters
+    public String getName() { return name; }
+    public int getGamesPlayed() { return gamesPlayed; }
+    public int getGamesWon() { return gamesWon; }
+    public int getRoomsCompleted() { return roomsCompleted; }
+    public int getBestEscapeSeconds() { return bestEscapeSeconds; }
+    public PlayerStats getStats() { return stats; }
+    public String getSetting(String key) { return settings.get(key); }
+    
+    public void setStats(PlayerStats stats) { this.stats = stats; }
+    public void setSetting(String key, String value) { settings.put(key, value); }
+}
@@ -0,0 +1,80 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * PlayerStats keeps a few exponentially weighted averages of how a player is
+ * doing, updated in constant time after every answer and time-up, and a
+ * filter of the puzzles they have already been given
+ */
+public class PlayerStats {
+    private static final double ALPHA = 0.3; // weight of the newest observation
+    
+    private double pace;      // share of the countdown used per solved puzzle; a time-up counts as 1
+    private double errorRate; // wrong answers per attempt
+    private int solved;
+    private int wrong;
+    private int timeUps;
+    private PuzzleFilter seenPuzzles = new PuzzleFilter(); // fingerprints of every puzzle the player was given
+    
+    public PlayerStats() {
+        // Start a little below average until the player shows otherwise
+        this.pace = 0.6;
+        this.errorRate = 0.4;
+    }
+    
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeDouble(pace);
+        out.writeDouble(errorRate);
+        out.writeInt(solved);
+        out.writeInt(wrong);
+        out.writeInt(timeUps);
+        seenPuzzles.writeTo(out);
+    }
+    
+    public static PlayerStats readFrom(DataInput in) throws IOException {
+        PlayerStats stats = new PlayerStats();
+        stats.pace = in.readDouble();
+        stats.errorRate = in.readDouble();
+        stats.solved = in.readInt();
+        stats.wrong = in.readInt();
+        stats.timeUps = in.readInt();
+        stats.seenPuzzles = PuzzleFilter.readFrom(in);
+        return stats;
+    }
+    
+    public void recordSolve(int secondsUsed, int timeLimit) {
+        pace = ewma(pace, Math.min(1.0, (double) secondsUsed / Math.max(1, timeLimit)));
+        errorRate = ewma(errorRate, 0);
+        solved++;
+    }
+    
+    public void recordWrongAnswer() {
+        errorRate = ewma(errorRate, 1);
+        wrong++;
+    }
+    
+    public void recordTimeUp() {
+        pace = ewma(pace, 1);
+        timeUps++;
+    }
+    
+    // Averages that keep decaying toward zero are flushed to it, as subnormal doubles are very slow
+    private static double ewma(double average, double sample) {
+        double next = average + ALPHA * (sample - average);
+        return next < 1e-9 ? 0 : next;
+    }
+    
+    // 0 for a struggling player, 1 for one who answers fast and never misses
+    public double getSkill() {
+        return 1 - (0.6 * pace + 0.4 * errorRate);
+    }
+    
+    // Getters
+    public double getPace() { return pace; }
+    public double getErrorRate() { return errorRate; }
+    public int getSolved() { return solved; }
+    public int getWrong() { return wrong; }
+    public int getTimeUps() { return timeUps; }
+    public PuzzleFilter getSeenPuzzles() { return seenPuzzles; }
+}
@@ -0,0 +1,894 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ProfileStore keeps player profiles on disk, keyed by player name.
+ *
+ * Profiles are appended to a data file and never rewritten in place; an
+ * open-addressing hash index in a memory-mapped file points each name at its
+ * newest record, so a lookup is a few probes of mapped memory and one or two
+ * positional reads. When more than half of the data file is old versions, a
+ * background thread copies the live records into a new generation of files
+ * while reads and writes carry on, then switches over under a short lock.
+ *
+ * Files are named by generation, and a small CURRENT file names the live
+ * pair, so no file is renamed while it is mapped. The index can always be
+ * rebuilt from the data file: if it is missing, stale or behind the data
+ * file after a crash, the store repairs it on open. Writes are not forced to
+ * disk one by one; call flush for that.
+ *
+ * Safe for concurrent use: lookups share a read lock, writes take the write lock.
+ * An interrupt that lands during file I/O closes the channel for every thread,
+ * so reads and writes run with the caller's interrupt flag cleared, and
+ * reopen the data file if an interrupt gets through anyway.
+ */
+public class ProfileStore implements Closeable {
+    private static final int DATA_MAGIC = 0x50524F46; // "PROF"
+    private static final int INDEX_MAGIC = 0x50524958; // "PRIX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int DATA_HEADER_BYTES = 16; // magic, format version, generation
+    private static final int RECORD_HEADER_BYTES = 6; // payload length, name length; then name and payload
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final long INITIAL_SLOTS = 1 << 16;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    private static final int SCAN_BUFFER_BYTES = 1 << 20;
+    private static final String CURRENT_FILE = "CURRENT";
+    
+    private final Path directory;
+    private final ReentrantReadWriteLock lock;
+    private final AtomicBoolean compacting;
+    private final ExecutorService compactor;
+    private long generation;
+    private FileChannel data;
+    private Index index;
+    private volatile boolean closed;
+    
+    public ProfileStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.lock = new ReentrantReadWriteLock();
+        this.compacting = new AtomicBoolean();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profile-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(directory);
+        open();
+    }
+    
+    private void open() throws IOException {
+        long[] current = readCurrent();
+        generation = current[0];
+        data = FileChannel.open(dataPath(generation), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (data.size() == 0) {
+            writeDataHeader(data, generation);
+        } else {
+            checkDataHeader(data, generation);
+        }
+        
+        index = Index.open(directory, generation, (int) current[1]);
+        if (index == null || index.getDataLength() > data.size()) {
+            // Missing, corrupt or ahead of the data that reached the disk: rebuild it from the data file
+            if (index != null) index.close();
+            index = Index.create(directory, generation, (int) current[1] + 1, INITIAL_SLOTS);
+            index.setDataLength(DATA_HEADER_BYTES);
+            replayInto(data, index, DATA_HEADER_BYTES);
+            writeCurrent(generation, index.version);
+        } else if (index.getDataLength() < data.size()) {
+            // Records written after the index was last flushed
+            replayInto(data, index, index.getDataLength());
+            writeCurrent(generation, index.version);
+        }
+        deleteStaleFiles();
+    }
+    
+    /**
+     * Indexes every complete record from the offset to the end of the file.
+     * A record cut short by a crash is dropped from the file.
+     */
+    private void replayInto(FileChannel channel, Index target, long from) throws IOException {
+        RecordScanner scanner = new RecordScanner(channel, from, channel.size());
+        while (scanner.next()) {
+            indexRecord(channel, target, scanner.name, scanner.record.length, scanner.offset);
+        }
+        if (scanner.position < channel.size()) {
+            channel.truncate(scanner.position);
+        }
+        target.setDataLength(scanner.position);
+    }
+    
+    // The player's profile, or null if the store has none
+    public PlayerProfile get(String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        boolean interrupted = Thread.interrupted();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                FileChannel channel;
+                lock.readLock().lock();
+                try {
+                    checkOpen();
+                    channel = data;
+                    try {
+                        return lookup(channel, name, nameBytes, hash);
+                    } catch (ClosedChannelException e) {
+                        if (closed || attempt == 2) throw e;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                reopenData(channel);
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+    
+    private PlayerProfile lookup(FileChannel channel, String name, byte[] nameBytes, long hash) throws IOException {
+        for (long slot = hash & index.mask; ; slot = (slot + 1) & index.mask) {
+            long slotHash = index.hashAt(slot);
+            if (slotHash == 0) {
+                return null;
+            }
+            if (slotHash == hash) {
+                byte[] payload = readPayloadIfNamed(channel, index.offsetAt(slot), nameBytes);
+                if (payload != null) {
+                    return PlayerProfile.fromBytes(name, payload);
+                }
+            }
+        }
+    }
+    
+    // Replace a data channel closed by an interrupt, unless another thread already has
+    private void reopenData(FileChannel failed) throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (data == failed && !failed.isOpen()) {
+                data = FileChannel.open(dataPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public PlayerProfile getOrCreate(String name) throws IOException {
+        PlayerProfile profile = get(name);
+        return profile != null ? profile : new PlayerProfile(name);
+    }
+    
+    // Store a profile, replacing any earlier version
+    public void put(PlayerProfile profile) throws IOException {
+        byte[] nameBytes = profile.getName().getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Player name is longer than " + MAX_NAME_BYTES + " bytes");
+        }
+        byte[] payload = profile.toBytes();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + nameBytes.length + payload.length);
+        record.putInt(payload.length).putShort((short) nameBytes.length).put(nameBytes).put(payload).flip();
+        
+        boolean compact;
+        boolean interrupted = Thread.interrupted();
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            try {
+                append(record, profile.getName());
+            } catch (ClosedChannelException e) {
+                if (closed || data.isOpen()) throw e;
+                data = FileChannel.open(dataPath(generation), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                append(record.rewind(), profile.getName());
+            }
+            long garbage = index.getDataLength() - DATA_HEADER_BYTES - index.getLiveBytes();
+            compact = index.getDataLength() > MIN_COMPACTION_BYTES && garbage > index.getLiveBytes();
+        } finally {
+            lock.writeLock().unlock();
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        if (compact && !compacting.get()) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        if (!closed) System.err.println("Profile compaction failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed meanwhile
+            }
+        }
+    }
+    
+    // Write a record at the end of the data file and index it; call with the write lock held
+    private void append(ByteBuffer record, String name) throws IOException {
+        long offset = index.getDataLength();
+        writeFully(data, record, offset);
+        index.setDataLength(offset + record.capacity());
+        int version = index.version;
+        indexRecord(data, index, name, record.capacity(), offset);
+        if (index.version != version) {
+            writeCurrent(generation, index.version);
+        }
+    }
+    
+    /**
+     * Points the index at a record, replacing the entry for the same name if
+     * there is one, and grows the index when it gets too full.
+     */
+    private static void indexRecord(FileChannel channel, Index target, String name, int size, long offset) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(name);
+        for (long slot = hash & target.mask; ; slot = (slot + 1) & target.mask) {
+            long slotHash = target.hashAt(slot);
+            if (slotHash == 0) {
+                target.set(slot, hash, offset);
+                target.setCount(target.getCount() + 1);
+                target.setLiveBytes(target.getLiveBytes() + size);
+                if (target.getCount() > target.capacity * MAX_LOAD_FACTOR) {
+                    target.grow();
+                }
+                return;
+            }
+            if (slotHash == hash) {
+                long oldOffset = target.offsetAt(slot);
+                int oldSize = matchingRecordSize(channel, oldOffset, nameBytes);
+                if (oldSize > 0) {
+                    target.set(slot, hash, offset);
+                    target.setLiveBytes(target.getLiveBytes() - oldSize + size);
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Copies the newest version of every profile into a new generation of
+     * files and switches to them. Reads and writes continue during the copy;
+     * only records written meanwhile are copied under the write lock.
+     * Does nothing if a compaction is already running.
+     */
+    public void compact() throws IOException {
+        if (!compacting.compareAndSet(false, true)) return;
+        try {
+            compactGeneration();
+        } finally {
+            compacting.set(false);
+        }
+    }
+    
+    private void compactGeneration() throws IOException {
+        FileChannel oldData;
+        long oldGeneration;
+        long copiedUpTo;
+        long liveCount;
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            oldData = data;
+            oldGeneration = generation;
+            copiedUpTo = index.getDataLength();
+            liveCount = index.getCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        long newGeneration = oldGeneration + 1;
+        long slots = INITIAL_SLOTS;
+        while (liveCount > slots * MAX_LOAD_FACTOR / 2) {
+            slots <<= 1;
+        }
+        Files.deleteIfExists(dataPath(newGeneration));
+        FileChannel newData = FileChannel.open(dataPath(newGeneration), StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Index newIndex = null;
+        boolean switched = false;
+        try {
+            writeDataHeader(newData, newGeneration);
+            newIndex = Index.create(directory, newGeneration, 0, slots);
+            RecordWriter out = new RecordWriter(newData, DATA_HEADER_BYTES);
+            
+            // Everything below copiedUpTo is immutable, so it is read without the lock
+            RecordScanner scanner = new RecordScanner(oldData, DATA_HEADER_BYTES, copiedUpTo);
+            while (scanner.next()) {
+                long hash = hash(scanner.name);
+                boolean live;
+                lock.readLock().lock();
+                try {
+                    checkOpen();
+                    live = index.contains(hash, scanner.offset);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (live) {
+                    // Names are unique among live records, so no comparison is needed
+                    newIndex.insertNew(hash, out.append(scanner.record));
+                    newIndex.setCount(newIndex.getCount() + 1);
+                    newIndex.setLiveBytes(newIndex.getLiveBytes() + scanner.record.length);
+                    if (newIndex.getCount() > newIndex.capacity * MAX_LOAD_FACTOR) {
+                        newIndex.grow();
+                    }
+                }
+            }
+            out.flush();
+            
+            lock.writeLock().lock();
+            try {
+                checkOpen();
+                // Catch up with the records written during the copy, then switch
+                long position = out.position;
+                RecordScanner tail = new RecordScanner(data, copiedUpTo, index.getDataLength());
+                while (tail.next()) {
+                    writeFully(newData, ByteBuffer.wrap(tail.record), position);
+                    indexRecord(newData, newIndex, tail.name, tail.record.length, position);
+                    position += tail.record.length;
+                }
+                newIndex.setDataLength(position);
+                newData.force(true);
+                newIndex.force();
+                writeCurrent(newGeneration, newIndex.version);
+                Index oldIndex = index;
+                oldData = data; // reopened if an interrupt closed it during the copy
+                data = newData;
+                index = newIndex;
+                generation = newGeneration;
+                switched = true;
+                oldData.close();
+                oldIndex.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            deleteStaleFiles();
+        } finally {
+            if (!switched) {
+                newData.close();
+                if (newIndex != null) newIndex.close();
+                Files.deleteIfExists(dataPath(newGeneration));
+                deleteStaleFiles();
+            }
+        }
+    }
+    
+    // Force written profiles and the index to disk
+    public void flush() throws IOException {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            data.force(false);
+            index.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        // Not shutdownNow: interrupting the compactor would close the data file it is reading
+        compactor.shutdown();
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            if (data.isOpen()) data.force(false);
+            index.force();
+            data.close();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Number of profiles stored
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.getCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Bytes in the data file, including versions a compaction has yet to remove
+    public long getDataBytes() {
+        lock.readLock().lock();
+        try {
+            return index.getDataLength();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * The player's saved stats, or fresh ones for a new player. Errors are
+     * reported and treated as a new player, so a bad disk never stops a game.
+     */
+    public PlayerStats loadStats(String name) {
+        try {
+            PlayerProfile profile = get(name);
+            return profile != null ? profile.getStats() : new PlayerStats();
+        } catch (IOException e) {
+            System.err.println("Could not load profile for " + name + ": " + e.getMessage());
+            return new PlayerStats();
+        }
+    }
+    
+    /**
+     * Loads each player's stats from this store when the engine starts a game
+     * and saves their profile when it ends
+     */
+    public void track(GameEngine engine) {
+        engine.setStatsLoader(this::loadStats);
+        engine.addListener(recorder(engine));
+    }
+    
+    // A listener that saves the engine's player to this store at the end of each game
+    public GameEventListener recorder(GameEngine engine) {
+        return new GameRecorder(engine);
+    }
+    
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Profile store is closed");
+        }
+    }
+    
+    private Path dataPath(long generation) {
+        return directory.resolve("profiles-" + generation + ".dat");
+    }
+    
+    // CURRENT holds the live generation and index version, e.g. "3 1"
+    private long[] readCurrent() throws IOException {
+        Path current = directory.resolve(CURRENT_FILE);
+        if (!Files.exists(current)) {
+            return new long[] {0, 0};
+        }
+        String[] parts = Files.readString(current, StandardCharsets.US_ASCII).trim().split(" ");
+        try {
+            return new long[] {Long.parseLong(parts[0]), parts.length > 1 ? Integer.parseInt(parts[1]) : 0};
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt " + current, e);
+        }
+    }
+    
+    private void writeCurrent(long generation, int indexVersion) throws IOException {
+        Path temp = directory.resolve(CURRENT_FILE + ".tmp");
+        Files.writeString(temp, generation + " " + indexVersion + "\n", StandardCharsets.US_ASCII);
+        Files.move(temp, directory.resolve(CURRENT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Remove data and index files other than the live pair; files still mapped elsewhere are left for next time
+    private void deleteStaleFiles() {
+        List<Path> keep = Arrays.asList(dataPath(generation), Index.path(directory, generation, index.version));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "profiles-*.{dat,idx}")) {
+            for (Path file : files) {
+                if (!keep.contains(file)) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // Still mapped on some platforms; retried on the next compaction or open
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not clean up old profile files: " + e.getMessage());
+        }
+    }
+    
+    private static void writeDataHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_BYTES);
+        header.putInt(DATA_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        writeFully(channel, header, 0);
+    }
+    
+    private static void checkDataHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_BYTES);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != DATA_MAGIC || header.getInt(4) != FORMAT_VERSION || header.getLong(8) != generation) {
+            throw new IOException("Not a profile data file of generation " + generation);
+        }
+    }
+    
+    // The record's payload if it belongs to the named player, otherwise null
+    private static byte[] readPayloadIfNamed(FileChannel channel, long offset, byte[] nameBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(channel, header, offset);
+        int payloadLength = header.getInt(0);
+        int nameLength = header.getShort(4) & 0xffff;
+        if (nameLength != nameBytes.length) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(nameLength + payloadLength);
+        readFully(channel, body, offset + RECORD_HEADER_BYTES);
+        byte[] bytes = body.array();
+        if (!Arrays.equals(bytes, 0, nameLength, nameBytes, 0, nameLength)) {
+            return null;
+        }
+        return Arrays.copyOfRange(bytes, nameLength, bytes.length);
+    }
+    
+    // Size of the record if it belongs to the named player, otherwise 0
+    private static int matchingRecordSize(FileChannel channel, long offset, byte[] nameBytes) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER_BYTES + nameBytes.length);
+        readFully(channel, head, offset);
+        int payloadLength = head.getInt(0);
+        int nameLength = head.getShort(4) & 0xffff;
+        if (nameLength != nameBytes.length
+                || !Arrays.equals(head.array(), RECORD_HEADER_BYTES, head.capacity(), nameBytes, 0, nameBytes.length)) {
+            return 0;
+        }
+        return RECORD_HEADER_BYTES + nameLength + payloadLength;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of profile data at " + offset);
+            }
+        }
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+    }
+    
+    // Never 0, which marks an empty index slot
+    private static long hash(String name) {
+        long hash = ConsistentHashRouter.hash(name);
+        return hash != 0 ? hash : 1;
+    }
+    
+    /**
+     * The hash index: a header followed by slots of (name hash, record
+     * offset), mapped in segments of up to 1 GB. Slots are claimed by linear
+     * probing and never freed, as profiles are never deleted. Growing writes
+     * a new version of the file and maps that instead.
+     */
+    private static final class Index {
+        private static final int HEADER_BYTES = 64; // magic, format, generation, capacity, count, data length, live bytes
+        private static final int SLOT_BYTES = 16;
+        private static final int SEGMENT_SLOT_BITS = 26;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SLOT_BITS) - 1;
+        
+        private final Path directory;
+        private final long generation;
+        int version;
+        long capacity;
+        long mask;
+        private FileChannel channel;
+        private MappedByteBuffer header;
+        private MappedByteBuffer[] segments;
+        
+        private Index(Path directory, long generation, int version) {
+            this.directory = directory;
+            this.generation = generation;
+            this.version = version;
+        }
+        
+        static Path path(Path directory, long generation, int version) {
+            return directory.resolve("profiles-" + generation + "." + version + ".idx");
+        }
+        
+        static Index create(Path directory, long generation, int version, long capacity) throws IOException {
+            Index index = new Index(directory, generation, version);
+            Path path = path(directory, generation, version);
+            Files.deleteIfExists(path);
+            index.map(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE), capacity);
+            index.header.putInt(0, INDEX_MAGIC);
+            index.header.putInt(4, FORMAT_VERSION);
+            index.header.putLong(8, generation);
+            index.header.putLong(16, capacity);
+            return index;
+        }
+        
+        // The index file, or null if it is missing or not a valid index for this generation
+        static Index open(Path directory, long generation, int version) throws IOException {
+            Path path = path(directory, generation, version);
+            if (!Files.exists(path) || Files.size(path) < HEADER_BYTES) {
+                return null;
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, head, 0);
+            long capacity = head.getLong(16);
+            if (head.getInt(0) != INDEX_MAGIC || head.getInt(4) != FORMAT_VERSION || head.getLong(8) != generation
+                    || Long.bitCount(capacity) != 1 || channel.size() < HEADER_BYTES + capacity * SLOT_BYTES) {
+                channel.close();
+                return null;
+            }
+            Index index = new Index(directory, generation, version);
+            index.map(channel, capacity);
+            return index;
+        }
+        
+        private void map(FileChannel channel, long capacity) throws IOException {
+            this.channel = channel;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            int segmentCount = (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_SLOT_BITS);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                long first = (long) s << SEGMENT_SLOT_BITS;
+                long slots = Math.min(capacity - first, 1L << SEGMENT_SLOT_BITS);
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * SLOT_BYTES, slots * SLOT_BYTES);
+            }
+        }
+        
+        long hashAt(long slot) {
+            return segments[(int) (slot >>> SEGMENT_SLOT_BITS)].getLong((int) ((slot & SEGMENT_MASK) * SLOT_BYTES));
+        }
+        
+        long offsetAt(long slot) {
+            return segments[(int) (slot >>> SEGMENT_SLOT_BITS)].getLong((int) ((slot & SEGMENT_MASK) * SLOT_BYTES) + 8);
+        }
+        
+        void set(long slot, long hash, long offset) {
+            MappedByteBuffer segment = segments[(int) (slot >>> SEGMENT_SLOT_BITS)];
+            int position = (int) ((slot & SEGMENT_MASK) * SLOT_BYTES);
+            // Offset first, so a reader that sees the hash also sees where the record is
+            segment.putLong(position + 8, offset);
+            segment.putLong(position, hash);
+        }
+        
+        // Whether the slot for this hash points at exactly this record
+        boolean contains(long hash, long offset) {
+            for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+                long slotHash = hashAt(slot);
+                if (slotHash == 0) return false;
+                if (slotHash == hash && offsetAt(slot) == offset) return true;
+            }
+        }
+        
+        // Claim the first free slot for a key known not to be in the index
+        void insertNew(long hash, long offset) {
+            long slot = hash & mask;
+            while (hashAt(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            set(slot, hash, offset);
+        }
+        
+        // Rehash into a file twice the size, then drop the old one
+        void grow() throws IOException {
+            Index bigger = create(directory, generation, version + 1, capacity * 2);
+            for (long slot = 0; slot < capacity; slot++) {
+                long hash = hashAt(slot);
+                if (hash != 0) {
+                    bigger.insertNew(hash, offsetAt(slot));
+                }
+            }
+            bigger.setCount(getCount());
+            bigger.setDataLength(getDataLength());
+            bigger.setLiveBytes(getLiveBytes());
+            Path oldPath = path(directory, generation, version);
+            channel.close();
+            try {
+                Files.deleteIfExists(oldPath);
+            } catch (IOException e) {
+                // Still mapped on some platforms; removed with the other stale files later
+            }
+            version = bigger.version;
+            map(bigger.channel, bigger.capacity);
+        }
+        
+        long getCount() { return header.getLong(24); }
+        long getDataLength() { return header.getLong(32); }
+        long getLiveBytes() { return header.getLong(40); }
+        void setCount(long count) { header.putLong(24, count); }
+        void setDataLength(long length) { header.putLong(32, length); }
+        void setLiveBytes(long bytes) { header.putLong(40, bytes); }
+        
+        void force() {
+            header.force();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Reads whole records in file order through a large buffer
+     */
+    private static final class RecordScanner {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer buffer;
+        private long bufferStart; // file offset of buffer index 0
+        long position; // offset just past the last complete record read
+        long offset;
+        byte[] record;
+        String name;
+        
+        RecordScanner(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.end = end;
+            this.buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+            this.buffer.limit(0);
+            this.bufferStart = start;
+            this.position = start;
+        }
+        
+        // Move to the next record; false at the end or at a record cut short
+        boolean next() throws IOException {
+            if (!fill(RECORD_HEADER_BYTES)) return false;
+            int at = (int) (position - bufferStart);
+            int payloadLength = buffer.getInt(at);
+            int nameLength = buffer.getShort(at + 4) & 0xffff;
+            if (payloadLength < 0 || nameLength > MAX_NAME_BYTES) {
+                return false; // garbage after a torn write
+            }
+            int size = RECORD_HEADER_BYTES + nameLength + payloadLength;
+            if (!fill(size)) return false;
+            at = (int) (position - bufferStart);
+            record = new byte[size];
+            buffer.get(at, record);
+            name = new String(record, RECORD_HEADER_BYTES, nameLength, StandardCharsets.UTF_8);
+            offset = position;
+            position += size;
+            return true;
+        }
+        
+        // Make sure the next size bytes are buffered; false if the range ends first
+        private boolean fill(int size) throws IOException {
+            if (position + size > end) return false;
+            if (bufferStart + buffer.limit() >= position + size) return true;
+            if (size > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(size);
+            } else {
+                buffer.position((int) (position - bufferStart));
+                buffer.compact();
+            }
+            bufferStart = position - buffer.position();
+            buffer.limit((int) Math.min(buffer.capacity(), end - bufferStart));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, bufferStart + buffer.position()) < 0) break;
+            }
+            buffer.flip();
+            return bufferStart + buffer.limit() >= position + size;
+        }
+    }
+    
+    /**
+     * Appends records sequentially through a large buffer
+     */
+    private static final class RecordWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        long position; // file offset of the next record
+        private long flushed;
+        
+        RecordWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+            this.position = start;
+            this.flushed = start;
+        }
+        
+        // Returns the record's offset
+        long append(byte[] record) throws IOException {
+            if (buffer.remaining() < record.length) {
+                flush();
+            }
+            long offset = position;
+            if (record.length > buffer.capacity()) {
+                writeFully(channel, ByteBuffer.wrap(record), offset);
+                flushed += record.length;
+            } else {
+                buffer.put(record);
+            }
+            position += record.length;
+            return offset;
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(channel, buffer, flushed);
+            flushed += buffer.limit();
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Adds up one game as it is played and saves it to the player's profile when it ends
+     */
+    private final class GameRecorder implements GameEventListener {
+        private final GameEngine engine;
+        private int rooms;
+        private int seconds;
+        
+        GameRecorder(GameEngine engine) {
+            this.engine = engine;
+        }
+        
+        @Override
+        public void onGameStarted(String playerName) {
+            rooms = 0;
+            seconds = 0;
+        }
+        
+        @Override
+        public void onRoomCompleted(int roomIndex, int timeRemaining) {
+            rooms++;
+            seconds += engine.getTimeLimit() - timeRemaining;
+        }
+        
+        @Override
+        public void onVictory(int livesLeft) {
+            save(true);
+        }
+        
+        @Override
+        public void onGameOver(int roomIndex) {
+            save(false);
+        }
+        
+        @Override
+        public void onGameQuit(int roomIndex) {
+            save(false);
+        }
+        
+        private void save(boolean won) {
+            Player player = engine.getPlayer();
+            try {
+                PlayerProfile profile = getOrCreate(player.getName());
+                profile.recordGame(won, rooms, seconds);
+                profile.setStats(player.getStats());
+                put(profile);
+            } catch (IOException e) {
+                System.err.println("Could not save profile for " + player.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    // Usage: java ProfileStore <directory> [profiles] - fills a store and times lookups
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ProfileStore <directory> [profiles]");
+            return;
+        }
+        int profiles = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        try (ProfileStore store = new ProfileStore(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            for (int i = 0; i < profiles; i++) {
+                store.put(new PlayerProfile("player" + i));
+            }
+            long putNanos = System.nanoTime() - start;
+            
+            java.util.Random random = new java.util.Random(1);
+            int lookups = Math.min(profiles, 1_000_000);
+            int found = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                if (store.get("player" + random.nextInt(profiles)) != null) found++;
+            }
+            long getNanos = System.nanoTime() - start;
+            System.out.printf("profiles=%d  data=%d MB  put %.2f us  get %.2f us  (found %d of %d)%n",
+                store.size(), store.getDataBytes() >> 20, putNanos / 1e3 / profiles, getNanos / 1e3 / lookups, found, lookups);
+        }
+    }
+}
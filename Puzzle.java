@@ -7,6 +7,7 @@ public abstract class Puzzle {
     protected String hint;
     protected boolean solved;
     protected PuzzleType type;
+    protected AnswerMatcher answerMatcher;
     
     public enum PuzzleType {
         RIDDLE, CAESAR_CIPHER, SUBSTITUTION_CIPHER, MATH, WORD_SCRAMBLE, LOGIC
@@ -26,10 +27,15 @@ public abstract class Puzzle {
     public String getHint() { return hint; }
     public boolean isSolved() { return solved; }
     public PuzzleType getType() { return type; }
+    public AnswerMatcher getAnswerMatcher() { return answerMatcher; }
+    
+    // Replace the exact match with a more forgiving one, or pass null to restore it
+    public void setAnswerMatcher(AnswerMatcher answerMatcher) { this.answerMatcher = answerMatcher; }
     
     // Check if the provided answer is correct
     public boolean checkAnswer(String userAnswer) {
         if (userAnswer == null) return false;
+        if (answerMatcher != null) return answerMatcher.matches(userAnswer);
         return answer.equalsIgnoreCase(userAnswer.trim());
     }
     
@@ -38,139 +44,33 @@ public abstract class Puzzle {
         this.solved = true;
     }
     
-    // Abstract method for puzzle-specific validation
-    public abstract boolean validateAnswer(String userAnswer);
-    
-    // Abstract method to get puzzle description
-    public abstract String getDescription();
-}
-
-/**
- * Riddle puzzle implementation
- */
-class RiddlePuzzle extends Puzzle {
-    public RiddlePuzzle(String question, String answer, String hint) {
-        super(question, answer, hint, PuzzleType.RIDDLE);
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        return checkAnswer(userAnswer);
+    /**
+     * 64-bit fingerprint for recognising a puzzle the player has seen before.
+     * Math puzzles are told apart by their question, as many share an answer;
+     * the rest by their answer, as re-encrypting or rescrambling the same
+     * phrase doesn't make a new puzzle.
+     */
+    public long fingerprint() {
+        return fingerprint(type, type == PuzzleType.MATH ? question : answer);
     }
     
-    @Override
-    public String getDescription() {
-        return "Solve this riddle to proceed:";
-    }
-}
-
-/**
- * Caesar cipher puzzle implementation
- */
-class CaesarCipherPuzzle extends Puzzle {
-    private int shift;
-    
-    public CaesarCipherPuzzle(String encryptedText, String answer, String hint, int shift) {
-        super(encryptedText, answer, hint, PuzzleType.CAESAR_CIPHER);
-        this.shift = shift;
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        return checkAnswer(userAnswer);
-    }
-    
-    @Override
-    public String getDescription() {
-        return "Decrypt this Caesar cipher (shift by " + shift + "):";
-    }
-    
-    public int getShift() { return shift; }
-}
-
-/**
- * Substitution cipher puzzle implementation
- */
-class SubstitutionCipherPuzzle extends Puzzle {
-    private String key;
-    
-    public SubstitutionCipherPuzzle(String encryptedText, String answer, String hint, String key) {
-        super(encryptedText, answer, hint, PuzzleType.SUBSTITUTION_CIPHER);
-        this.key = key;
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        return checkAnswer(userAnswer);
-    }
-    
-    @Override
-    public String getDescription() {
-        return "Decrypt this substitution cipher:";
-    }
-    
-    public String getKey() { return key; }
-}
-
-/**
- * Math puzzle implementation
- */
-class MathPuzzle extends Puzzle {
-    public MathPuzzle(String question, String answer, String hint) {
-        super(question, answer, hint, PuzzleType.MATH);
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        try {
-            int userNum = Integer.parseInt(userAnswer.trim());
-            int correctNum = Integer.parseInt(answer);
-            return userNum == correctNum;
-        } catch (NumberFormatException e) {
-            return false;
+    // FNV-1a over the upper-cased text, seeded with the type, then mixed so every bit depends on every input bit
+    public static long fingerprint(PuzzleType type, String text) {
+        long hash = 0xcbf29ce484222325L ^ type.ordinal();
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= Character.toUpperCase(text.charAt(i));
+            hash *= 0x100000001b3L;
         }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
     }
     
-    @Override
-    public String getDescription() {
-        return "Solve this math problem:";
-    }
-}
-
-/**
- * Word scramble puzzle implementation
- */
-class WordScramblePuzzle extends Puzzle {
-    public WordScramblePuzzle(String scrambledWord, String answer, String hint) {
-        super(scrambledWord, answer, hint, PuzzleType.WORD_SCRAMBLE);
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        return checkAnswer(userAnswer);
-    }
-    
-    @Override
-    public String getDescription() {
-        return "Unscramble this word:";
-    }
-}
-
-/**
- * Logic puzzle implementation
- */
-class LogicPuzzle extends Puzzle {
-    public LogicPuzzle(String question, String answer, String hint) {
-        super(question, answer, hint, PuzzleType.LOGIC);
-    }
-    
-    @Override
-    public boolean validateAnswer(String userAnswer) {
-        return checkAnswer(userAnswer);
-    }
+    // Abstract method for puzzle-specific validation
+    public abstract boolean validateAnswer(String userAnswer);
     
-    @Override
-    public String getDescription() {
-        return "Solve this logic puzzle:";
-    }
+    // Abstract method to get puzzle description
+    public abstract String getDescription();
 }
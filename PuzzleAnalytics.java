@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * PuzzleAnalytics turns engine events from any number of games into per-room
+ * statistics: solve-time quantiles, hint and death rates, and the most common
+ * wrong answers. Every structure has a fixed size, so memory stays bounded
+ * however much traffic arrives. Safe to register on many engines at once.
+ */
+public class PuzzleAnalytics implements GameEventListener {
+    private static final int TOP_WRONG_ANSWERS = 10;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2048;
+    private static final int MAX_ANSWER_LENGTH = 64;
+    
+    // Counter slots per room
+    private static final int ENTERED = 0;
+    private static final int COMPLETED = 1;
+    private static final int WRONG = 2;
+    private static final int HINTS = 3;
+    private static final int TIME_UPS = 4;
+    private static final int DEATHS = 5;
+    private static final int QUITS = 6;
+    private static final int COUNTERS = 7;
+    
+    private final int timeLimit;
+    private final AtomicReferenceArray<RoomStats> rooms;
+    private ScheduledExecutorService exporter;
+    
+    /**
+     * @param roomCapacity Rooms beyond this index are not tracked
+     * @param timeLimit Countdown length in seconds, used to turn time remaining into solve time
+     */
+    public PuzzleAnalytics(int roomCapacity, int timeLimit) {
+        this.timeLimit = timeLimit;
+        this.rooms = new AtomicReferenceArray<>(roomCapacity);
+    }
+    
+    // Stats for a room, created on first use; null if the room is out of range
+    private RoomStats room(int roomIndex) {
+        if (roomIndex < 0 || roomIndex >= rooms.length()) return null;
+        RoomStats stats = rooms.get(roomIndex);
+        if (stats == null) {
+            rooms.compareAndSet(roomIndex, null, new RoomStats());
+            stats = rooms.get(roomIndex);
+        }
+        return stats;
+    }
+    
+    // Stats for a room if anything has been recorded there
+    private RoomStats existing(int roomIndex) {
+        return roomIndex >= 0 && roomIndex < rooms.length() ? rooms.get(roomIndex) : null;
+    }
+    
+    private void count(int roomIndex, int counter) {
+        RoomStats stats = room(roomIndex);
+        if (stats != null) {
+            stats.counters.incrementAndGet(counter);
+        }
+    }
+    
+    @Override
+    public void onGameStarted(String playerName) {
+        count(0, ENTERED);
+    }
+    
+    @Override
+    public void onRoomEntered(int roomIndex) {
+        count(roomIndex, ENTERED);
+    }
+    
+    @Override
+    public void onRoomCompleted(int roomIndex, int timeRemaining) {
+        RoomStats stats = room(roomIndex);
+        if (stats != null) {
+            stats.counters.incrementAndGet(COMPLETED);
+            stats.solveSeconds.record(timeLimit - timeRemaining);
+        }
+    }
+    
+    @Override
+    public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+        RoomStats stats = room(roomIndex);
+        if (stats != null) {
+            stats.counters.incrementAndGet(WRONG);
+            if (answer != null) {
+                String normalized = FuzzyAnswerMatcher.normalize(answer);
+                if (!normalized.isEmpty() && normalized.length() <= MAX_ANSWER_LENGTH) {
+                    stats.recordWrongAnswer(normalized);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void onHintUsed(int roomIndex, int hintsLeft) {
+        count(roomIndex, HINTS);
+    }
+    
+    @Override
+    public void onTimeUp(int roomIndex, int livesLeft) {
+        count(roomIndex, TIME_UPS);
+    }
+    
+    @Override
+    public void onGameOver(int roomIndex) {
+        count(roomIndex, DEATHS);
+    }
+    
+    @Override
+    public void onGameQuit(int roomIndex) {
+        count(roomIndex, QUITS);
+    }
+    
+    // Live queries
+    public long getEntries(int roomIndex) { return counter(roomIndex, ENTERED); }
+    public long getCompletions(int roomIndex) { return counter(roomIndex, COMPLETED); }
+    public long getWrongAnswers(int roomIndex) { return counter(roomIndex, WRONG); }
+    public long getDeaths(int roomIndex) { return counter(roomIndex, DEATHS); }
+    
+    // Hints used per player who reached the room
+    public double getHintRate(int roomIndex) {
+        return ratio(counter(roomIndex, HINTS), getEntries(roomIndex));
+    }
+    
+    // Share of players who reached the room and lost their last life there
+    public double getDeathRate(int roomIndex) {
+        return ratio(getDeaths(roomIndex), getEntries(roomIndex));
+    }
+    
+    // Seconds of countdown used to solve the room at quantile q, or -1 if never solved
+    public long getSolveTimeQuantile(int roomIndex, double q) {
+        RoomStats stats = existing(roomIndex);
+        return stats != null ? stats.solveSeconds.quantile(q) : -1;
+    }
+    
+    // Most frequent wrong answers, most common first, with their estimated counts
+    public String[] getTopWrongAnswers(int roomIndex) {
+        RoomStats stats = existing(roomIndex);
+        return stats != null ? stats.topWrongAnswers() : new String[0];
+    }
+    
+    public long estimateWrongAnswerCount(int roomIndex, String answer) {
+        RoomStats stats = existing(roomIndex);
+        return stats != null ? stats.wrongAnswers.estimate(FuzzyAnswerMatcher.normalize(answer)) : 0;
+    }
+    
+    private long counter(int roomIndex, int counter) {
+        RoomStats stats = existing(roomIndex);
+        return stats != null ? stats.counters.get(counter) : 0;
+    }
+    
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+    
+    /**
+     * Writes every tracked room as a JSON array
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out).beginArray();
+        for (int i = 0; i < rooms.length(); i++) {
+            RoomStats stats = rooms.get(i);
+            if (stats == null) continue;
+            json.beginObject()
+                .name("room").value(i)
+                .name("entered").value(stats.counters.get(ENTERED))
+                .name("completed").value(stats.counters.get(COMPLETED))
+                .name("wrongAnswers").value(stats.counters.get(WRONG))
+                .name("timeUps").value(stats.counters.get(TIME_UPS))
+                .name("deaths").value(stats.counters.get(DEATHS))
+                .name("quits").value(stats.counters.get(QUITS))
+                .name("hintRate").value(getHintRate(i))
+                .name("deathRate").value(getDeathRate(i))
+                .name("solveSecondsP50").value(stats.solveSeconds.quantile(0.5))
+                .name("solveSecondsP90").value(stats.solveSeconds.quantile(0.9))
+                .name("solveSecondsP99").value(stats.solveSeconds.quantile(0.99))
+                .name("topWrongAnswers").beginArray();
+            for (String entry : stats.topWrongAnswers()) {
+                json.value(entry);
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+    
+    /**
+     * Rewrites the file with the current statistics every period, via a
+     * temporary file so readers never see a half-written export
+     */
+    public synchronized void startExport(Path file, long period, TimeUnit unit) {
+        if (exporter != null) {
+            throw new IllegalStateException("Export already running");
+        }
+        exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleAtFixedRate(() -> {
+            try {
+                export(file);
+            } catch (IOException e) {
+                System.err.println("Analytics export failed: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+    
+    public synchronized void stopExport() {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+    }
+    
+    public void export(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writeJson(out);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Everything tracked for one room
+     */
+    private static class RoomStats {
+        private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+        private final QuantileSketch solveSeconds = new QuantileSketch();
+        private final CountMinSketch wrongAnswers = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        // Current heavy hitters; a new answer replaces the smallest once its estimate overtakes it
+        private final String[] topAnswers = new String[TOP_WRONG_ANSWERS];
+        private final long[] topCounts = new long[TOP_WRONG_ANSWERS];
+        private int topSize;
+        
+        void recordWrongAnswer(String answer) {
+            long estimate = wrongAnswers.add(answer);
+            synchronized (this) {
+                int smallest = -1;
+                for (int i = 0; i < topSize; i++) {
+                    if (topAnswers[i].equals(answer)) {
+                        topCounts[i] = estimate;
+                        return;
+                    }
+                    if (smallest < 0 || topCounts[i] < topCounts[smallest]) {
+                        smallest = i;
+                    }
+                }
+                if (topSize < TOP_WRONG_ANSWERS) {
+                    topAnswers[topSize] = answer;
+                    topCounts[topSize++] = estimate;
+                } else if (estimate > topCounts[smallest]) {
+                    topAnswers[smallest] = answer;
+                    topCounts[smallest] = estimate;
+                }
+            }
+        }
+        
+        // Entries as "answer=count", most frequent first
+        synchronized String[] topWrongAnswers() {
+            Integer[] order = new Integer[topSize];
+            for (int i = 0; i < topSize; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(topCounts[b], topCounts[a]));
+            String[] result = new String[topSize];
+            for (int i = 0; i < topSize; i++) {
+                result[i] = topAnswers[order[i]] + "=" + topCounts[order[i]];
+            }
+            return result;
+        }
+    }
+}
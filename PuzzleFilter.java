@@ -0,0 +1,190 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * PuzzleFilter remembers which puzzles a player has seen, as a scalable Bloom
+ * filter of puzzle fingerprints. It starts with room for 256 puzzles and adds
+ * a stage twice the size of the last whenever one fills up, each stage with a
+ * tighter false-positive rate, so the overall rate stays under 2% however
+ * many puzzles are added. A thousand puzzles take about 2 KB.
+ *
+ * A false positive only means a fresh puzzle is passed over; a puzzle that
+ * was added is never reported as unseen. Not thread-safe; a player's filter
+ * is used by the thread running their game.
+ */
+public class PuzzleFilter {
+    private static final int FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final double INITIAL_FALSE_POSITIVE_RATE = 0.01;
+    private static final double TIGHTENING_RATIO = 0.5; // each stage halves the rate of the one before
+    private static final int MAX_STAGES = 24;
+    private static final int MAX_STAGE_WORDS = 1 << 26; // sanity limit when reading, 512 MB
+    
+    private Stage[] stages;
+    private int stageCount;
+    private int count;
+    
+    public PuzzleFilter() {
+        this.stages = new Stage[4];
+    }
+    
+    // Whether the fingerprint may have been added; false means it definitely was not
+    public boolean mightContain(long fingerprint) {
+        // Newest stage first: it is the largest, so it holds most of the fingerprints
+        for (int i = stageCount - 1; i >= 0; i--) {
+            if (stages[i].contains(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Adds a fingerprint.
+     * @return false if it (probably) was already there
+     */
+    public boolean add(long fingerprint) {
+        if (mightContain(fingerprint)) {
+            return false;
+        }
+        if (stageCount == 0 || stages[stageCount - 1].isFull()) {
+            addStage();
+        }
+        stages[stageCount - 1].add(fingerprint);
+        count++;
+        return true;
+    }
+    
+    private void addStage() {
+        if (stageCount == MAX_STAGES) {
+            // Over 4 billion puzzles; keep filling the last stage rather than growing further
+            stages[stageCount - 1].capacity = Integer.MAX_VALUE;
+            return;
+        }
+        if (stageCount == stages.length) {
+            stages = Arrays.copyOf(stages, stageCount * 2);
+        }
+        int capacity = INITIAL_CAPACITY << stageCount;
+        double rate = INITIAL_FALSE_POSITIVE_RATE * Math.pow(TIGHTENING_RATIO, stageCount);
+        stages[stageCount++] = new Stage(capacity, rate);
+    }
+    
+    // Number of distinct puzzles added
+    public int size() {
+        return count;
+    }
+    
+    // Bytes of bit arrays held, the bulk of the filter's memory
+    public int getByteSize() {
+        int bytes = 0;
+        for (int i = 0; i < stageCount; i++) {
+            bytes += stages[i].bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+    
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(count);
+        out.writeByte(stageCount);
+        for (int i = 0; i < stageCount; i++) {
+            Stage stage = stages[i];
+            out.writeInt(stage.capacity);
+            out.writeInt(stage.count);
+            out.writeByte(stage.hashes);
+            out.writeInt(stage.bits.length);
+            for (long word : stage.bits) {
+                out.writeLong(word);
+            }
+        }
+    }
+    
+    public static PuzzleFilter readFrom(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported puzzle filter version " + version);
+        }
+        PuzzleFilter filter = new PuzzleFilter();
+        filter.count = in.readInt();
+        int stageCount = in.readUnsignedByte();
+        if (stageCount > MAX_STAGES) {
+            throw new IOException("Puzzle filter has " + stageCount + " stages");
+        }
+        filter.stages = new Stage[Math.max(4, stageCount)];
+        for (int i = 0; i < stageCount; i++) {
+            int capacity = in.readInt();
+            int stageItems = in.readInt();
+            int hashes = in.readUnsignedByte();
+            int words = in.readInt();
+            if (words <= 0 || words > MAX_STAGE_WORDS || hashes == 0) {
+                throw new IOException("Corrupt puzzle filter stage");
+            }
+            long[] bits = new long[words];
+            for (int w = 0; w < words; w++) {
+                bits[w] = in.readLong();
+            }
+            filter.stages[i] = new Stage(capacity, stageItems, hashes, bits);
+        }
+        filter.stageCount = stageCount;
+        return filter;
+    }
+    
+    /**
+     * One fixed-size Bloom filter. The k bit positions come from the two
+     * halves of the fingerprint by double hashing, mapped onto the bit range
+     * with a multiply and shift instead of a division.
+     */
+    private static final class Stage {
+        final long[] bits;
+        final long bitCount;
+        final int hashes;
+        int capacity;
+        int count;
+        
+        Stage(int capacity, double falsePositiveRate) {
+            // Optimal size and hash count for the capacity and rate, in whole 64-bit words
+            double ln2 = Math.log(2);
+            long bitsNeeded = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.bits = new long[(int) ((bitsNeeded + 63) >>> 6)];
+            this.bitCount = bits.length * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+            this.capacity = capacity;
+        }
+        
+        Stage(int capacity, int count, int hashes, long[] bits) {
+            this.bits = bits;
+            this.bitCount = bits.length * 64L;
+            this.hashes = hashes;
+            this.capacity = capacity;
+            this.count = count;
+        }
+        
+        boolean isFull() {
+            return count >= capacity;
+        }
+        
+        void add(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((h1 + i * h2) & 0xffffffffL) * bitCount >>> 32;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+        
+        boolean contains(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((h1 + i * h2) & 0xffffffffL) * bitCount >>> 32;
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
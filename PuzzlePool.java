@@ -0,0 +1,123 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * PuzzlePool keeps pre-generated math puzzles for each difficulty tier, so
+ * handing out a puzzle is normally just an array read. A tier is refilled in
+ * one batch when it runs dry; with a refill executor the next batch is
+ * generated in the background once a tier runs low, keeping generation off
+ * the caller's path entirely.
+ */
+public class PuzzlePool {
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int MAX_SKIPS = 8; // puzzles passed over before a repeat is handed out anyway
+    
+    private final Map<Difficulty, Tier> tiers;
+    private final int batchSize;
+    private final Executor refillExecutor; // null to refill on the calling thread
+    
+    /**
+     * One tier's puzzles. Each tier has its own generator so background
+     * refills of different tiers never share a Random.
+     */
+    private static class Tier {
+        final MathPuzzleGenerator generator;
+        String[] questions;
+        int[] answers;
+        int next;
+        int size;
+        CompletableFuture<Tier> pending; // next batch being generated in the background
+        
+        Tier(MathPuzzleGenerator generator, int capacity) {
+            this.generator = generator;
+            this.questions = new String[capacity];
+            this.answers = new int[capacity];
+        }
+    }
+    
+    public PuzzlePool() {
+        this(new Random(), DEFAULT_BATCH_SIZE, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-pool-refill");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+    
+    // Refills on the calling thread, so a seeded pool hands out the same puzzles every run
+    public PuzzlePool(Random random, int batchSize) {
+        this(random, batchSize, null);
+    }
+    
+    public PuzzlePool(Random random, int batchSize, Executor refillExecutor) {
+        this.batchSize = batchSize;
+        this.refillExecutor = refillExecutor;
+        this.tiers = new EnumMap<>(Difficulty.class);
+        for (Difficulty difficulty : Difficulty.values()) {
+            tiers.put(difficulty, new Tier(new MathPuzzleGenerator(new Random(random.nextLong())), batchSize));
+        }
+    }
+    
+    // Take the next math puzzle for the tier, generating a fresh batch if needed
+    public synchronized MathPuzzle nextMathPuzzle(Difficulty difficulty) {
+        Tier tier = tiers.get(difficulty);
+        if (tier.next == tier.size) {
+            refill(difficulty, tier);
+        }
+        int index = tier.next++;
+        String question = tier.questions[index];
+        tier.questions[index] = null;
+        MathPuzzle puzzle = new MathPuzzle(question, String.valueOf(tier.answers[index]), hintFor(difficulty));
+        if (refillExecutor != null && tier.pending == null && tier.size - tier.next <= batchSize / 4) {
+            // Running low: start the next batch while this one is still being handed out
+            tier.pending = CompletableFuture.supplyAsync(() -> generate(difficulty, tier.generator), refillExecutor);
+        }
+        return puzzle;
+    }
+    
+    /**
+     * Take the next math puzzle for the tier that the player has not seen,
+     * and record it as seen. Puzzles passed over are dropped from the pool.
+     */
+    public synchronized MathPuzzle nextMathPuzzle(Difficulty difficulty, PuzzleFilter seen) {
+        MathPuzzle puzzle = nextMathPuzzle(difficulty);
+        // add reports whether the puzzle was new, so each candidate is looked up once
+        for (int skipped = 0; skipped < MAX_SKIPS && !seen.add(puzzle.fingerprint()); skipped++) {
+            puzzle = nextMathPuzzle(difficulty);
+        }
+        return puzzle;
+    }
+    
+    // Number of puzzles ready to hand out without generating
+    public synchronized int available(Difficulty difficulty) {
+        Tier tier = tiers.get(difficulty);
+        return tier.size - tier.next;
+    }
+    
+    private void refill(Difficulty difficulty, Tier tier) {
+        Tier batch = tier.pending != null ? tier.pending.join() : generate(difficulty, tier.generator);
+        tier.pending = null;
+        tier.questions = batch.questions;
+        tier.answers = batch.answers;
+        tier.size = batch.size;
+        tier.next = 0;
+    }
+    
+    private Tier generate(Difficulty difficulty, MathPuzzleGenerator generator) {
+        Tier batch = new Tier(generator, batchSize);
+        batch.size = generator.generateBatch(difficulty, batch.questions, batch.answers, 0, batchSize);
+        return batch;
+    }
+    
+    private static String hintFor(Difficulty difficulty) {
+        if (difficulty == Difficulty.EASY) {
+            return "Remember your basic arithmetic operations";
+        }
+        return "Multiply and divide before you add and subtract, and work out brackets first";
+    }
+    
+    public int getBatchSize() { return batchSize; }
+}
@@ -0,0 +1,70 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * QuantileSketch records non-negative values into log-linear buckets: each
+ * power of two is split into equal sub-buckets, so any quantile is reported
+ * within about 1/SUB_BUCKETS relative error in a fixed few kilobytes of
+ * memory however many values arrive. Recording is lock-free.
+ */
+public class QuantileSketch {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below SUB_BUCKETS get a bucket each; every power of two above gets SUB_BUCKETS
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts;
+    
+    public QuantileSketch() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+    }
+    
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(0, value)));
+    }
+    
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+    
+    /**
+     * Returns the value at quantile q (0 to 1), as the midpoint of the bucket
+     * that holds it, or -1 if nothing has been recorded
+     */
+    public long quantile(double q) {
+        long total = getCount();
+        if (total == 0) return -1;
+        long rank = (long) Math.ceil(Math.min(1, Math.max(0, q)) * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return (lowerBound(i) + upperBound(i)) / 2;
+            }
+        }
+        return upperBound(BUCKET_COUNT - 1);
+    }
+    
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+    
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) sub << (exponent - SUB_BUCKET_BITS));
+    }
+    
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        return lowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
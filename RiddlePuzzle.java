@@ -0,0 +1,18 @@
+/**
+ * Riddle puzzle implementation
+ */
+class RiddlePuzzle extends Puzzle {
+    public RiddlePuzzle(String question, String answer, String hint) {
+        super(question, answer, hint, PuzzleType.RIDDLE);
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        return checkAnswer(userAnswer);
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Solve this riddle to proceed:";
+    }
+}
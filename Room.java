@@ -16,6 +16,7 @@ public class Room {
     private String backgroundImagePath;
     private List<String> requiredItems;
     private String doorDescription;
+    private String rewardItem; // handed to the player when the room is completed, or null
     
     public Room(int roomNumber, String name, String description, Color backgroundColor) {
         this.roomNumber = roomNumber;
@@ -39,11 +40,13 @@ public class Room {
     public String getBackgroundImagePath() { return backgroundImagePath; }
     public List<String> getRequiredItems() { return requiredItems; }
     public String getDoorDescription() { return doorDescription; }
+    public String getRewardItem() { return rewardItem; }
     
     public void setPuzzle(Puzzle puzzle) { this.puzzle = puzzle; }
     public void setUnlocked(boolean unlocked) { this.unlocked = unlocked; }
     public void setBackgroundImagePath(String path) { this.backgroundImagePath = path; }
     public void setDoorDescription(String description) { this.doorDescription = description; }
+    public void setRewardItem(String item) { this.rewardItem = item; }
     
     // Add required item for room access
     public void addRequiredItem(String item) {
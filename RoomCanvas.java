@@ -0,0 +1,338 @@
+import java.awt.BasicStroke;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RoomCanvas draws the current room's banner - background, name, a smoothly
+ * draining countdown and room transitions - with active rendering. A render
+ * thread paints into a BufferStrategy at a capped frame rate while something
+ * is moving, and sleeps on a monitor when nothing is, so an idle screen costs
+ * no CPU. Setters may be called from any thread.
+ */
+public class RoomCanvas extends Canvas implements Runnable {
+    private static final long serialVersionUID = 1L;
+    
+    private static final int DEFAULT_FPS = 60;
+    private static final long TRANSITION_NANOS = TimeUnit.MILLISECONDS.toNanos(600);
+    private static final int WARNING_SECONDS = 10;
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 26);
+    private static final Font SUBTITLE_FONT = new Font("Arial", Font.PLAIN, 14);
+    private static final Font TIMER_FONT = new Font("Arial", Font.BOLD, 22);
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    
+    private final RoomImageCache images;
+    private final long framePeriodNanos;
+    private final Object monitor = new Object();
+    private Thread renderThread;
+    private volatile boolean running;
+    private boolean dirty; // guarded by monitor
+    
+    // What to draw, replaced as a whole so the render thread never sees half an update
+    private volatile Scene scene = new Scene(null, "", Color.DARK_GRAY, 0, 0);
+    private volatile Scene previousScene;
+    private volatile long transitionStart;
+    private volatile int timeRemaining;
+    private volatile int timeLimit = 1;
+    private volatile boolean countdownRunning;
+    private volatile long lastTickNanos;
+    private volatile boolean overlayVisible;
+    
+    // Render-thread statistics for the overlay
+    private long frameCount;
+    private long windowStart;
+    private int framesInWindow;
+    private double fps;
+    private double averageFrameMillis;
+    private long frameNanosInWindow;
+    private long overBudgetFrames;
+    private boolean reduceEffects;
+    
+    public RoomCanvas(RoomImageCache images) {
+        this(images, DEFAULT_FPS);
+    }
+    
+    public RoomCanvas(RoomImageCache images, int maxFps) {
+        this.images = images;
+        this.framePeriodNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxFps);
+        setPreferredSize(new Dimension(760, 110));
+        setBackground(new Color(20, 20, 40));
+        setIgnoreRepaint(true); // all drawing happens on the render thread
+    }
+    
+    /**
+     * Shows a room. The new room wipes in over the previous one when
+     * animate is true.
+     */
+    public void showRoom(Room room, int roomIndex, int totalRooms, boolean animate) {
+        Scene next = new Scene(room.getBackgroundImagePath(), room.getName(), room.getBackgroundColor(), roomIndex, totalRooms);
+        if (next.imagePath != null && getWidth() > 0) {
+            // Repaint once the background is decoded
+            images.request(next.imagePath, getWidth(), getHeight()).thenRun(this::markDirty);
+        }
+        previousScene = animate ? scene : null;
+        transitionStart = System.nanoTime();
+        scene = next;
+        markDirty();
+    }
+    
+    // A new countdown value; between ticks the bar keeps draining smoothly
+    public void setCountdown(int timeRemaining, int timeLimit, boolean running) {
+        this.timeRemaining = timeRemaining;
+        this.timeLimit = Math.max(1, timeLimit);
+        this.countdownRunning = running;
+        this.lastTickNanos = System.nanoTime();
+        markDirty();
+    }
+    
+    public void setOverlayVisible(boolean visible) {
+        this.overlayVisible = visible;
+        markDirty();
+    }
+    
+    public boolean isOverlayVisible() { return overlayVisible; }
+    
+    // Ask for at least one more frame
+    public void markDirty() {
+        synchronized (monitor) {
+            dirty = true;
+            monitor.notifyAll();
+        }
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        createBufferStrategy(2);
+        running = true;
+        renderThread = new Thread(this, "room-canvas-render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        running = false;
+        markDirty();
+        Thread thread = renderThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        renderThread = null;
+        super.removeNotify();
+    }
+    
+    @Override
+    public void run() {
+        long nextFrame = System.nanoTime();
+        while (running) {
+            if (!awaitWork()) break;
+            long start = System.nanoTime();
+            if (isShowing() && getWidth() > 0 && getHeight() > 0) {
+                renderFrame(start);
+            }
+            long end = System.nanoTime();
+            recordFrame(start, end);
+            
+            // Cap the frame rate; if we fell behind, start counting again from now
+            nextFrame += framePeriodNanos;
+            if (nextFrame < end) {
+                nextFrame = end;
+            } else {
+                LockSupport.parkNanos(nextFrame - end);
+            }
+        }
+    }
+    
+    // Block until there is something to draw; returns false when stopping
+    private boolean awaitWork() {
+        synchronized (monitor) {
+            while (running && !dirty && !isAnimating(System.nanoTime())) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            dirty = false;
+            return running;
+        }
+    }
+    
+    private boolean isAnimating(long now) {
+        return (countdownRunning && timeRemaining > 0) || (previousScene != null && now - transitionStart < TRANSITION_NANOS);
+    }
+    
+    // Draw one frame, redrawing if the accelerated buffers were lost meanwhile
+    private void renderFrame(long now) {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) return;
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    render(g, getWidth(), getHeight(), now);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+    }
+    
+    /**
+     * Paints a whole frame. Package-private so it can also draw into an
+     * off-screen image, e.g. for screenshots without a display.
+     */
+    void render(Graphics2D g, int width, int height, long now) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        
+        Scene current = scene;
+        Scene previous = previousScene;
+        float progress = previous == null ? 1f : Math.min(1f, (now - transitionStart) / (float) TRANSITION_NANOS);
+        if (progress < 1f) {
+            // Wipe: the new room slides in from the left over the old one
+            drawScene(g, previous, width, height);
+            int edge = Math.round(width * easeOut(progress));
+            g.setClip(0, 0, edge, height);
+            drawScene(g, current, width, height);
+            g.setClip(null);
+        } else {
+            previousScene = null;
+            drawScene(g, current, width, height);
+        }
+        drawCountdown(g, width, height, now);
+        if (overlayVisible) {
+            drawOverlay(g, width);
+        }
+    }
+    
+    private void drawScene(Graphics2D g, Scene scene, int width, int height) {
+        BufferedImage image = scene.imagePath != null ? images.getIfReady(scene.imagePath, width, height) : null;
+        if (image != null) {
+            g.drawImage(image, 0, 0, null);
+            g.setColor(new Color(0, 0, 0, 110));
+            g.fillRect(0, 0, width, height);
+        } else if (reduceEffects) {
+            g.setColor(scene.color);
+            g.fillRect(0, 0, width, height);
+        } else {
+            g.setPaint(new GradientPaint(0, 0, scene.color, width, height, scene.color.darker().darker()));
+            g.fillRect(0, 0, width, height);
+        }
+        
+        g.setColor(Color.WHITE);
+        g.setFont(TITLE_FONT);
+        g.drawString(scene.name, 20, 42);
+        g.setFont(SUBTITLE_FONT);
+        g.setColor(new Color(230, 230, 230));
+        if (scene.totalRooms > 0) {
+            g.drawString("Room " + (scene.roomIndex + 1) + " of " + scene.totalRooms, 20, 66);
+        }
+    }
+    
+    private void drawCountdown(Graphics2D g, int width, int height, long now) {
+        int remaining = timeRemaining;
+        int limit = timeLimit;
+        double shown = remaining;
+        if (countdownRunning && remaining > 0) {
+            // Drain toward the next whole second instead of jumping once a second
+            double sinceTick = Math.min(1.0, (now - lastTickNanos) / 1e9);
+            shown = Math.max(remaining - 1, remaining - sinceTick);
+        }
+        double fraction = Math.max(0, Math.min(1, shown / limit));
+        boolean warning = remaining <= WARNING_SECONDS;
+        
+        int barX = 20;
+        int barY = height - 24;
+        int barWidth = width - 140;
+        g.setColor(new Color(0, 0, 0, 120));
+        g.fillRoundRect(barX, barY, barWidth, 12, 12, 12);
+        Color fill = warning ? new Color(255, 80, 80) : new Color(100, 200, 255);
+        if (warning && countdownRunning && !reduceEffects) {
+            // Pulse twice a second when time is nearly up
+            float pulse = (float) (0.5 + 0.5 * Math.sin(now / 1e9 * 4 * Math.PI));
+            fill = new Color(255, 80 + Math.round(100 * pulse), 80 + Math.round(100 * pulse));
+        }
+        g.setColor(fill);
+        g.fillRoundRect(barX, barY, (int) Math.round(barWidth * fraction), 12, 12, 12);
+        g.setStroke(new BasicStroke(1f));
+        g.setColor(new Color(255, 255, 255, 140));
+        g.drawRoundRect(barX, barY, barWidth, 12, 12, 12);
+        
+        g.setFont(TIMER_FONT);
+        g.setColor(fill);
+        g.drawString(remaining + "s", width - 100, height - 12);
+    }
+    
+    private void drawOverlay(Graphics2D g, int width) {
+        String text = String.format("%4.0f fps  %5.2f ms  over budget %d", fps, averageFrameMillis, overBudgetFrames);
+        g.setFont(OVERLAY_FONT);
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(width - 280, 4, 276, 18);
+        g.setColor(Color.GREEN);
+        g.drawString(text, width - 274, 17);
+    }
+    
+    /**
+     * Tracks frame rate and frame time over one-second windows. A frame
+     * that uses most of its budget turns off the gradient and pulse until
+     * frames are cheap again.
+     */
+    private void recordFrame(long start, long end) {
+        long frameNanos = end - start;
+        frameCount++;
+        framesInWindow++;
+        frameNanosInWindow += frameNanos;
+        if (frameNanos > framePeriodNanos) {
+            overBudgetFrames++;
+        }
+        reduceEffects = frameNanos > framePeriodNanos * 3 / 4;
+        if (end - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            fps = framesInWindow * 1e9 / (end - windowStart);
+            averageFrameMillis = frameNanosInWindow / 1e6 / framesInWindow;
+            framesInWindow = 0;
+            frameNanosInWindow = 0;
+            windowStart = end;
+        }
+    }
+    
+    private static float easeOut(float t) {
+        return 1 - (1 - t) * (1 - t);
+    }
+    
+    // Frames drawn since the canvas was shown
+    public long getFrameCount() { return frameCount; }
+    
+    /**
+     * An immutable description of the room on screen
+     */
+    private static final class Scene {
+        final String imagePath;
+        final String name;
+        final Color color;
+        final int roomIndex;
+        final int totalRooms;
+        
+        Scene(String imagePath, String name, Color color, int roomIndex, int totalRooms) {
+            this.imagePath = imagePath;
+            this.name = name;
+            this.color = color != null ? color : Color.DARK_GRAY;
+            this.roomIndex = roomIndex;
+            this.totalRooms = totalRooms;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RoomGraph is an immutable campaign map: rooms joined by one-way doors,
+ * where a room may need items to enter and may hand out items once solved.
+ * Doors are stored in compressed rows (one offset array, one target array)
+ * and items as bits of a long, so a campaign of hundreds of thousands of rooms
+ * takes a few megabytes and every door check is a mask test.
+ *
+ * Reachability is worked out once when the graph is built, assuming that rooms
+ * already opened stay open: a room is reachable if some door leads to it from a
+ * reachable room while the player holds everything it needs, counting the
+ * items handed out by all rooms reached so far.
+ */
+public final class RoomGraph {
+    public static final int MAX_ITEM_KINDS = 64;
+    
+    private final int startRoom;
+    private final long startItems;
+    private final int[] doorOffsets; // doors of room r are doorTargets[doorOffsets[r] .. doorOffsets[r + 1])
+    private final int[] doorTargets;
+    private final long[] requiredItems;
+    private final long[] rewardItems;
+    private final String[] itemNames;
+    private final Map<String, Integer> itemIds;
+    
+    // Filled in by computeReachability
+    private final long[] reachable; // one bit per room
+    private final int[] depth; // doors on the path the search found, -1 when unreachable
+    private final long[] unlockItems; // items held when the search first reached the room
+    private int reachableCount;
+    private boolean solvable;
+    
+    private RoomGraph(Builder builder) {
+        int rooms = builder.roomCount;
+        this.startRoom = builder.startRoom;
+        this.startItems = builder.startItems;
+        this.requiredItems = Arrays.copyOf(builder.requiredItems, rooms);
+        this.rewardItems = Arrays.copyOf(builder.rewardItems, rooms);
+        this.itemNames = builder.itemNames.clone();
+        this.itemIds = new HashMap<>(builder.itemIds);
+        
+        // Counting sort of the door list by source room; doors keep the order they were added
+        this.doorOffsets = new int[rooms + 1];
+        for (int i = 0; i < builder.doorCount; i++) {
+            doorOffsets[builder.doorFrom[i] + 1]++;
+        }
+        for (int r = 0; r < rooms; r++) {
+            doorOffsets[r + 1] += doorOffsets[r];
+        }
+        this.doorTargets = new int[builder.doorCount];
+        int[] next = Arrays.copyOf(doorOffsets, rooms);
+        for (int i = 0; i < builder.doorCount; i++) {
+            doorTargets[next[builder.doorFrom[i]]++] = builder.doorTo[i];
+        }
+        
+        this.reachable = new long[(rooms + 63) >>> 6];
+        this.depth = new int[rooms];
+        this.unlockItems = new long[rooms];
+        computeReachability();
+    }
+    
+    /**
+     * Breadth-first search from the start room. Rooms whose doors are still
+     * locked are parked and retried once the search has collected more items;
+     * each retry pass needs at least one new item kind, so there are at most
+     * 65 passes over the parked rooms.
+     */
+    private void computeReachability() {
+        int rooms = depth.length;
+        Arrays.fill(depth, -1);
+        if (rooms == 0) return;
+        
+        byte[] state = new byte[rooms]; // 0 unseen, 1 parked behind a locked door, 2 reached
+        int[] queue = new int[rooms];
+        int head = 0;
+        int tail = 0;
+        int[] parked = new int[16];
+        int parkedCount = 0;
+        long inventory = startItems;
+        
+        depth[startRoom] = 0;
+        if (canEnter(startRoom, inventory)) {
+            state[startRoom] = 2;
+            queue[tail++] = startRoom;
+        } else {
+            state[startRoom] = 1;
+            parked[parkedCount++] = startRoom;
+        }
+        
+        while (true) {
+            while (head < tail) {
+                int room = queue[head++];
+                unlockItems[room] = inventory;
+                inventory |= rewardItems[room];
+                for (int d = doorOffsets[room], end = doorOffsets[room + 1]; d < end; d++) {
+                    int target = doorTargets[d];
+                    if (state[target] != 0) continue;
+                    depth[target] = depth[room] + 1;
+                    if (canEnter(target, inventory)) {
+                        state[target] = 2;
+                        queue[tail++] = target;
+                    } else {
+                        state[target] = 1;
+                        if (parkedCount == parked.length) {
+                            parked = Arrays.copyOf(parked, parkedCount * 2);
+                        }
+                        parked[parkedCount++] = target;
+                    }
+                }
+            }
+            
+            // Retry the parked rooms with everything collected so far
+            int kept = 0;
+            for (int i = 0; i < parkedCount; i++) {
+                int room = parked[i];
+                if (canEnter(room, inventory)) {
+                    state[room] = 2;
+                    queue[tail++] = room;
+                } else {
+                    parked[kept++] = room;
+                }
+            }
+            parkedCount = kept;
+            if (head == tail) break;
+        }
+        
+        for (int i = 0; i < parkedCount; i++) {
+            depth[parked[i]] = -1;
+        }
+        reachableCount = tail;
+        for (int i = 0; i < tail; i++) {
+            int room = queue[i];
+            reachable[room >>> 6] |= 1L << room;
+            if (isExit(room)) {
+                solvable = true;
+            }
+        }
+    }
+    
+    // Whether a player holding these items may walk through a door into the room
+    public boolean canEnter(int room, long inventory) {
+        return (requiredItems[room] & ~inventory) == 0;
+    }
+    
+    /**
+     * The first room behind one of this room's doors that the player can enter,
+     * in the order the doors were added, or -1 if every door is locked or there
+     * are none.
+     */
+    public int nextRoom(int room, long inventory) {
+        for (int d = doorOffsets[room], end = doorOffsets[room + 1]; d < end; d++) {
+            if (canEnter(doorTargets[d], inventory)) {
+                return doorTargets[d];
+            }
+        }
+        return -1;
+    }
+    
+    // Rooms without doors out of them end the campaign
+    public boolean isExit(int room) {
+        return doorOffsets[room] == doorOffsets[room + 1];
+    }
+    
+    public boolean isReachable(int room) {
+        return (reachable[room >>> 6] & (1L << room)) != 0;
+    }
+    
+    // Bit mask of the named items; names the graph has never seen are ignored
+    public long itemMask(Collection<String> items) {
+        long mask = 0;
+        for (String item : items) {
+            Integer id = itemIds.get(item);
+            if (id != null) {
+                mask |= 1L << id;
+            }
+        }
+        return mask;
+    }
+    
+    // Item id for a name, or -1 if no room uses it
+    public int getItemId(String name) {
+        Integer id = itemIds.get(name);
+        return id != null ? id : -1;
+    }
+    
+    // Doors of a room are getDoorTarget(i) for getDoorStart(room) <= i < getDoorEnd(room)
+    public int getDoorStart(int room) { return doorOffsets[room]; }
+    public int getDoorEnd(int room) { return doorOffsets[room + 1]; }
+    public int getDoorTarget(int door) { return doorTargets[door]; }
+    
+    // Getters
+    public int getRoomCount() { return depth.length; }
+    public int getDoorCount() { return doorTargets.length; }
+    public int getStartRoom() { return startRoom; }
+    public long getStartItems() { return startItems; }
+    public long getRequiredItems(int room) { return requiredItems[room]; }
+    public long getRewardItems(int room) { return rewardItems[room]; }
+    public int getItemKindCount() { return itemIds.size(); }
+    public String getItemName(int id) { return itemNames[id]; }
+    public int getDepth(int room) { return depth[room]; }
+    public long getUnlockItems(int room) { return unlockItems[room]; }
+    public int getReachableCount() { return reachableCount; }
+    // Whether an exit can be reached from the start room
+    public boolean isSolvable() { return solvable; }
+    
+    /**
+     * Collects rooms, doors and item kinds for a RoomGraph. Room ids are handed
+     * out in the order rooms are added, starting at 0.
+     */
+    public static final class Builder {
+        private int roomCount;
+        private long[] requiredItems = new long[16];
+        private long[] rewardItems = new long[16];
+        private int doorCount;
+        private int[] doorFrom = new int[16];
+        private int[] doorTo = new int[16];
+        private final String[] itemNames = new String[MAX_ITEM_KINDS];
+        private final Map<String, Integer> itemIds = new HashMap<>();
+        private int startRoom;
+        private long startItems;
+        
+        // Id for an item kind, registering it on first use
+        public int itemId(String name) {
+            Integer id = itemIds.get(name);
+            if (id != null) return id;
+            if (itemIds.size() == MAX_ITEM_KINDS) {
+                throw new IllegalStateException("A campaign can use at most " + MAX_ITEM_KINDS + " item kinds");
+            }
+            int next = itemIds.size();
+            itemNames[next] = name;
+            itemIds.put(name, next);
+            return next;
+        }
+        
+        public long itemMask(Collection<String> names) {
+            long mask = 0;
+            for (String name : names) {
+                mask |= 1L << itemId(name);
+            }
+            return mask;
+        }
+        
+        // Add a room by its item masks and return its id
+        public int addRoom(long required, long reward) {
+            if (roomCount == requiredItems.length) {
+                requiredItems = Arrays.copyOf(requiredItems, roomCount * 2);
+                rewardItems = Arrays.copyOf(rewardItems, roomCount * 2);
+            }
+            requiredItems[roomCount] = required;
+            rewardItems[roomCount] = reward;
+            return roomCount++;
+        }
+        
+        // Add a room using its required and reward item names
+        public int addRoom(Room room) {
+            long reward = room.getRewardItem() != null ? 1L << itemId(room.getRewardItem()) : 0;
+            return addRoom(itemMask(room.getRequiredItems()), reward);
+        }
+        
+        public Builder addDoor(int from, int to) {
+            if (from < 0 || from >= roomCount || to < 0 || to >= roomCount) {
+                throw new IllegalArgumentException("Door " + from + " -> " + to + " joins an unknown room");
+            }
+            if (doorCount == doorFrom.length) {
+                doorFrom = Arrays.copyOf(doorFrom, doorCount * 2);
+                doorTo = Arrays.copyOf(doorTo, doorCount * 2);
+            }
+            doorFrom[doorCount] = from;
+            doorTo[doorCount] = to;
+            doorCount++;
+            return this;
+        }
+        
+        public Builder setStartRoom(int room) {
+            this.startRoom = room;
+            return this;
+        }
+        
+        // Items every player holds when the campaign begins
+        public Builder setStartItems(long items) {
+            this.startItems = items;
+            return this;
+        }
+        
+        public int getRoomCount() { return roomCount; }
+        
+        public RoomGraph build() {
+            if (roomCount > 0 && (startRoom < 0 || startRoom >= roomCount)) {
+                throw new IllegalArgumentException("Start room " + startRoom + " is not in the graph");
+            }
+            return new RoomGraph(this);
+        }
+    }
+}
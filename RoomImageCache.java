@@ -0,0 +1,170 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+
+/**
+ * RoomImageCache loads room background images off the EDT. Each image is
+ * decoded with ImageIO, scaled once to the size it will be drawn at into an
+ * image compatible with the screen, and kept in an LRU cache bounded by total
+ * pixel bytes. Painting code only ever asks for what is ready, so it never
+ * waits on a decode.
+ */
+public class RoomImageCache {
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    
+    private final long maxBytes;
+    private final Executor loader;
+    private final LinkedHashMap<String, BufferedImage> images; // guarded by this, in access order
+    private final Map<String, CompletableFuture<BufferedImage>> loading; // guarded by this
+    private final Map<String, CompletableFuture<BufferedImage>> failed; // guarded by this; failed loads, so they are not retried on every paint
+    private long bytes;
+    
+    public RoomImageCache() {
+        this(DEFAULT_MAX_BYTES, Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "room-image-loader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }));
+    }
+    
+    public RoomImageCache(long maxBytes, Executor loader) {
+        this.maxBytes = maxBytes;
+        this.loader = loader;
+        this.images = new LinkedHashMap<>(16, 0.75f, true);
+        this.loading = new HashMap<>();
+        this.failed = new HashMap<>();
+    }
+    
+    /**
+     * Returns the scaled image if it is cached, otherwise starts loading it
+     * and returns null. Cheap enough to call from paintComponent: an image
+     * that is loading or failed to load returns null without starting anything.
+     */
+    public BufferedImage getIfReady(String path, int width, int height) {
+        String key = key(path, width, height);
+        synchronized (this) {
+            BufferedImage image = images.get(key);
+            if (image != null) return image;
+            if (loading.containsKey(key) || failed.containsKey(key)) return null;
+        }
+        request(path, width, height);
+        return null;
+    }
+    
+    /**
+     * Returns the scaled image, loading it in the background if needed.
+     * Concurrent requests for the same image share one load.
+     */
+    public CompletableFuture<BufferedImage> request(String path, int width, int height) {
+        String key = key(path, width, height);
+        CompletableFuture<BufferedImage> future;
+        synchronized (this) {
+            BufferedImage image = images.get(key);
+            if (image != null) return CompletableFuture.completedFuture(image);
+            future = failed.get(key);
+            if (future != null) return future;
+            future = loading.get(key);
+            if (future != null) return future;
+            future = new CompletableFuture<>();
+            loading.put(key, future);
+        }
+        CompletableFuture<BufferedImage> result = future;
+        loader.execute(() -> {
+            try {
+                BufferedImage scaled = scale(read(path), width, height);
+                synchronized (this) {
+                    loading.remove(key);
+                    put(key, scaled);
+                }
+                result.complete(scaled);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    loading.remove(key);
+                    failed.put(key, result);
+                }
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+    
+    // Warm the cache for an image that will be needed soon
+    public void prefetch(String path, int width, int height) {
+        if (path != null && width > 0 && height > 0) {
+            request(path, width, height).exceptionally(error -> null);
+        }
+    }
+    
+    // Bytes of pixel data currently cached
+    public synchronized long getBytes() { return bytes; }
+    
+    public synchronized int size() { return images.size(); }
+    
+    private void put(String key, BufferedImage image) {
+        BufferedImage previous = images.put(key, image);
+        if (previous != null) bytes -= sizeOf(previous);
+        bytes += sizeOf(image);
+        // Drop least recently used images, but always keep the one just loaded
+        Iterator<Map.Entry<String, BufferedImage>> eldest = images.entrySet().iterator();
+        while (bytes > maxBytes && images.size() > 1) {
+            Map.Entry<String, BufferedImage> entry = eldest.next();
+            bytes -= sizeOf(entry.getValue());
+            eldest.remove();
+        }
+    }
+    
+    // Files on disk first, then resources on the class path
+    private static BufferedImage read(String path) throws IOException {
+        BufferedImage image;
+        File file = new File(path);
+        if (file.isFile()) {
+            image = ImageIO.read(file);
+        } else {
+            try (InputStream in = RoomImageCache.class.getResourceAsStream("/" + path)) {
+                if (in == null) throw new IOException("Image not found: " + path);
+                image = ImageIO.read(in);
+            }
+        }
+        if (image == null) throw new IOException("Unsupported image format: " + path);
+        return image;
+    }
+    
+    // Draw once at the final size into an image in the screen's own pixel format
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage target = GraphicsEnvironment.isHeadless()
+            ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+            : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+    
+    private static long sizeOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+    
+    private static String key(String path, int width, int height) {
+        return path + '@' + width + 'x' + height;
+    }
+}
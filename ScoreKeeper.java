@@ -0,0 +1,103 @@
+/**
+ * ScoreKeeper keeps a game's running score as engine events arrive: each
+ * event adds its points from the compiled rule table, so the score is always
+ * current and never recomputed from the game's history. Scores never go
+ * below zero. When the game ends the final score goes to the leaderboard,
+ * if there is one.
+ *
+ * Register it as a synchronous listener, so the score is up to date before
+ * listeners added later see the same event. Used from the game's own thread.
+ */
+public class ScoreKeeper implements GameEventListener {
+    private static final int ROOM_SOLVED = ScoringRules.Event.ROOM_SOLVED.ordinal();
+    private static final int SECOND_LEFT = ScoringRules.Event.SECOND_LEFT.ordinal();
+    private static final int HINT_USED = ScoringRules.Event.HINT_USED.ordinal();
+    private static final int WRONG_ANSWER = ScoringRules.Event.WRONG_ANSWER.ordinal();
+    private static final int TIME_UP = ScoringRules.Event.TIME_UP.ordinal();
+    private static final int VICTORY = ScoringRules.Event.VICTORY.ordinal();
+    private static final int LIFE_LEFT = ScoringRules.Event.LIFE_LEFT.ordinal();
+    
+    private ScoringRules rules;
+    private int[] points;
+    private Leaderboard leaderboard;
+    private String playerName;
+    private long score;
+    
+    public ScoreKeeper(ScoringRules rules) {
+        setRules(rules);
+    }
+    
+    // Takes effect from the next event; points already scored stand
+    public void setRules(ScoringRules rules) {
+        this.rules = rules;
+        this.points = rules.table();
+    }
+    
+    // Where final scores go, or null to keep them to this game
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+    
+    // Pick up a game part way through, e.g. one restored from a snapshot
+    public void restore(String playerName, long score) {
+        this.playerName = playerName;
+        this.score = score;
+    }
+    
+    @Override
+    public void onGameStarted(String playerName) {
+        this.playerName = playerName;
+        this.score = 0;
+    }
+    
+    @Override
+    public void onRoomCompleted(int roomIndex, int timeRemaining) {
+        add(points[ROOM_SOLVED] + (long) points[SECOND_LEFT] * timeRemaining);
+    }
+    
+    @Override
+    public void onHintUsed(int roomIndex, int hintsLeft) {
+        add(points[HINT_USED]);
+    }
+    
+    @Override
+    public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+        add(points[WRONG_ANSWER]);
+    }
+    
+    @Override
+    public void onTimeUp(int roomIndex, int livesLeft) {
+        add(points[TIME_UP]);
+    }
+    
+    @Override
+    public void onVictory(int livesLeft) {
+        add(points[VICTORY] + (long) points[LIFE_LEFT] * livesLeft);
+        submit();
+    }
+    
+    @Override
+    public void onGameOver(int roomIndex) {
+        submit();
+    }
+    
+    @Override
+    public void onGameQuit(int roomIndex) {
+        submit();
+    }
+    
+    private void add(long delta) {
+        score = Math.max(0, score + delta);
+    }
+    
+    private void submit() {
+        if (leaderboard != null && playerName != null) {
+            leaderboard.submit(playerName, score);
+        }
+    }
+    
+    // Getters
+    public long getScore() { return score; }
+    public ScoringRules getRules() { return rules; }
+    public Leaderboard getLeaderboard() { return leaderboard; }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * ScoringRules says how many points each kind of game event is worth. Rules
+ * are written as a list such as "room=100, second=5, hint=-30" and compiled
+ * once into a table indexed by event, so scoring an event is one array read
+ * and an add. Rules for the same event add up; events without a rule score 0.
+ *
+ * Immutable, so one set of rules can be shared by every game on a host.
+ */
+public final class ScoringRules {
+    /**
+     * Kinds of scoring event. Per-unit events are multiplied by a count:
+     * SECOND_LEFT by the seconds left when a room is solved, LIFE_LEFT by the
+     * lives left at victory.
+     */
+    public enum Event {
+        ROOM_SOLVED("room"),
+        SECOND_LEFT("second"),
+        HINT_USED("hint"),
+        WRONG_ANSWER("wrong"),
+        TIME_UP("timeup"),
+        VICTORY("victory"),
+        LIFE_LEFT("life");
+        
+        private final String key;
+        
+        Event(String key) {
+            this.key = key;
+        }
+        
+        public String getKey() { return key; }
+    }
+    
+    private static final Event[] EVENTS = Event.values();
+    
+    public static final ScoringRules DEFAULT =
+        parse("room=100, second=5, hint=-30, wrong=-50, timeup=-75, victory=500, life=150");
+    
+    private final int[] points; // by Event ordinal
+    
+    private ScoringRules(int[] points) {
+        this.points = points;
+    }
+    
+    /**
+     * Compiles rules written as comma-separated key=points pairs, keys being
+     * the events' keys.
+     * @throws IllegalArgumentException for an unknown key or a malformed rule
+     */
+    public static ScoringRules parse(String spec) {
+        Builder builder = new Builder();
+        for (String rule : spec.split(",")) {
+            if (rule.isBlank()) continue;
+            int equals = rule.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Scoring rule '" + rule.trim() + "' has no '='");
+            }
+            String key = rule.substring(0, equals).trim();
+            Event event = eventFor(key);
+            try {
+                builder.add(event, Integer.parseInt(rule.substring(equals + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Scoring rule '" + rule.trim() + "' needs whole points", e);
+            }
+        }
+        return builder.build();
+    }
+    
+    private static Event eventFor(String key) {
+        for (Event event : EVENTS) {
+            if (event.key.equalsIgnoreCase(key)) {
+                return event;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scoring event '" + key + "'");
+    }
+    
+    public int getPoints(Event event) {
+        return points[event.ordinal()];
+    }
+    
+    // The compiled table, indexed by Event ordinal; for ScoreKeeper, which must not change it
+    int[] table() {
+        return points;
+    }
+    
+    // The rules in the form parse accepts
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Event event : EVENTS) {
+            if (points[event.ordinal()] == 0) continue;
+            if (text.length() > 0) text.append(", ");
+            text.append(event.key).append('=').append(points[event.ordinal()]);
+        }
+        return text.toString();
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ScoringRules && Arrays.equals(points, ((ScoringRules) other).points);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(points);
+    }
+    
+    /**
+     * Collects rules; build compiles them into a table
+     */
+    public static final class Builder {
+        private final int[] points = new int[EVENTS.length];
+        
+        public Builder add(Event event, int eventPoints) {
+            points[event.ordinal()] = Math.addExact(points[event.ordinal()], eventPoints);
+            return this;
+        }
+        
+        public ScoringRules build() {
+            return new ScoringRules(points.clone());
+        }
+    }
+}
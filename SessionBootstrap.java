@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SessionBootstrap runs the independent parts of a session start side by side
+ * and waits for all of them under one deadline. If any part fails, or the
+ * deadline passes, the parts still running are cancelled and interrupted, so
+ * a start never leaves work behind. Use one bootstrap per session start:
+ *
+ * <pre>
+ * try (SessionBootstrap bootstrap = new SessionBootstrap(executor)) {
+ *     SessionBootstrap.Part&lt;Campaign&gt; rooms = bootstrap.fork("rooms", source::get);
+ *     SessionBootstrap.Part&lt;PlayerStats&gt; stats = bootstrap.fork("profile", () -&gt; load(name));
+ *     bootstrap.join(2, TimeUnit.SECONDS);
+ *     start(rooms.result(), stats.result());
+ * }
+ * </pre>
+ *
+ * This follows the shutdown-on-failure shape of StructuredTaskScope, which
+ * needs a newer JDK with preview features enabled, on top of a plain Executor. An executor that runs
+ * tasks on the calling thread makes the parts run one after another.
+ */
+public class SessionBootstrap implements AutoCloseable {
+    private final Executor executor;
+    private final List<Part<?>> parts;
+    private int pending; // parts forked but not finished, guarded by this
+    private Part<?> firstFailure; // guarded by this
+    private boolean joined;
+    
+    public SessionBootstrap(Executor executor) {
+        this.executor = executor;
+        this.parts = new ArrayList<>();
+    }
+    
+    // Start one part; forks must all happen before join, from the thread that owns the bootstrap
+    public <T> Part<T> fork(String name, Callable<T> task) {
+        if (joined) {
+            throw new IllegalStateException("Cannot fork after join");
+        }
+        Part<T> part = new Part<>(name, task);
+        parts.add(part);
+        synchronized (this) {
+            pending++;
+        }
+        executor.execute(part);
+        return part;
+    }
+    
+    /**
+     * Waits until every part has finished, one has failed or the deadline
+     * has passed. On failure or timeout the other parts are cancelled.
+     * @throws ExecutionException wrapping the first failure, with the part named in the message
+     * @throws TimeoutException if the deadline passed first
+     */
+    public void join(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        joined = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Part<?> failed;
+        try {
+            synchronized (this) {
+                while (pending > 0 && firstFailure == null) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        throw new TimeoutException("Session start timed out after " + unit.toMillis(timeout)
+                            + " ms waiting for " + unfinishedNames());
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, left);
+                }
+                failed = firstFailure;
+            }
+        } catch (TimeoutException | InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+        if (failed != null) {
+            cancelAll();
+            try {
+                failed.get();
+            } catch (ExecutionException e) {
+                throw new ExecutionException("Session start failed in " + failed.name, e.getCause());
+            }
+        }
+    }
+    
+    // Cancel whatever is still running
+    @Override
+    public void close() {
+        cancelAll();
+    }
+    
+    private void cancelAll() {
+        for (Part<?> part : parts) {
+            part.cancel(true);
+        }
+    }
+    
+    private String unfinishedNames() {
+        List<String> names = new ArrayList<>();
+        for (Part<?> part : parts) {
+            if (!part.isDone()) names.add(part.name);
+        }
+        return String.join(", ", names);
+    }
+    
+    // Called as each part completes, on the thread that ran it
+    private synchronized void partDone(Part<?> part) {
+        pending--;
+        if (firstFailure == null && part.failed()) {
+            firstFailure = part;
+        }
+        notifyAll();
+    }
+    
+    /**
+     * One forked part of a session start
+     */
+    public final class Part<T> extends FutureTask<T> {
+        private final String name;
+        
+        private Part(String name, Callable<T> task) {
+            super(task);
+            this.name = name;
+        }
+        
+        @Override
+        protected void done() {
+            partDone(this);
+        }
+        
+        boolean failed() {
+            if (isCancelled()) return false;
+            try {
+                get();
+                return false;
+            } catch (ExecutionException e) {
+                return true;
+            } catch (InterruptedException | CancellationException e) {
+                return false;
+            }
+        }
+        
+        // The part's value; only valid after a successful join
+        public T result() {
+            try {
+                return get(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("Part " + name + " has no result", e);
+            }
+        }
+        
+        public String getName() { return name; }
+    }
+}
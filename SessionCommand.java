@@ -0,0 +1,63 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * SessionCommand is a single entry in a hosted session's command stream
+ */
+public class SessionCommand {
+    public enum Type {
+        ANSWER, HINT, TICK, ROOM, QUERY, QUIT, FREEZE
+    }
+    
+    private final Type type;
+    private final String argument;
+    private final Function<GameEngine, ?> query;
+    private final CompletableFuture<Object> reply;
+    
+    private SessionCommand(Type type, String argument) {
+        this(type, argument, null);
+    }
+    
+    private SessionCommand(Type type, String argument, Function<GameEngine, ?> query) {
+        this.type = type;
+        this.argument = argument;
+        this.query = query;
+        this.reply = new CompletableFuture<>();
+    }
+    
+    public static SessionCommand answer(String answer) {
+        return new SessionCommand(Type.ANSWER, answer);
+    }
+    
+    public static SessionCommand hint() {
+        return new SessionCommand(Type.HINT, null);
+    }
+    
+    public static SessionCommand tick() {
+        return new SessionCommand(Type.TICK, null);
+    }
+    
+    public static SessionCommand room() {
+        return new SessionCommand(Type.ROOM, null);
+    }
+    
+    // Read engine state on the session's own thread
+    public static SessionCommand query(Function<GameEngine, ?> query) {
+        return new SessionCommand(Type.QUERY, null, query);
+    }
+    
+    public static SessionCommand quit() {
+        return new SessionCommand(Type.QUIT, null);
+    }
+    
+    // Capture the game and close the session without ending the game, so it can resume elsewhere
+    public static SessionCommand freeze() {
+        return new SessionCommand(Type.FREEZE, null);
+    }
+    
+    // Getters
+    public Type getType() { return type; }
+    public String getArgument() { return argument; }
+    public Function<GameEngine, ?> getQuery() { return query; }
+    public CompletableFuture<Object> getReply() { return reply; }
+}
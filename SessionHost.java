@@ -0,0 +1,250 @@
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * SessionHost runs many GameSession actors side by side on a shared executor
+ * and feeds them a one-second tick
+ */
+public class SessionHost {
+    public enum ExecutionMode {
+        VIRTUAL_THREADS, PLATFORM_POOL
+    }
+    
+    private static final int BROADCAST_CAPACITY = 1 << 16;
+    private static final int ANALYTICS_ROOMS = 256;
+    private static final long BOOTSTRAP_TIMEOUT_MILLIS = 2000;
+    
+    // Runs the parts of each session start; they mostly wait on I/O, so threads are cheap to add
+    private static final ExecutorService BOOTSTRAP_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "session-bootstrap");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final ExecutionMode mode;
+    private final ExecutorService sessionExecutor;
+    private final GameClock.Registration ticker;
+    private final Map<String, GameSession> sessions;
+    private final AtomicLong nextSessionId;
+    private final EventBroadcaster broadcaster;
+    private final PuzzleAnalytics analytics;
+    private final Leaderboard leaderboard;
+    private volatile ScoringRules scoringRules = ScoringRules.DEFAULT;
+    private volatile AdaptiveDifficulty adaptiveDifficulty; // null for the fixed difficulty and time limit
+    private volatile Supplier<CampaignGenerator.Campaign> roomSource = GameEngine::createRooms;
+    private volatile Function<String, PlayerStats> profileLoader = playerName -> new PlayerStats();
+    private volatile Executor bootstrapExecutor = BOOTSTRAP_EXECUTOR;
+    private volatile ProfileStore profileStore; // saves each player's profile when their game ends, or null
+    
+    public SessionHost(ExecutionMode mode, int poolSize) {
+        this(mode, poolSize, SystemGameClock.getDefault());
+    }
+    
+    // Tick sessions from the given clock; a SimulatedGameClock lets a test fast-forward every session at once
+    public SessionHost(ExecutionMode mode, int poolSize, GameClock clock) {
+        ExecutorService virtualExecutor = mode == ExecutionMode.VIRTUAL_THREADS ? newVirtualExecutor() : null;
+        this.mode = virtualExecutor != null ? ExecutionMode.VIRTUAL_THREADS : ExecutionMode.PLATFORM_POOL;
+        this.sessionExecutor = virtualExecutor != null ? virtualExecutor : newPlatformPool(poolSize);
+        this.sessions = new ConcurrentHashMap<>();
+        this.nextSessionId = new AtomicLong();
+        this.broadcaster = new EventBroadcaster(BROADCAST_CAPACITY);
+        this.analytics = new PuzzleAnalytics(ANALYTICS_ROOMS, GameEngine.DEFAULT_TIME_LIMIT);
+        this.leaderboard = new Leaderboard();
+        this.ticker = clock.everySecond(this::tickAll);
+    }
+    
+    /**
+     * Creates a virtual-thread-per-task executor, so each session batch runs on
+     * a cheap thread that may block on I/O. Virtual threads need Java 21+,
+     * so the factory is looked up reflectively and null is returned on older runtimes.
+     */
+    static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads are not available, using a platform pool instead");
+            return null;
+        }
+    }
+    
+    static ExecutorService newPlatformPool(int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "session-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start a new game for the given player. Its rooms, the player's profile
+     * and their leaderboard rank are fetched side by side, and the session is
+     * ready when the slowest of them is. Rooms that need the word list load it
+     * themselves.
+     * @throws IllegalStateException if a part fails or they take longer than two seconds
+     */
+    public GameSession startSession(String playerName) {
+        CampaignGenerator.Campaign rooms;
+        PlayerStats stats;
+        int rank;
+        try (SessionBootstrap bootstrap = new SessionBootstrap(bootstrapExecutor)) {
+            Supplier<CampaignGenerator.Campaign> source = roomSource;
+            Function<String, PlayerStats> loader = profileLoader;
+            SessionBootstrap.Part<CampaignGenerator.Campaign> roomsPart = bootstrap.fork("rooms", source::get);
+            SessionBootstrap.Part<PlayerStats> profilePart = bootstrap.fork("profile", () -> loader.apply(playerName));
+            SessionBootstrap.Part<Integer> rankPart = bootstrap.fork("rank", () -> leaderboard.getRank(playerName));
+            bootstrap.join(BOOTSTRAP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            rooms = roomsPart.result();
+            stats = profilePart.result();
+            rank = rankPart.result();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not start a session for " + playerName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted starting a session for " + playerName, e);
+        }
+        
+        GameSession session;
+        String id;
+        do {
+            // Skip ids taken by sessions migrated in from other hosts
+            id = Long.toString(nextSessionId.incrementAndGet(), 36);
+            session = new GameSession(id, playerName, rooms, stats, sessionExecutor);
+        } while (sessions.putIfAbsent(id, session) != null);
+        String sessionId = id;
+        session.setLeaderboardRank(rank);
+        session.setCloseListener(() -> sessions.remove(sessionId));
+        session.setBroadcaster(broadcaster);
+        // Counted before the listener is attached, as the engine has already started
+        analytics.onGameStarted(playerName);
+        session.addListener(analytics, GameEventBus.DispatchMode.SYNC);
+        configureEngine(session);
+        recordProfile(session);
+        broadcaster.publish(EventBroadcaster.EventType.GAME_STARTED, id, session.getEngine().getRoomGraph().getStartRoom(),
+            session.getEngine().getPlayer().getLives());
+        return session;
+    }
+    
+    /**
+     * startSession on a bootstrap thread, for callers such as event loops
+     * that must not wait on it. Completes exceptionally with the
+     * IllegalStateException startSession would throw.
+     */
+    public CompletableFuture<GameSession> startSessionAsync(String playerName) {
+        return CompletableFuture.supplyAsync(() -> startSession(playerName), BOOTSTRAP_EXECUTOR);
+    }
+    
+    /**
+     * Resume a frozen game here. It keeps its id unless that id is already in
+     * use on this host, in which case it gets a fresh one.
+     */
+    public GameSession restoreSession(SessionSnapshot snapshot) {
+        String id = snapshot.getSessionId();
+        GameSession session = new GameSession(id, snapshot, sessionExecutor);
+        while (sessions.putIfAbsent(id, session) != null) {
+            // Never replace a live session: keep drawing fresh ids until one is free
+            id = Long.toString(nextSessionId.incrementAndGet(), 36);
+            session = new GameSession(id, snapshot, sessionExecutor);
+        }
+        String restoredId = id;
+        session.setCloseListener(() -> sessions.remove(restoredId));
+        session.setBroadcaster(broadcaster);
+        session.addListener(analytics, GameEventBus.DispatchMode.SYNC);
+        configureEngine(session);
+        recordProfile(session);
+        return session;
+    }
+    
+    // Where new sessions get their rooms, e.g. a CampaignGenerator
+    public void setRoomSource(Supplier<CampaignGenerator.Campaign> roomSource) {
+        this.roomSource = roomSource;
+    }
+    
+    // Looks up a returning player's stats when their session starts
+    public void setProfileLoader(Function<String, PlayerStats> profileLoader) {
+        this.profileLoader = profileLoader;
+    }
+    
+    // Load players' stats from the store when their sessions start and save their profiles when games end
+    public void setProfileStore(ProfileStore profileStore) {
+        this.profileStore = profileStore;
+        this.profileLoader = profileStore != null ? profileStore::loadStats : playerName -> new PlayerStats();
+    }
+    
+    // Rules for sessions started from now on
+    public void setScoringRules(ScoringRules scoringRules) {
+        this.scoringRules = scoringRules;
+    }
+    
+    /**
+     * Tune sessions started from now on to each player: from the second room
+     * on, as the first is already set up when the session is created. Pass
+     * null for the fixed difficulty and time limit.
+     */
+    public void setAdaptiveDifficulty(AdaptiveDifficulty adaptiveDifficulty) {
+        this.adaptiveDifficulty = adaptiveDifficulty;
+    }
+    
+    // Before the session's first command, which hands the engine to the session's thread
+    private void configureEngine(GameSession session) {
+        session.getEngine().setScoringRules(scoringRules);
+        session.getEngine().setLeaderboard(leaderboard);
+        session.getEngine().setAdaptiveDifficulty(adaptiveDifficulty);
+    }
+    
+    private void recordProfile(GameSession session) {
+        ProfileStore store = profileStore;
+        if (store != null) {
+            // Synchronous, as the recorder reads the engine on the session's own thread
+            session.addListener(store.recorder(session.getEngine()), GameEventBus.DispatchMode.SYNC);
+        }
+    }
+    
+    // Pass an executor that runs tasks on the calling thread to start sessions one part at a time
+    public void setBootstrapExecutor(Executor bootstrapExecutor) {
+        this.bootstrapExecutor = bootstrapExecutor;
+    }
+    
+    public GameSession getSession(String id) {
+        return sessions.get(id);
+    }
+    
+    public Collection<GameSession> getSessions() {
+        return sessions.values();
+    }
+    
+    // Deliver one tick to every live session
+    private void tickAll() {
+        for (GameSession session : sessions.values()) {
+            session.send(SessionCommand.tick());
+        }
+    }
+    
+    // Stop ticking and end every session
+    public void shutdown() {
+        ticker.cancel();
+        for (GameSession session : sessions.values()) {
+            session.send(SessionCommand.quit());
+        }
+        sessionExecutor.shutdown();
+    }
+    
+    // Getters
+    public ExecutionMode getMode() { return mode; }
+    public int getSessionCount() { return sessions.size(); }
+    public EventBroadcaster getBroadcaster() { return broadcaster; }
+    public PuzzleAnalytics getAnalytics() { return analytics; }
+    public Leaderboard getLeaderboard() { return leaderboard; }
+}
@@ -0,0 +1,331 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SessionMigrator moves games in progress between engine nodes. The receiving
+ * side listens on a socket and resumes each snapshot it reads in its own
+ * SessionHost; the sending side freezes sessions through their actors, so
+ * every other session keeps running, and streams the snapshots across.
+ *
+ * A migration is two-phase. The sender sends a migration id, a 1 byte
+ * before each snapshot and a 0 byte at the end. The receiver reads the
+ * batch without restoring anything and answers with how many it read.
+ * The sender then sends a commit byte. Only then does the receiver resume
+ * the games; it answers with the new id of each, or why it could not
+ * resume it. A sender that loses the connection after committing can
+ * reconnect and ask by migration id what the receiver resumed.
+ * Usage: java SessionMigrator [sessions]
+ */
+public class SessionMigrator {
+    private static final byte MIGRATE = 1;
+    private static final byte QUERY = 2;
+    private static final byte SNAPSHOT = 1;
+    private static final byte END = 0;
+    private static final byte COMMIT = 1;
+    private static final int QUERY_ATTEMPTS = 3;
+    private static final long QUERY_BACKOFF_MILLIS = 200;
+    private static final int REMEMBERED_MIGRATIONS = 1024;
+    private static final CompletableFuture<List<String>> NOT_RESTORED = CompletableFuture.completedFuture(null);
+    
+    private final SessionHost host;
+    private final Map<Long, CompletableFuture<List<String>>> outcomes; // recent migrations by id, for senders that lost the answer
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+    private volatile boolean running;
+    
+    // Receive migrated sessions into the given host
+    public SessionMigrator(SessionHost host, int port) throws IOException {
+        this.host = host;
+        this.outcomes = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<List<String>>> eldest) {
+                return size() > REMEMBERED_MIGRATIONS;
+            }
+        });
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress("127.0.0.1", port));
+        this.acceptThread = new Thread(this::acceptLoop, "session-migrator");
+        acceptThread.setDaemon(true);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+        SessionHost source = new SessionHost(SessionHost.ExecutionMode.VIRTUAL_THREADS, poolSize);
+        SessionHost target = new SessionHost(SessionHost.ExecutionMode.VIRTUAL_THREADS, poolSize);
+        SessionMigrator receiver = new SessionMigrator(target, 0);
+        receiver.start();
+        
+        List<GameSession> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sessions.add(source.startSession("player" + i));
+        }
+        // Make some progress so there is state worth keeping
+        for (GameSession session : sessions) {
+            session.submitAnswer("echo");
+            session.useHint();
+        }
+        
+        long started = System.nanoTime();
+        Map<String, String> moved = migrate(source, sessions, new InetSocketAddress("127.0.0.1", receiver.getPort()));
+        double millis = (System.nanoTime() - started) / 1e6;
+        System.out.printf("Migrated %d sessions in %.0f ms (%d left on source, %d on target)%n",
+            moved.size(), millis, source.getSessionCount(), target.getSessionCount());
+        
+        GameSession sample = target.getSession(moved.get(sessions.get(0).getId()));
+        int[] state = sample.query(engine -> new int[]{
+            engine.getCurrentRoomIndex(), engine.getPlayer().getHints(), engine.getTimeRemaining()}).get();
+        System.out.println("Sample on target: room=" + state[0] + " hints=" + state[1] + " time=" + state[2]);
+        
+        receiver.stop();
+        source.shutdown();
+        target.shutdown();
+    }
+    
+    public void start() {
+        running = true;
+        acceptThread.start();
+    }
+    
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing migration socket: " + e.getMessage());
+        }
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread receiver = new Thread(() -> receive(socket), "session-migrator-receive");
+                receiver.setDaemon(true);
+                receiver.start();
+            } catch (SocketException e) {
+                break; // Closed by stop()
+            } catch (IOException e) {
+                System.err.println("Migration accept failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Reads the whole batch before restoring anything, and restores only once
+     * the sender commits, so a transfer that breaks early leaves no copies here.
+     */
+    private void receive(Socket socket) {
+        try (Socket connection = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            byte request = in.readByte();
+            long migrationId = in.readLong();
+            if (request == QUERY) {
+                // Claim the id first, so a commit arriving after the question is ignored
+                CompletableFuture<List<String>> outcome = outcomes.putIfAbsent(migrationId, NOT_RESTORED);
+                writeOutcome(out, outcome != null ? outcome.join() : null, null);
+                return;
+            }
+            
+            List<SessionSnapshot> snapshots = new ArrayList<>();
+            while (in.readByte() == SNAPSHOT) {
+                snapshots.add(SessionSnapshot.readFrom(in));
+            }
+            out.writeInt(snapshots.size());
+            out.flush();
+            if (in.readByte() != COMMIT) return;
+            
+            CompletableFuture<List<String>> outcome = new CompletableFuture<>();
+            if (outcomes.putIfAbsent(migrationId, outcome) != null) {
+                return; // The sender already asked about this migration and resumed the games itself
+            }
+            List<String> ids = new ArrayList<>(snapshots.size());
+            List<String> errors = new ArrayList<>(snapshots.size());
+            try {
+                for (SessionSnapshot snapshot : snapshots) {
+                    try {
+                        ids.add(host.restoreSession(snapshot).getId());
+                        errors.add(null);
+                    } catch (RuntimeException e) {
+                        // The sender resumes this one itself
+                        ids.add(null);
+                        errors.add(String.valueOf(e.getMessage()));
+                    }
+                }
+            } finally {
+                outcome.complete(ids);
+            }
+            writeOutcome(out, ids, errors);
+        } catch (IOException e) {
+            System.err.println("Migration receive failed: " + e.getMessage());
+        }
+    }
+    
+    // The new id of every snapshot in a batch, or a failure message; -1 for a batch that was never restored
+    private static void writeOutcome(DataOutputStream out, List<String> ids, List<String> errors) throws IOException {
+        if (ids == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ids.get(i);
+                out.writeBoolean(id != null);
+                out.writeUTF(id != null ? id : errors != null ? errors.get(i) : "Restore failed");
+            }
+        }
+        out.flush();
+    }
+    
+    // New ids in batch order, null where the restore failed; or null if the batch was never restored
+    private static List<String> readOutcome(DataInputStream in, int expected) throws IOException {
+        int count = in.readInt();
+        if (count < 0) return null;
+        if (count != expected) {
+            throw new IOException("Target answered for " + count + " of " + expected + " sessions");
+        }
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean restored = in.readBoolean();
+            String text = in.readUTF();
+            if (!restored) {
+                System.err.println("Target could not resume a session: " + text);
+            }
+            ids.add(restored ? text : null);
+        }
+        return ids;
+    }
+    
+    /**
+     * Freezes the sessions and resumes them on the node listening at target.
+     * All freezes are queued up front so sessions stop in parallel; each
+     * snapshot is sent as soon as it is ready, in order.
+     *
+     * Every game ends up live in exactly one place. If the transfer fails
+     * before the commit, the games are resumed here. Sessions the target
+     * could not restore are also resumed here. If the connection fails after
+     * the commit, the target is asked which sessions it resumed, and only
+     * the rest are resumed here. When the target can't be asked either,
+     * nothing is resumed here and the migration is reported as in doubt.
+     * @return old session id to new session id, for sessions that moved
+     */
+    public static Map<String, String> migrate(SessionHost source, Collection<GameSession> sessions,
+                                              InetSocketAddress target) throws IOException {
+        long migrationId = ThreadLocalRandom.current().nextLong();
+        List<CompletableFuture<SessionSnapshot>> frozen = new ArrayList<>(sessions.size());
+        for (GameSession session : sessions) {
+            frozen.add(session.freeze());
+        }
+        
+        List<SessionSnapshot> sent = new ArrayList<>(sessions.size());
+        boolean committing = false;
+        List<String> ids;
+        try (Socket socket = new Socket()) {
+            socket.connect(target);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            out.writeByte(MIGRATE);
+            out.writeLong(migrationId);
+            for (CompletableFuture<SessionSnapshot> future : frozen) {
+                SessionSnapshot snapshot;
+                try {
+                    snapshot = future.join();
+                } catch (CompletionException | CancellationException e) {
+                    continue; // Session ended before it could be frozen
+                }
+                out.writeByte(SNAPSHOT);
+                snapshot.writeTo(out);
+                sent.add(snapshot);
+            }
+            out.writeByte(END);
+            out.flush();
+            
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int received = in.readInt();
+            if (received != sent.size()) {
+                throw new IOException("Target read " + received + " of " + sent.size() + " sessions");
+            }
+            committing = true;
+            out.writeByte(COMMIT);
+            out.flush();
+            ids = readOutcome(in, sent.size());
+        } catch (IOException e) {
+            if (!committing) {
+                // The target restores nothing without the commit, so the games stay here
+                resumeAll(source, frozen);
+                throw e;
+            }
+            ids = queryOutcome(target, migrationId, sent.size(), e);
+            if (ids == null) {
+                resumeAll(source, frozen);
+                throw e;
+            }
+        }
+        
+        Map<String, String> moved = new LinkedHashMap<>();
+        for (int i = 0; i < sent.size(); i++) {
+            if (ids.get(i) != null) {
+                moved.put(sent.get(i).getSessionId(), ids.get(i));
+            } else {
+                source.restoreSession(sent.get(i));
+            }
+        }
+        return moved;
+    }
+    
+    // After a failure past the commit: ask the target what it restored, or null if it never will
+    private static List<String> queryOutcome(InetSocketAddress target, long migrationId, int expected,
+                                             IOException failure) throws IOException {
+        for (int attempt = 1; attempt <= QUERY_ATTEMPTS; attempt++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(target);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeByte(QUERY);
+                out.writeLong(migrationId);
+                out.flush();
+                return readOutcome(new DataInputStream(new BufferedInputStream(socket.getInputStream())), expected);
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+            try {
+                Thread.sleep(QUERY_BACKOFF_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new IOException("Migration in doubt: the target may have resumed the sessions, so they were not resumed here", failure);
+    }
+    
+    // Don't strand frozen players: bring every captured game back where it was
+    private static void resumeAll(SessionHost source, List<CompletableFuture<SessionSnapshot>> frozen) {
+        for (CompletableFuture<SessionSnapshot> future : frozen) {
+            try {
+                source.restoreSession(future.join());
+            } catch (CompletionException | CancellationException ended) {
+                // Nothing to restore
+            }
+        }
+    }
+}
@@ -0,0 +1,527 @@
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SessionSnapshot is the compact, self-contained state of one game in progress:
+ * the player and their stats, their progress, and the campaign they are
+ * playing - every room with its exact puzzle, and the doors and items that
+ * join the rooms. Puzzle text is randomly generated and a room source may be
+ * anything, so the content itself travels rather than a seed.
+ * Capture and restore must run on the engine's owning thread.
+ */
+public class SessionSnapshot {
+    private static final byte FORMAT_VERSION = 3; // 2 added the score; 3 the campaign, stats and time limit
+    private static final byte ROOM_UNLOCKED = 1;
+    private static final byte ROOM_COMPLETED = 2;
+    private static final Puzzle.PuzzleType[] PUZZLE_TYPES = Puzzle.PuzzleType.values();
+    
+    private final String sessionId;
+    private final String playerName;
+    private final int lives;
+    private final int hints;
+    private final String[] inventory;
+    private final byte[] stats; // PlayerStats as written by writeTo, or null from older versions
+    private final int roomIndex;
+    private final boolean running;
+    private final boolean won;
+    private final int timeLimit; // 0 from older versions, which kept the receiver's
+    private final int timeRemaining;
+    private final boolean countdownActive;
+    private final long score;
+    private final long capturedAtMillis;
+    private final RoomState[] rooms;
+    private final CampaignMap map; // null from older versions, which restored onto the receiver's rooms
+    
+    private SessionSnapshot(String sessionId, String playerName, int lives, int hints, String[] inventory, byte[] stats,
+                            int roomIndex, boolean running, boolean won, int timeLimit, int timeRemaining,
+                            boolean countdownActive, long score, long capturedAtMillis, RoomState[] rooms, CampaignMap map) {
+        this.sessionId = sessionId;
+        this.playerName = playerName;
+        this.lives = lives;
+        this.hints = hints;
+        this.inventory = inventory;
+        this.stats = stats;
+        this.roomIndex = roomIndex;
+        this.running = running;
+        this.won = won;
+        this.timeLimit = timeLimit;
+        this.timeRemaining = timeRemaining;
+        this.countdownActive = countdownActive;
+        this.score = score;
+        this.capturedAtMillis = capturedAtMillis;
+        this.rooms = rooms;
+        this.map = map;
+    }
+    
+    // Copy the engine's state; the wall-clock capture time lets the receiver charge transfer time
+    public static SessionSnapshot capture(String sessionId, GameEngine engine) {
+        Player player = engine.getPlayer();
+        List<Room> engineRooms = engine.getRooms();
+        RoomState[] rooms = new RoomState[engineRooms.size()];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = RoomState.of(engineRooms.get(i));
+        }
+        return new SessionSnapshot(sessionId, player.getName(), player.getLives(), player.getHints(),
+            player.getInventory().toArray(new String[0]), statsBytes(player.getStats()), engine.getCurrentRoomIndex(),
+            engine.isGameRunning(), engine.isGameWon(), engine.getTimeLimit(), engine.getTimeRemaining(),
+            engine.isCountdownActive(), engine.getScore(), System.currentTimeMillis(), rooms,
+            CampaignMap.of(engine.getRoomGraph()));
+    }
+    
+    // Stats are kept serialized, so restoring the snapshot twice never shares them between games
+    private static byte[] statsBytes(PlayerStats stats) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            stats.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Builds an engine on the snapshot's campaign and resumes the game in it.
+     * Seconds that passed since capture are taken off the countdown, but
+     * never the last one: a player should not lose a life to a migration.
+     * @throws IllegalArgumentException if the snapshot's rooms and doors don't fit together
+     */
+    public GameEngine restore() {
+        if (roomIndex < 0 || roomIndex > rooms.length) {
+            throw new IllegalArgumentException("Snapshot is in room " + roomIndex + " of " + rooms.length);
+        }
+        GameEngine engine;
+        CampaignGenerator.Campaign campaign = null;
+        if (map != null) {
+            List<Room> campaignRooms = new ArrayList<>(rooms.length);
+            for (int i = 0; i < rooms.length; i++) {
+                campaignRooms.add(rooms[i].toRoom(i, null));
+            }
+            campaign = new CampaignGenerator.Campaign(campaignRooms, map.toGraph(rooms));
+            engine = new GameEngine(campaign);
+        } else {
+            // Older snapshots carry only the puzzles, for the hand-written rooms
+            engine = new GameEngine();
+            List<Room> engineRooms = engine.getRooms();
+            if (engineRooms.size() != rooms.length) {
+                throw new IllegalArgumentException("Snapshot has " + rooms.length + " rooms, engine has " + engineRooms.size());
+            }
+            for (int i = 0; i < rooms.length; i++) {
+                rooms[i].toRoom(i, engineRooms.get(i));
+            }
+        }
+        
+        PlayerStats playerStats;
+        try {
+            playerStats = stats != null ? PlayerStats.readFrom(new DataInputStream(new ByteArrayInputStream(stats))) : new PlayerStats();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Snapshot has unreadable player stats", e);
+        }
+        Player player = new Player(playerName, playerStats);
+        player.setLives(lives);
+        player.setHints(hints);
+        for (String item : inventory) {
+            player.addItem(item);
+        }
+        player.setCurrentRoom(roomIndex);
+        
+        int remaining = timeRemaining;
+        if (countdownActive) {
+            long elapsedSeconds = Math.max(0, System.currentTimeMillis() - capturedAtMillis) / 1000;
+            remaining = (int) Math.max(1, timeRemaining - elapsedSeconds);
+        }
+        engine.restore(player, campaign, roomIndex, running, won, timeLimit > 0 ? timeLimit : engine.getTimeLimit(),
+            remaining, countdownActive, score);
+        return engine;
+    }
+    
+    // Snapshots read from older versions lack the campaign and can only be restored where they land
+    public void writeTo(DataOutput out) throws IOException {
+        if (map == null) {
+            throw new IllegalStateException("Snapshot " + sessionId + " is from an older version and has no campaign to send on");
+        }
+        out.writeByte(FORMAT_VERSION);
+        out.writeUTF(sessionId);
+        out.writeUTF(playerName);
+        out.writeByte(lives);
+        out.writeByte(hints);
+        out.writeByte(inventory.length);
+        for (String item : inventory) {
+            out.writeUTF(item);
+        }
+        out.writeInt(stats.length);
+        out.write(stats);
+        out.writeInt(roomIndex);
+        out.writeByte((running ? 1 : 0) | (won ? 2 : 0) | (countdownActive ? 4 : 0));
+        out.writeInt(timeLimit);
+        out.writeInt(timeRemaining);
+        out.writeLong(score);
+        out.writeLong(capturedAtMillis);
+        map.writeTo(out);
+        out.writeInt(rooms.length);
+        for (RoomState room : rooms) {
+            room.writeTo(out);
+        }
+    }
+    
+    public static SessionSnapshot readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        boolean full = version >= 3;
+        String sessionId = in.readUTF();
+        String playerName = in.readUTF();
+        int lives = in.readByte();
+        int hints = in.readByte();
+        String[] inventory = new String[in.readUnsignedByte()];
+        for (int i = 0; i < inventory.length; i++) {
+            inventory[i] = in.readUTF();
+        }
+        byte[] stats = null;
+        if (full) {
+            stats = new byte[checkedLength(in.readInt(), "stats")];
+            in.readFully(stats);
+        }
+        int roomIndex = full ? in.readInt() : in.readUnsignedByte();
+        int state = in.readByte();
+        int timeLimit = full ? in.readInt() : 0;
+        int timeRemaining = in.readInt();
+        long score = version >= 2 ? in.readLong() : 0;
+        long capturedAtMillis = in.readLong();
+        CampaignMap map = full ? CampaignMap.readFrom(in) : null;
+        RoomState[] rooms = new RoomState[full ? checkedLength(in.readInt(), "room") : in.readUnsignedByte()];
+        for (int i = 0; i < rooms.length; i++) {
+            rooms[i] = full ? RoomState.readFrom(in) : RoomState.readPuzzleFrom(in);
+        }
+        return new SessionSnapshot(sessionId, playerName, lives, hints, inventory, stats, roomIndex,
+            (state & 1) != 0, (state & 2) != 0, timeLimit, timeRemaining, (state & 4) != 0, score, capturedAtMillis,
+            rooms, map);
+    }
+    
+    // A count read off the wire, before an array is sized by it
+    private static int checkedLength(int length, String what) throws IOException {
+        if (length < 0 || length > 1 << 24) {
+            throw new IOException("Bad " + what + " count " + length);
+        }
+        return length;
+    }
+    
+    private static void writeOptionalUTF(DataOutput out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) {
+            out.writeUTF(text);
+        }
+    }
+    
+    private static String readOptionalUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    private static void writeStrings(DataOutput out, String[] strings) throws IOException {
+        out.writeShort(strings.length);
+        for (String text : strings) {
+            out.writeUTF(text);
+        }
+    }
+    
+    private static String[] readStrings(DataInput in) throws IOException {
+        String[] strings = new String[in.readUnsignedShort()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+    
+    /**
+     * One room as captured: what the player sees, its items, and its puzzle.
+     * Older snapshots carry only the flags and the puzzle.
+     */
+    private static final class RoomState {
+        private String name;
+        private String description;
+        private Color color;
+        private String imagePath;
+        private String doorDescription;
+        private String[] requiredItems;
+        private String rewardItem;
+        private byte flags;
+        private byte puzzleType;
+        private String question;
+        private String answer;
+        private String hint;
+        private String extra; // Caesar shift or substitution key, empty otherwise
+        private String[] matcherTerms; // a FuzzyAnswerMatcher's answer and synonyms, or null for an exact match
+        
+        static RoomState of(Room room) {
+            RoomState state = new RoomState();
+            state.name = room.getName();
+            state.description = room.getDescription();
+            state.color = room.getBackgroundColor();
+            state.imagePath = room.getBackgroundImagePath();
+            state.doorDescription = room.getDoorDescription();
+            state.requiredItems = room.getRequiredItems().toArray(new String[0]);
+            state.rewardItem = room.getRewardItem();
+            state.flags = (byte) ((room.isUnlocked() ? ROOM_UNLOCKED : 0) | (room.isCompleted() ? ROOM_COMPLETED : 0));
+            Puzzle puzzle = room.getPuzzle();
+            state.puzzleType = (byte) puzzle.getType().ordinal();
+            state.question = puzzle.getQuestion();
+            state.answer = puzzle.getAnswer();
+            state.hint = puzzle.getHint();
+            if (puzzle instanceof CaesarCipherPuzzle) {
+                state.extra = String.valueOf(((CaesarCipherPuzzle) puzzle).getShift());
+            } else if (puzzle instanceof SubstitutionCipherPuzzle) {
+                state.extra = ((SubstitutionCipherPuzzle) puzzle).getKey();
+            } else {
+                state.extra = "";
+            }
+            // Other matchers can't be rebuilt elsewhere, so their puzzles fall back to an exact match
+            if (puzzle.getAnswerMatcher() instanceof FuzzyAnswerMatcher) {
+                state.matcherTerms = ((FuzzyAnswerMatcher) puzzle.getAnswerMatcher()).getTerms();
+            }
+            return state;
+        }
+        
+        /**
+         * Builds the room with its puzzle and progress, or with existing set,
+         * puts just the puzzle and progress into that room.
+         */
+        Room toRoom(int id, Room existing) {
+            Room room = existing;
+            Puzzle current = existing != null ? existing.getPuzzle() : null;
+            if (room == null) {
+                room = new Room(id, name, description, color);
+                room.setBackgroundImagePath(imagePath);
+                room.setDoorDescription(doorDescription);
+                for (String item : requiredItems) {
+                    room.addRequiredItem(item);
+                }
+                room.setRewardItem(rewardItem);
+            }
+            Puzzle puzzle = createPuzzle();
+            if (matcherTerms != null && matcherTerms.length > 0) {
+                String[] synonyms = new String[matcherTerms.length - 1];
+                System.arraycopy(matcherTerms, 1, synonyms, 0, synonyms.length);
+                puzzle.setAnswerMatcher(new FuzzyAnswerMatcher(matcherTerms[0], synonyms));
+            } else if (current != null && current.getAnswerMatcher() != null && current.getAnswer().equals(answer)) {
+                // Older snapshots: keep a forgiving matcher configured for the same answer
+                puzzle.setAnswerMatcher(current.getAnswerMatcher());
+            }
+            room.setPuzzle(puzzle);
+            room.setUnlocked((flags & ROOM_UNLOCKED) != 0);
+            if ((flags & ROOM_COMPLETED) != 0) {
+                room.complete();
+            }
+            return room;
+        }
+        
+        private Puzzle createPuzzle() {
+            Puzzle.PuzzleType type = PUZZLE_TYPES[puzzleType];
+            switch (type) {
+                case RIDDLE:
+                    return new RiddlePuzzle(question, answer, hint);
+                case CAESAR_CIPHER:
+                    return new CaesarCipherPuzzle(question, answer, hint, Integer.parseInt(extra));
+                case SUBSTITUTION_CIPHER:
+                    return new SubstitutionCipherPuzzle(question, answer, hint, extra);
+                case MATH:
+                    return new MathPuzzle(question, answer, hint);
+                case WORD_SCRAMBLE:
+                    return new WordScramblePuzzle(question, answer, hint, WordDictionary.getDefault());
+                case LOGIC:
+                    return new LogicPuzzle(question, answer, hint);
+                default:
+                    throw new IllegalArgumentException("Unknown puzzle type: " + type);
+            }
+        }
+        
+        void writeTo(DataOutput out) throws IOException {
+            out.writeUTF(name);
+            out.writeUTF(description);
+            out.writeBoolean(color != null);
+            if (color != null) {
+                out.writeInt(color.getRGB());
+            }
+            writeOptionalUTF(out, imagePath);
+            out.writeUTF(doorDescription);
+            writeStrings(out, requiredItems);
+            writeOptionalUTF(out, rewardItem);
+            writePuzzleTo(out);
+            out.writeBoolean(matcherTerms != null);
+            if (matcherTerms != null) {
+                writeStrings(out, matcherTerms);
+            }
+        }
+        
+        // The part older snapshots carried
+        private void writePuzzleTo(DataOutput out) throws IOException {
+            out.writeByte(flags);
+            out.writeByte(puzzleType);
+            out.writeUTF(question);
+            out.writeUTF(answer);
+            out.writeUTF(hint);
+            out.writeUTF(extra);
+        }
+        
+        static RoomState readFrom(DataInput in) throws IOException {
+            String name = in.readUTF();
+            String description = in.readUTF();
+            Color color = in.readBoolean() ? new Color(in.readInt(), true) : null;
+            String imagePath = readOptionalUTF(in);
+            String doorDescription = in.readUTF();
+            String[] requiredItems = readStrings(in);
+            String rewardItem = readOptionalUTF(in);
+            RoomState state = readPuzzleFrom(in);
+            state.name = name;
+            state.description = description;
+            state.color = color;
+            state.imagePath = imagePath;
+            state.doorDescription = doorDescription;
+            state.requiredItems = requiredItems;
+            state.rewardItem = rewardItem;
+            state.matcherTerms = in.readBoolean() ? readStrings(in) : null;
+            return state;
+        }
+        
+        static RoomState readPuzzleFrom(DataInput in) throws IOException {
+            RoomState state = new RoomState();
+            state.flags = in.readByte();
+            state.puzzleType = in.readByte();
+            if (state.puzzleType < 0 || state.puzzleType >= PUZZLE_TYPES.length) {
+                throw new IOException("Unknown puzzle type " + state.puzzleType);
+            }
+            state.question = in.readUTF();
+            state.answer = in.readUTF();
+            state.hint = in.readUTF();
+            state.extra = in.readUTF();
+            return state;
+        }
+    }
+    
+    /**
+     * The campaign's RoomGraph as captured: item kinds in id order, each
+     * room's item masks and doors, and where the campaign starts
+     */
+    private static final class CampaignMap {
+        private final int startRoom;
+        private final long startItems;
+        private final String[] itemNames;
+        private final long[] requiredItems;
+        private final long[] rewardItems;
+        private final int[] doorOffsets;
+        private final int[] doorTargets;
+        
+        private CampaignMap(int startRoom, long startItems, String[] itemNames, long[] requiredItems,
+                            long[] rewardItems, int[] doorOffsets, int[] doorTargets) {
+            this.startRoom = startRoom;
+            this.startItems = startItems;
+            this.itemNames = itemNames;
+            this.requiredItems = requiredItems;
+            this.rewardItems = rewardItems;
+            this.doorOffsets = doorOffsets;
+            this.doorTargets = doorTargets;
+        }
+        
+        static CampaignMap of(RoomGraph graph) {
+            int rooms = graph.getRoomCount();
+            String[] itemNames = new String[graph.getItemKindCount()];
+            for (int id = 0; id < itemNames.length; id++) {
+                itemNames[id] = graph.getItemName(id);
+            }
+            long[] requiredItems = new long[rooms];
+            long[] rewardItems = new long[rooms];
+            int[] doorOffsets = new int[rooms + 1];
+            int[] doorTargets = new int[graph.getDoorCount()];
+            for (int r = 0; r < rooms; r++) {
+                requiredItems[r] = graph.getRequiredItems(r);
+                rewardItems[r] = graph.getRewardItems(r);
+                doorOffsets[r + 1] = graph.getDoorEnd(r);
+                for (int d = graph.getDoorStart(r); d < graph.getDoorEnd(r); d++) {
+                    doorTargets[d] = graph.getDoorTarget(d);
+                }
+            }
+            return new CampaignMap(graph.getStartRoom(), graph.getStartItems(), itemNames, requiredItems,
+                rewardItems, doorOffsets, doorTargets);
+        }
+        
+        // Rebuild the graph; item ids come out as they went in, since they are registered in id order
+        RoomGraph toGraph(RoomState[] rooms) {
+            if (requiredItems.length != rooms.length) {
+                throw new IllegalArgumentException("Snapshot has " + rooms.length + " rooms but doors for " + requiredItems.length);
+            }
+            RoomGraph.Builder builder = new RoomGraph.Builder();
+            for (String item : itemNames) {
+                builder.itemId(item);
+            }
+            for (int r = 0; r < requiredItems.length; r++) {
+                builder.addRoom(requiredItems[r], rewardItems[r]);
+            }
+            for (int r = 0; r < requiredItems.length; r++) {
+                for (int d = doorOffsets[r]; d < doorOffsets[r + 1]; d++) {
+                    builder.addDoor(r, doorTargets[d]);
+                }
+            }
+            return builder.setStartRoom(startRoom).setStartItems(startItems).build();
+        }
+        
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(startRoom);
+            out.writeLong(startItems);
+            writeStrings(out, itemNames);
+            out.writeInt(requiredItems.length);
+            for (int r = 0; r < requiredItems.length; r++) {
+                out.writeLong(requiredItems[r]);
+                out.writeLong(rewardItems[r]);
+                out.writeInt(doorOffsets[r + 1] - doorOffsets[r]);
+                for (int d = doorOffsets[r]; d < doorOffsets[r + 1]; d++) {
+                    out.writeInt(doorTargets[d]);
+                }
+            }
+        }
+        
+        static CampaignMap readFrom(DataInput in) throws IOException {
+            int startRoom = in.readInt();
+            long startItems = in.readLong();
+            String[] itemNames = readStrings(in);
+            if (itemNames.length > RoomGraph.MAX_ITEM_KINDS) {
+                throw new IOException("Bad item kind count " + itemNames.length);
+            }
+            int rooms = checkedLength(in.readInt(), "room");
+            long[] requiredItems = new long[rooms];
+            long[] rewardItems = new long[rooms];
+            int[] doorOffsets = new int[rooms + 1];
+            int[] doorTargets = new int[Math.max(16, rooms)];
+            for (int r = 0; r < rooms; r++) {
+                requiredItems[r] = in.readLong();
+                rewardItems[r] = in.readLong();
+                int doors = checkedLength(in.readInt(), "door");
+                int start = doorOffsets[r];
+                doorOffsets[r + 1] = start + doors;
+                while (doorOffsets[r + 1] > doorTargets.length) {
+                    doorTargets = Arrays.copyOf(doorTargets, doorTargets.length * 2);
+                }
+                for (int d = start; d < doorOffsets[r + 1]; d++) {
+                    doorTargets[d] = in.readInt();
+                }
+            }
+            return new CampaignMap(startRoom, startItems, itemNames, requiredItems, rewardItems, doorOffsets, doorTargets);
+        }
+    }
+    
+    // Getters
+    public String getSessionId() { return sessionId; }
+    public String getPlayerName() { return playerName; }
+    public int getRoomIndex() { return roomIndex; }
+    public int getRoomCount() { return rooms.length; }
+    public int getTimeRemaining() { return timeRemaining; }
+    public long getScore() { return score; }
+}
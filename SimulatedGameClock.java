@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SimulatedGameClock is a fixed-step clock that only moves when advance is
+ * called. Each step runs the registered tasks on the caller's thread in the
+ * order they were registered, so a run is fully repeatable and can cover
+ * hours of game time in milliseconds. Not thread-safe: one thread owns the
+ * clock and every engine attached to it.
+ */
+public class SimulatedGameClock implements GameClock {
+    private final List<Task> tasks = new ArrayList<>();
+    private long elapsedSeconds;
+    
+    @Override
+    public Registration everySecond(Runnable task) {
+        Task registered = new Task(task);
+        tasks.add(registered);
+        return registered;
+    }
+    
+    /**
+     * Steps the clock forward one second at a time. Tasks registered during a
+     * step first run on the next one; tasks cancelled during a step are skipped.
+     */
+    public void advance(long seconds) {
+        for (long s = 0; s < seconds; s++) {
+            elapsedSeconds++;
+            int count = tasks.size();
+            boolean anyCancelled = false;
+            for (int i = 0; i < count; i++) {
+                Task task = tasks.get(i);
+                if (task.cancelled) {
+                    anyCancelled = true;
+                } else {
+                    task.action.run();
+                }
+            }
+            if (anyCancelled) {
+                tasks.removeIf(task -> task.cancelled);
+            }
+        }
+    }
+    
+    // Game seconds since the clock was created
+    public long getElapsedSeconds() { return elapsedSeconds; }
+    
+    // Number of tasks still scheduled
+    public int getTaskCount() {
+        int count = 0;
+        for (Task task : tasks) {
+            if (!task.cancelled) count++;
+        }
+        return count;
+    }
+    
+    private static class Task implements Registration {
+        private final Runnable action;
+        private boolean cancelled;
+        
+        Task(Runnable action) {
+            this.action = action;
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpectatorFeed serves Server-Sent Event streams of a host's game events.
+ * One reader thread follows the EventBroadcaster ring and formats each event
+ * once, then hands the frame to the spectators watching that session (or
+ * all sessions). Each spectator has a short queue of frames and a writer on
+ * the feed's own executor that blocks on it, so spectators never hold API
+ * request threads and only the reader waits on the ring.
+ *
+ * Publishing never waits for spectators: when a spectator's queue is full,
+ * frames are dropped and the spectator is told how many it missed.
+ */
+public class SpectatorFeed {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long KEEPALIVE_SECONDS = 15;
+    private static final byte[] KEEPALIVE = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+    
+    private final EventBroadcaster broadcaster;
+    private final ExecutorService writers;
+    private final int maxSpectators;
+    private final Set<Spectator> everything; // spectators of every session
+    private final ConcurrentHashMap<String, Set<Spectator>> bySession; // spectators of one session, by its id
+    private final AtomicInteger spectatorCount;
+    private final Thread reader;
+    private volatile boolean running;
+    
+    // Writers run on the given executor, one task per connected spectator for as long as it stays
+    public SpectatorFeed(EventBroadcaster broadcaster, ExecutorService writers, int maxSpectators) {
+        this.broadcaster = broadcaster;
+        this.writers = writers;
+        this.maxSpectators = maxSpectators;
+        this.everything = ConcurrentHashMap.newKeySet();
+        this.bySession = new ConcurrentHashMap<>();
+        this.spectatorCount = new AtomicInteger();
+        this.reader = new Thread(this::readEvents, "spectator-feed");
+        reader.setDaemon(true);
+    }
+    
+    public void start() {
+        running = true;
+        reader.start();
+    }
+    
+    // Stop reading events and end every stream
+    public void stop() {
+        running = false;
+        reader.interrupt();
+        writers.shutdownNow();
+    }
+    
+    /**
+     * Starts streaming to a spectator, of one session or of all when
+     * sessionId is null. The exchange belongs to the feed from here on.
+     * @return false without touching the exchange if the feed is full
+     */
+    public boolean open(HttpExchange exchange, String sessionId) throws IOException {
+        if (spectatorCount.incrementAndGet() > maxSpectators || !running) {
+            spectatorCount.decrementAndGet();
+            return false;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        Spectator spectator = new Spectator(exchange, sessionId);
+        try {
+            exchange.sendResponseHeaders(200, 0);
+        } catch (IOException e) {
+            spectator.close();
+            throw e;
+        }
+        if (sessionId == null) {
+            everything.add(spectator);
+        } else {
+            // Added inside compute, so it can't land in a set that close is dropping from the map
+            bySession.compute(sessionId, (id, watchers) -> {
+                Set<Spectator> set = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                set.add(spectator);
+                return set;
+            });
+        }
+        try {
+            writers.execute(spectator::write);
+        } catch (RejectedExecutionException e) {
+            spectator.close(); // The feed is stopping
+        }
+        return true;
+    }
+    
+    public int getSpectatorCount() {
+        return spectatorCount.get();
+    }
+    
+    private void readEvents() {
+        EventBroadcaster.Subscriber subscriber = broadcaster.subscribe();
+        long reportedDrops = 0;
+        StringWriter frame = new StringWriter(256);
+        while (running) {
+            if (!subscriber.next(1, TimeUnit.SECONDS)) continue;
+            if (subscriber.getDropped() != reportedDrops) {
+                // The reader itself fell a ring behind; everyone missed those events
+                long missed = subscriber.getDropped() - reportedDrops;
+                reportedDrops = subscriber.getDropped();
+                for (Spectator spectator : everything) {
+                    spectator.dropped.addAndGet(missed);
+                }
+                for (Set<Spectator> watchers : bySession.values()) {
+                    for (Spectator spectator : watchers) {
+                        spectator.dropped.addAndGet(missed);
+                    }
+                }
+            }
+            Set<Spectator> watchers = bySession.get(subscriber.getSessionId());
+            if (everything.isEmpty() && (watchers == null || watchers.isEmpty())) continue;
+            
+            frame.getBuffer().setLength(0);
+            try {
+                frame.write("id: " + subscriber.getSequence() + "\nevent: " + subscriber.getType().name().toLowerCase() + "\ndata: ");
+                new JsonWriter(frame).beginObject()
+                    .name("session").value(subscriber.getSessionId())
+                    .name("room").value(subscriber.getRoom())
+                    .name("value").value(subscriber.getValue())
+                    .endObject();
+                frame.write("\n\n");
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // StringWriter doesn't throw
+            }
+            byte[] bytes = frame.toString().getBytes(StandardCharsets.UTF_8);
+            for (Spectator spectator : everything) {
+                spectator.offer(bytes);
+            }
+            if (watchers != null) {
+                for (Spectator spectator : watchers) {
+                    spectator.offer(bytes);
+                }
+            }
+        }
+    }
+    
+    /**
+     * One connected spectator: its queue of frames and its writer
+     */
+    private final class Spectator {
+        private final HttpExchange exchange;
+        private final String sessionId; // null to watch every session
+        private final BlockingQueue<byte[]> frames;
+        private final AtomicLong dropped; // frames missed since the last lagged notice
+        private final AtomicBoolean closed;
+        
+        Spectator(HttpExchange exchange, String sessionId) {
+            this.exchange = exchange;
+            this.sessionId = sessionId;
+            this.frames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            this.dropped = new AtomicLong();
+            this.closed = new AtomicBoolean();
+        }
+        
+        // On the reader thread; never blocks
+        void offer(byte[] frame) {
+            if (!frames.offer(frame)) {
+                dropped.incrementAndGet();
+            }
+        }
+        
+        // On a writer thread until the spectator goes away or the feed stops
+        void write() {
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (running) {
+                    byte[] frame = frames.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                    long missed = dropped.getAndSet(0);
+                    if (missed > 0) {
+                        StringWriter lagged = new StringWriter(64);
+                        lagged.write("event: lagged\ndata: ");
+                        new JsonWriter(lagged).beginObject().name("dropped").value(missed).endObject();
+                        lagged.write("\n\n");
+                        out.write(lagged.toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                    if (frame == null) {
+                        if (missed == 0) out.write(KEEPALIVE);
+                    } else {
+                        // Send whatever else is already queued with the same flush
+                        do {
+                            out.write(frame);
+                        } while ((frame = frames.poll()) != null);
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Spectator went away
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+        
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            if (sessionId == null) {
+                everything.remove(this);
+            } else {
+                bySession.computeIfPresent(sessionId, (id, watchers) -> {
+                    watchers.remove(this);
+                    return watchers.isEmpty() ? null : watchers;
+                });
+            }
+            spectatorCount.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Substitution cipher puzzle implementation
+ */
+class SubstitutionCipherPuzzle extends Puzzle {
+    private String key;
+    
+    public SubstitutionCipherPuzzle(String encryptedText, String answer, String hint, String key) {
+        super(encryptedText, answer, hint, PuzzleType.SUBSTITUTION_CIPHER);
+        this.key = key;
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        return checkAnswer(userAnswer);
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Decrypt this substitution cipher:";
+    }
+    
+    public String getKey() { return key; }
+}
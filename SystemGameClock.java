@@ -0,0 +1,32 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SystemGameClock ticks in real time. All engines share one daemon scheduler
+ * thread instead of starting a timer thread per puzzle.
+ */
+public class SystemGameClock implements GameClock {
+    private static final SystemGameClock DEFAULT = new SystemGameClock();
+    
+    private final ScheduledExecutorService scheduler;
+    
+    private SystemGameClock() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public static SystemGameClock getDefault() {
+        return DEFAULT;
+    }
+    
+    @Override
+    public Registration everySecond(Runnable task) {
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(task, 1, 1, TimeUnit.SECONDS);
+        return () -> future.cancel(false);
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * TerminalUI plays the game in a text terminal, for kiosks and SSH sessions
+ * where Swing would need a display and far more memory. It listens to the same
+ * GameEngine events as UIManager. The HUD (lives, hints, score, countdown) is
+ * pinned to the top two lines with ANSI escapes, and room text scrolls below
+ * it. With --plain, or when output is not a terminal, it prints plain lines.
+ *
+ * One thread owns the engine: it runs a queue fed by the stdin reader and by
+ * the engine's timer, so input and ticks never race.
+ * Usage: java -Xmx32m TerminalUI [name] [--plain]
+ */
+public class TerminalUI implements GameEventListener {
+    private static final String CSI = "\u001b[";
+    private static final String SAVE_CURSOR = "\u001b7";
+    private static final String RESTORE_CURSOR = "\u001b8";
+    private static final String RESET = CSI + "0m";
+    private static final String BOLD = CSI + "1m";
+    private static final String INVERSE = CSI + "7m";
+    private static final String RED = CSI + "31m";
+    private static final String GREEN = CSI + "32m";
+    private static final String YELLOW = CSI + "33m";
+    private static final String CYAN = CSI + "36m";
+    private static final String CLEAR_LINE = CSI + "K";
+    private static final int HUD_ROWS = 2;
+    private static final int BAR_WIDTH = 30;
+    private static final int MAX_NAME_LENGTH = 20;
+    
+    private enum State { NAME, PLAYING, REPLAY, DONE }
+    
+    private final GameEngine engine;
+    private final PrintStream out;
+    private final boolean ansi;
+    private final int rows;
+    private final BlockingQueue<Runnable> tasks; // work for the thread that owns the engine
+    private State state;
+    private String playerName;
+    
+    public TerminalUI(GameEngine engine, PrintStream out, boolean ansi, int rows) {
+        this.engine = engine;
+        this.out = out;
+        this.ansi = ansi;
+        this.rows = rows;
+        this.tasks = new LinkedBlockingQueue<>();
+        this.state = State.NAME;
+        engine.setTimerExecutor(tasks::add);
+        engine.addListener(this);
+    }
+    
+    public static void main(String[] args) {
+        boolean plain = false;
+        String name = null;
+        for (String arg : args) {
+            if (arg.equals("--plain")) {
+                plain = true;
+            } else if (name == null) {
+                name = arg;
+            }
+        }
+        boolean ansi = !plain && System.console() != null && !"dumb".equals(System.getenv("TERM"));
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        GameEngine engine = new GameEngine();
+        engine.setLeaderboard(new Leaderboard());
+        new TerminalUI(engine, out, ansi, ansi ? terminalRows() : 0).run(System.in, name);
+    }
+    
+    /**
+     * Plays until the player leaves or input ends, on the calling thread.
+     * Pass a name to skip asking for one.
+     */
+    public void run(InputStream in, String name) {
+        Thread reader = new Thread(() -> readLines(in), "terminal-input");
+        reader.setDaemon(true);
+        Thread restore = new Thread(this::restoreScreen, "terminal-restore");
+        if (ansi) {
+            // Put the terminal back even if the player presses Ctrl-C
+            Runtime.getRuntime().addShutdownHook(restore);
+            out.print(CSI + "2J" + CSI + (HUD_ROWS + 1) + ";" + rows + "r" + CSI + (HUD_ROWS + 1) + ";1H");
+        }
+        
+        println(BOLD + "ESCAPE ROOM" + RESET + "  -  type an answer, or /help for commands");
+        if (name != null) {
+            startGame(name);
+        } else {
+            prompt("Your name: ");
+        }
+        reader.start();
+        
+        while (state != State.DONE) {
+            try {
+                tasks.take().run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        engine.stopTimer();
+        println("Thanks for playing!");
+        if (ansi) {
+            restoreScreen();
+            Runtime.getRuntime().removeShutdownHook(restore);
+        }
+    }
+    
+    // On the reader thread: hand each line to the game thread, then null at end of input
+    private void readLines(InputStream in) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String text = line;
+                tasks.add(() -> onInput(text));
+            }
+        } catch (IOException e) {
+            // Treated as the end of input
+        }
+        tasks.add(() -> onInput(null));
+    }
+    
+    private void onInput(String line) {
+        if (line == null) {
+            engine.quitGame();
+            state = State.DONE;
+            return;
+        }
+        String text = line.trim();
+        switch (state) {
+            case NAME:
+                if (text.isEmpty() || text.length() > MAX_NAME_LENGTH) {
+                    prompt("Please enter a name of 1 to " + MAX_NAME_LENGTH + " characters: ");
+                } else {
+                    startGame(text);
+                }
+                break;
+            case REPLAY:
+                if (text.isEmpty() || text.equalsIgnoreCase("y") || text.equalsIgnoreCase("yes")) {
+                    startGame(playerName);
+                } else {
+                    state = State.DONE;
+                }
+                break;
+            case PLAYING:
+                playCommand(text);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void playCommand(String text) {
+        if (text.isEmpty()) {
+            prompt("> ");
+        } else if (text.equalsIgnoreCase("/hint")) {
+            println(YELLOW + "Hint: " + RESET + engine.useHint());
+            prompt("> ");
+        } else if (text.equalsIgnoreCase("/look")) {
+            showRoom();
+        } else if (text.equalsIgnoreCase("/scores")) {
+            showScores();
+            prompt("> ");
+        } else if (text.equalsIgnoreCase("/quit")) {
+            engine.quitGame();
+            state = State.DONE;
+        } else if (text.equalsIgnoreCase("/help")) {
+            println("Commands: /hint  /look  /scores  /quit  - anything else is an answer");
+            prompt("> ");
+        } else {
+            // Feedback and the next room come back as engine events
+            engine.submitAnswer(text);
+        }
+    }
+    
+    private void startGame(String name) {
+        playerName = name;
+        state = State.PLAYING;
+        engine.startNewGame(name);
+        showRoom();
+        engine.startTimer();
+        drawHud();
+    }
+    
+    // Engine events, all on the game thread
+    @Override
+    public void onRoomCompleted(int roomIndex, int timeRemaining) {
+        println(GREEN + "Correct!" + RESET + " Solved with " + timeRemaining + "s to spare.");
+    }
+    
+    @Override
+    public void onRoomEntered(int roomIndex) {
+        showRoom();
+        engine.startTimer();
+        drawHud();
+    }
+    
+    @Override
+    public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+        drawHud();
+        if (livesLeft > 0) {
+            println(RED + "Wrong answer!" + RESET + " You lost a life, " + livesLeft + " left.");
+            prompt("> ");
+        }
+    }
+    
+    @Override
+    public void onHintUsed(int roomIndex, int hintsLeft) {
+        drawHud();
+    }
+    
+    @Override
+    public void onTimerTick(int timeRemaining) {
+        if (ansi) {
+            drawHud();
+        } else if (timeRemaining == 30 || timeRemaining == 10 || timeRemaining == 5) {
+            println("[" + timeRemaining + "s left]");
+        }
+    }
+    
+    @Override
+    public void onTimeUp(int roomIndex, int livesLeft) {
+        drawHud();
+        if (livesLeft > 0) {
+            println(RED + "Time's up!" + RESET + " You lost a life, " + livesLeft + " left. The clock starts again.");
+            engine.startTimer();
+            prompt("> ");
+        }
+    }
+    
+    @Override
+    public void onVictory(int livesLeft) {
+        drawHud();
+        println(BOLD + GREEN + "You escaped!" + RESET + " " + scoreSummary());
+        offerReplay();
+    }
+    
+    @Override
+    public void onGameOver(int roomIndex) {
+        drawHud();
+        println(BOLD + RED + "GAME OVER" + RESET + " " + scoreSummary());
+        offerReplay();
+    }
+    
+    private void offerReplay() {
+        state = State.REPLAY;
+        prompt("Play again? [Y/n] ");
+    }
+    
+    private String scoreSummary() {
+        String summary = "Final score: " + engine.getScore();
+        Leaderboard.Entry best = engine.getLeaderboard() != null ? engine.getLeaderboard().getBest(playerName) : null;
+        return best != null ? summary + " (best " + best.getScore() + ")" : summary;
+    }
+    
+    private void showRoom() {
+        Room room = engine.getCurrentRoom();
+        if (room == null) return;
+        println("");
+        println(CYAN + "Room " + (engine.getCurrentRoomIndex() + 1) + " of " + engine.getTotalRooms() + RESET);
+        for (String line : room.getFullDescription().split("\n")) {
+            println(line.startsWith("===") ? BOLD + line + RESET : line);
+        }
+        if (!ansi) {
+            println(hudText());
+        }
+        prompt("> ");
+    }
+    
+    private void showScores() {
+        Leaderboard leaderboard = engine.getLeaderboard();
+        if (leaderboard == null || leaderboard.size() == 0) {
+            println("No finished games yet.");
+            return;
+        }
+        int rank = 1;
+        for (Leaderboard.Entry entry : leaderboard.top(5)) {
+            println(String.format("%2d. %-20s %8d", rank++, entry.getPlayerName(), entry.getScore()));
+        }
+    }
+    
+    private String hudText() {
+        Player player = engine.getPlayer();
+        if (player == null) return "";
+        return "Player: " + player.getName() + "  |  Lives: " + player.getLives() + "  |  Hints: " + player.getHints()
+            + "  |  Score: " + engine.getScore() + "  |  Room " + (engine.getCurrentRoomIndex() + 1) + "/" + engine.getTotalRooms();
+    }
+    
+    // Redraw the two HUD lines in place, leaving the cursor where the player is typing
+    private void drawHud() {
+        if (!ansi || engine.getPlayer() == null) return;
+        int remaining = Math.max(0, engine.getTimeRemaining());
+        int limit = Math.max(1, engine.getTimeLimit());
+        int filled = (int) Math.round((double) BAR_WIDTH * Math.min(remaining, limit) / limit);
+        String color = remaining <= 10 ? RED : remaining * 2 <= limit ? YELLOW : GREEN;
+        StringBuilder hud = new StringBuilder(256);
+        hud.append(SAVE_CURSOR).append(CSI).append("1;1H").append(INVERSE).append(' ').append(hudText()).append(' ')
+            .append(CLEAR_LINE).append(RESET)
+            .append(CSI).append("2;1H").append(" Time ").append(color);
+        for (int i = 0; i < BAR_WIDTH; i++) {
+            hud.append(i < filled ? '#' : '-');
+        }
+        hud.append(RESET).append(' ').append(remaining).append('s');
+        if (!engine.isCountdownActive()) {
+            hud.append(" (paused)");
+        }
+        hud.append(CLEAR_LINE).append(RESTORE_CURSOR);
+        out.print(hud);
+        out.flush();
+    }
+    
+    // Messages start on a fresh line, clear of anything half typed
+    private void println(String text) {
+        out.print("\r" + (ansi ? CLEAR_LINE : "") + (ansi ? text : stripAnsi(text)) + "\n");
+        out.flush();
+    }
+    
+    private void prompt(String text) {
+        out.print((ansi ? "\r" + CLEAR_LINE : "") + text);
+        out.flush();
+    }
+    
+    private static String stripAnsi(String text) {
+        return text.indexOf('\u001b') < 0 ? text : text.replaceAll("\u001b\\[[0-9;]*m", "");
+    }
+    
+    // Give the whole screen back to scrolling and leave the cursor at the bottom
+    private void restoreScreen() {
+        out.print(RESET + CSI + "r" + CSI + rows + ";1H\n");
+        out.flush();
+    }
+    
+    // Terminal height from stty, then $LINES, then 24
+    private static int terminalRows() {
+        try {
+            Process stty = new ProcessBuilder("stty", "size").redirectInput(new File("/dev/tty")).start();
+            String size = new String(stty.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            if (stty.waitFor() == 0 && size.matches("\\d+ \\d+")) {
+                return Math.max(HUD_ROWS + 4, Integer.parseInt(size.split(" ")[0]));
+            }
+        } catch (IOException e) {
+            // No stty or no terminal; fall through
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            String lines = System.getenv("LINES");
+            if (lines != null) return Math.max(HUD_ROWS + 4, Integer.parseInt(lines.trim()));
+        } catch (NumberFormatException e) {
+            // Fall through to the default
+        }
+        return 24;
+    }
+}
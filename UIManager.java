@@ -2,9 +2,11 @@ import javax.swing.*;
 import java.awt.*;
 
 /**
- * UIManager handles all GUI components, screens, and user interactions
+ * UIManager handles all GUI components, screens, and user interactions.
+ * It listens to engine events and replays them on the EDT, so dialogs and
+ * repaints never run inside the engine's own calls.
  */
-public class UIManager {
+public class UIManager implements GameEventListener {
     private JFrame mainFrame;
     private CardLayout cardLayout;
     private JPanel mainPanel;
@@ -23,12 +25,15 @@ public class UIManager {
     private JLabel livesLabel;
     private JLabel hintsLabel;
     private JLabel timerLabel;
+    private JLabel scoreLabel;
     private JLabel puzzleQuestionLabel;
     private JTextField answerField;
     private JButton submitButton;
     private JButton hintButton;
     private JButton quitButton;
     private JTextArea roomInfoArea;
+    private RoomCanvas roomCanvas;
+    private int shownRoomIndex = -1;
     
     // Instructions panel
     private JPanel instructionsPanel;
@@ -37,9 +42,14 @@ public class UIManager {
     // Victory/Game Over panels
     private JPanel victoryPanel;
     private JPanel gameOverPanel;
+    private JLabel victoryMessageLabel;
+    private JLabel gameOverMessageLabel;
     private JButton playAgainButton;
     private JButton backToMenuFromGameOverButton;
     
+    // Room backgrounds, decoded off the EDT
+    private final RoomImageCache roomImages = new RoomImageCache();
+    
     public UIManager() {
         initializeUI();
     }
@@ -119,7 +129,13 @@ public class UIManager {
     }
     
     private void createGameScreen() {
-        gamePanel = new JPanel(new BorderLayout());
+        gamePanel = new JPanel(new BorderLayout()) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                paintRoomBackground(g, this);
+            }
+        };
         gamePanel.setBackground(new Color(20, 20, 40));
         
         // Top HUD panel
@@ -127,7 +143,7 @@ public class UIManager {
         
         // Center game area
         JPanel centerPanel = new JPanel(new BorderLayout());
-        centerPanel.setBackground(new Color(20, 20, 40));
+        centerPanel.setOpaque(false); // Let the room background show through
         centerPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
         // Room info
@@ -142,11 +158,26 @@ public class UIManager {
         ));
         
         JScrollPane scrollPane = new JScrollPane(roomInfoArea);
-        scrollPane.setPreferredSize(new Dimension(600, 200));
+        scrollPane.setPreferredSize(new Dimension(600, 140));
+        
+        // Animated room banner above the description; F3 toggles its frame-time overlay
+        roomCanvas = new RoomCanvas(roomImages);
+        JPanel roomPanel = new JPanel(new BorderLayout(0, 10));
+        roomPanel.setOpaque(false);
+        roomPanel.add(roomCanvas, BorderLayout.NORTH);
+        roomPanel.add(scrollPane, BorderLayout.CENTER);
+        gamePanel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke("F3"), "toggleFrameStats");
+        gamePanel.getActionMap().put("toggleFrameStats", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                roomCanvas.setOverlayVisible(!roomCanvas.isOverlayVisible());
+            }
+        });
         
         // Puzzle area
         JPanel puzzlePanel = new JPanel(new BorderLayout());
-        puzzlePanel.setBackground(new Color(20, 20, 40));
+        puzzlePanel.setOpaque(false);
         puzzlePanel.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0));
         
         puzzleQuestionLabel = new JLabel();
@@ -157,7 +188,7 @@ public class UIManager {
         
         // Answer input
         JPanel inputPanel = new JPanel(new FlowLayout());
-        inputPanel.setBackground(new Color(20, 20, 40));
+        inputPanel.setOpaque(false);
         JLabel answerPromptLabel = new JLabel("Your answer:");
         answerPromptLabel.setForeground(Color.WHITE);
         answerPromptLabel.setFont(new Font("Arial", Font.PLAIN, 14));
@@ -176,12 +207,12 @@ public class UIManager {
         puzzlePanel.add(puzzleQuestionLabel, BorderLayout.NORTH);
         puzzlePanel.add(inputPanel, BorderLayout.CENTER);
         
-        centerPanel.add(scrollPane, BorderLayout.NORTH);
+        centerPanel.add(roomPanel, BorderLayout.NORTH);
         centerPanel.add(puzzlePanel, BorderLayout.CENTER);
         
         // Bottom control panel
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 10));
-        controlPanel.setBackground(new Color(20, 20, 40));
+        controlPanel.setOpaque(false);
         controlPanel.setBorder(BorderFactory.createEmptyBorder(15, 0, 15, 0));
         
         hintButton = createStyledButton("USE HINT");
@@ -207,8 +238,37 @@ public class UIManager {
         gamePanel.add(controlPanel, BorderLayout.SOUTH);
     }
     
+    /**
+     * Draws the current room's image, dimmed so text stays readable. Until the
+     * image has loaded the plain panel colour shows instead; the panel repaints
+     * itself once the image arrives.
+     */
+    private void paintRoomBackground(Graphics g, JPanel panel) {
+        if (gameEngine == null || gameEngine.getCurrentRoom() == null) return;
+        String path = gameEngine.getCurrentRoom().getBackgroundImagePath();
+        if (path == null || panel.getWidth() == 0 || panel.getHeight() == 0) return;
+        Image image = roomImages.getIfReady(path, panel.getWidth(), panel.getHeight());
+        if (image == null) {
+            roomImages.request(path, panel.getWidth(), panel.getHeight())
+                .thenRun(() -> SwingUtilities.invokeLater(panel::repaint));
+            return;
+        }
+        g.drawImage(image, 0, 0, null);
+        g.setColor(new Color(20, 20, 40, 170));
+        g.fillRect(0, 0, panel.getWidth(), panel.getHeight());
+    }
+    
+    // Start decoding the next room's background while the player works on this one
+    private void prefetchNextRoom() {
+        int next = gameEngine.getNextRoomIndex();
+        if (next >= 0 && gamePanel.getWidth() > 0) {
+            roomImages.prefetch(gameEngine.getRooms().get(next).getBackgroundImagePath(),
+                gamePanel.getWidth(), gamePanel.getHeight());
+        }
+    }
+    
     private JPanel createHUDPanel() {
-        JPanel hudPanel = new JPanel(new GridLayout(1, 4, 10, 0));
+        JPanel hudPanel = new JPanel(new GridLayout(1, 5, 10, 0));
         hudPanel.setBackground(new Color(40, 40, 70));
         hudPanel.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
         
@@ -216,17 +276,20 @@ public class UIManager {
         livesLabel = new JLabel("Lives: ", JLabel.LEFT);
         hintsLabel = new JLabel("Hints: ", JLabel.LEFT);
         timerLabel = new JLabel("Time: ", JLabel.LEFT);
+        scoreLabel = new JLabel("Score: 0", JLabel.LEFT);
         
         Font hudFont = new Font("Arial", Font.BOLD, 14);
         playerNameLabel.setFont(hudFont);
         livesLabel.setFont(hudFont);
         hintsLabel.setFont(hudFont);
         timerLabel.setFont(hudFont);
+        scoreLabel.setFont(hudFont);
         
         playerNameLabel.setForeground(Color.WHITE);
         livesLabel.setForeground(new Color(255, 100, 100)); // Light Red
         hintsLabel.setForeground(new Color(255, 215, 0)); // Gold
         timerLabel.setForeground(new Color(100, 200, 255)); // Light Blue
+        scoreLabel.setForeground(new Color(150, 255, 150)); // Light Green
         
         // Initialize timer display
         timerLabel.setText("Time: 60s");
@@ -235,6 +298,7 @@ public class UIManager {
         hudPanel.add(livesLabel);
         hudPanel.add(hintsLabel);
         hudPanel.add(timerLabel);
+        hudPanel.add(scoreLabel);
         
         return hudPanel;
     }
@@ -307,10 +371,10 @@ public class UIManager {
         victoryLabel.setForeground(Color.YELLOW);
         victoryLabel.setBorder(BorderFactory.createEmptyBorder(50, 0, 20, 0));
         
-        JLabel messageLabel = new JLabel("You have successfully escaped the room!", JLabel.CENTER);
-        messageLabel.setFont(new Font("Arial", Font.PLAIN, 18));
-        messageLabel.setForeground(Color.WHITE);
-        messageLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 30, 0));
+        victoryMessageLabel = new JLabel("You have successfully escaped the room!", JLabel.CENTER);
+        victoryMessageLabel.setFont(new Font("Arial", Font.PLAIN, 18));
+        victoryMessageLabel.setForeground(Color.WHITE);
+        victoryMessageLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 30, 0));
         
         playAgainButton = createStyledButton("PLAY AGAIN");
         playAgainButton.addActionListener(e -> showMainMenu());
@@ -320,7 +384,7 @@ public class UIManager {
         buttonPanel.add(playAgainButton);
         
         victoryPanel.add(victoryLabel, BorderLayout.NORTH);
-        victoryPanel.add(messageLabel, BorderLayout.CENTER);
+        victoryPanel.add(victoryMessageLabel, BorderLayout.CENTER);
         victoryPanel.add(buttonPanel, BorderLayout.SOUTH);
     }
     
@@ -333,10 +397,10 @@ public class UIManager {
         gameOverLabel.setForeground(Color.RED);
         gameOverLabel.setBorder(BorderFactory.createEmptyBorder(50, 0, 20, 0));
         
-        JLabel messageLabel = new JLabel("You ran out of lives! Better luck next time.", JLabel.CENTER);
-        messageLabel.setFont(new Font("Arial", Font.PLAIN, 18));
-        messageLabel.setForeground(Color.WHITE);
-        messageLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 30, 0));
+        gameOverMessageLabel = new JLabel("You ran out of lives! Better luck next time.", JLabel.CENTER);
+        gameOverMessageLabel.setFont(new Font("Arial", Font.PLAIN, 18));
+        gameOverMessageLabel.setForeground(Color.WHITE);
+        gameOverMessageLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 30, 0));
         
         backToMenuFromGameOverButton = createStyledButton("BACK TO MENU");
         backToMenuFromGameOverButton.addActionListener(e -> showMainMenu());
@@ -346,7 +410,7 @@ public class UIManager {
         buttonPanel.add(backToMenuFromGameOverButton);
         
         gameOverPanel.add(gameOverLabel, BorderLayout.NORTH);
-        gameOverPanel.add(messageLabel, BorderLayout.CENTER);
+        gameOverPanel.add(gameOverMessageLabel, BorderLayout.CENTER);
         gameOverPanel.add(buttonPanel, BorderLayout.SOUTH);
     }
     
@@ -387,13 +451,23 @@ public class UIManager {
     }
     
     public void showVictoryScreen() {
+        victoryMessageLabel.setText("You have successfully escaped the room! " + scoreSummary());
         cardLayout.show(mainPanel, "VICTORY");
     }
     
     public void showGameOverScreen() {
+        gameOverMessageLabel.setText("You ran out of lives! " + scoreSummary());
         cardLayout.show(mainPanel, "GAME_OVER");
     }
     
+    // Final score, and the player's best when the engine keeps a leaderboard
+    private String scoreSummary() {
+        String summary = "Final score: " + gameEngine.getScore();
+        Leaderboard leaderboard = gameEngine.getLeaderboard();
+        Leaderboard.Entry best = leaderboard != null ? leaderboard.getBest(gameEngine.getPlayer().getName()) : null;
+        return best != null ? summary + " (best " + best.getScore() + ")" : summary;
+    }
+    
     // Game action methods
     private void startGame() {
         String playerName = nameField.getText().trim();
@@ -427,15 +501,9 @@ public class UIManager {
                 return;
             }
             
-            boolean correct = gameEngine.submitAnswer(answer);
-            if (correct) {
-                answerField.setText("");
-                updateGameDisplay();
-            } else {
-                // Wrong answer - clear field and update HUD
-                answerField.setText("");
-                updateHUD();
-            }
+            // The HUD and next room are refreshed by the engine's events
+            gameEngine.submitAnswer(answer);
+            answerField.setText("");
         }
     }
     
@@ -445,7 +513,6 @@ public class UIManager {
             if (player.hasHints()) {
                 String hint = gameEngine.useHint();
                 JOptionPane.showMessageDialog(mainFrame, hint, "Hint", JOptionPane.INFORMATION_MESSAGE);
-                updateHUD(); // Update HUD to reflect hint usage
             } else {
                 JOptionPane.showMessageDialog(mainFrame, 
                     "No hints remaining!", 
@@ -469,6 +536,75 @@ public class UIManager {
         }
     }
     
+    // Engine events, each queued onto the EDT
+    @Override
+    public void onGameStarted(String playerName) {
+        SwingUtilities.invokeLater(() -> {
+            shownRoomIndex = -1;
+            showGameScreen();
+            updateHUD();
+        });
+    }
+    
+    @Override
+    public void onRoomEntered(int roomIndex) {
+        SwingUtilities.invokeLater(() -> {
+            updateHUD();
+            showRoomTransition();
+            updateGameDisplay();
+        });
+    }
+    
+    @Override
+    public void onWrongAnswer(int roomIndex, String answer, int livesLeft) {
+        SwingUtilities.invokeLater(() -> {
+            updateHUD();
+            showWrongAnswerMessage();
+        });
+    }
+    
+    @Override
+    public void onHintUsed(int roomIndex, int hintsLeft) {
+        SwingUtilities.invokeLater(this::updateHUD);
+    }
+    
+    @Override
+    public void onTimerTick(int timeRemaining) {
+        SwingUtilities.invokeLater(() -> updateTimer(timeRemaining));
+        roomCanvas.setCountdown(timeRemaining, gameEngine.getTimeLimit(), timeRemaining > 0);
+    }
+    
+    @Override
+    public void onTimeUp(int roomIndex, int livesLeft) {
+        roomCanvas.setCountdown(0, gameEngine.getTimeLimit(), false);
+        SwingUtilities.invokeLater(() -> {
+            updateHUD();
+            showTimeUpMessage();
+        });
+    }
+    
+    @Override
+    public void onVictory(int livesLeft) {
+        stopCountdown();
+        SwingUtilities.invokeLater(this::showVictoryScreen);
+    }
+    
+    @Override
+    public void onGameOver(int roomIndex) {
+        stopCountdown();
+        SwingUtilities.invokeLater(this::showGameOverScreen);
+    }
+    
+    @Override
+    public void onGameQuit(int roomIndex) {
+        stopCountdown();
+    }
+    
+    // Freeze the banner's countdown so the render thread can go idle
+    private void stopCountdown() {
+        roomCanvas.setCountdown(gameEngine.getTimeRemaining(), gameEngine.getTimeLimit(), false);
+    }
+    
     // Update methods
     public void updateHUD() {
         if (gameEngine != null && gameEngine.getPlayer() != null) {
@@ -476,6 +612,7 @@ public class UIManager {
             playerNameLabel.setText("Player: " + player.getName());
             livesLabel.setText("❤️ Lives: " + player.getLives());
             hintsLabel.setText("💡 Hints: " + player.getHints());
+            scoreLabel.setText("⭐ Score: " + gameEngine.getScore());
             
             // Enable/disable hint button based on available hints
             if (hintButton != null) {
@@ -498,6 +635,13 @@ public class UIManager {
             Room currentRoom = gameEngine.getCurrentRoom();
             if (currentRoom != null) {
                 roomInfoArea.setText(currentRoom.getFullDescription());
+                int roomIndex = gameEngine.getCurrentRoomIndex();
+                if (roomIndex != shownRoomIndex) {
+                    roomCanvas.showRoom(currentRoom, roomIndex, gameEngine.getTotalRooms(), shownRoomIndex >= 0);
+                    shownRoomIndex = roomIndex;
+                }
+                gamePanel.repaint();
+                prefetchNextRoom();
                 
                 if (currentRoom.getPuzzle() != null && !currentRoom.getPuzzle().isSolved()) {
                     puzzleQuestionLabel.setText(currentRoom.getPuzzle().getQuestion());
@@ -505,6 +649,7 @@ public class UIManager {
                     hintButton.setVisible(true);
                     // Start timer when puzzle is displayed
                     gameEngine.startTimer();
+                    roomCanvas.setCountdown(gameEngine.getTimeRemaining(), gameEngine.getTimeLimit(), true);
                 } else {
                     puzzleQuestionLabel.setText("Puzzle completed! Proceeding to next room...");
                     // Hide hint button when puzzle is completed
@@ -0,0 +1,303 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * WordDictionary is an anagram index over a word list.
+ * Words are stored in one shared char pool and grouped by letter signature in an
+ * open-addressing table of primitive arrays, so looking up all anagrams of a word
+ * costs one pass over its letters plus a probe.
+ */
+public class WordDictionary {
+    private static final String[] BUILT_IN_WORDS = {
+        "FREEDOM", "ESCAPE", "SUCCESS", "DOOR", "KEY", "LOCK", "CIPHER", "PUZZLE", "RIDDLE",
+        "ECHO", "CHAMBER", "VAULT", "MAZE", "SECRET", "HIDDEN", "SILENT", "LISTEN", "ENLIST",
+        "TINSEL", "INLETS", "STONE", "NOTES", "ONSET", "TONES", "STEN", "NEST", "SENT", "TENS",
+        "NIGHT", "THING", "HEART", "EARTH", "HATER", "RATES", "STARE", "TEARS", "ASTER",
+        "LEMON", "MELON", "SOLVE", "LOVES", "CLUE", "LUCE", "TRAP", "PART", "RAPT", "TARP",
+        "GATE", "TORCH", "SCROLL", "RUNES", "NURSE", "LIBERTY", "ANSWER", "TIMER", "MERIT",
+        "REMIT", "MITER", "GUARD", "SHADOW", "LADDER", "CANDLE", "LANCED", "MIRROR", "PORTAL"
+    };
+    
+    // One random 64-bit value per letter; a signature is their sum, so it ignores letter order
+    private static final long[] LETTER_WEIGHTS = new long[26];
+    
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < LETTER_WEIGHTS.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            LETTER_WEIGHTS[i] = z ^ (z >>> 31);
+        }
+    }
+    
+    private static volatile WordDictionary defaultDictionary;
+    
+    private final char[] letters;      // all words back to back, upper case
+    private final int[] wordStart;     // word i is letters[wordStart[i] .. wordStart[i + 1])
+    private final long[] slotKeys;     // signature per slot, 0 = empty
+    private final int[] slotStart;     // first entry of the slot's group in groupedWords
+    private final int[] slotCount;     // number of distinct words in the group
+    private final int[] groupedWords;  // word ids ordered by group
+    private final int mask;
+    private final int size;
+    
+    private WordDictionary(char[] letters, int[] wordStart, int wordCount) {
+        this.letters = letters;
+        this.wordStart = wordStart;
+        CharBuffer pool = CharBuffer.wrap(letters);
+        
+        int capacity = Integer.highestOneBit(Math.max(2, wordCount) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.slotKeys = new long[capacity];
+        this.slotStart = new int[capacity];
+        this.slotCount = new int[capacity];
+        this.groupedWords = new int[wordCount];
+        
+        // Pass 1: find each word's slot and size the groups
+        int[] wordSlot = new int[wordCount];
+        int[] groupSize = new int[capacity];
+        for (int w = 0; w < wordCount; w++) {
+            long key = signature(pool, wordStart[w], wordStart[w + 1]);
+            int slot = findSlot(key);
+            slotKeys[slot] = key;
+            groupSize[slot]++;
+            wordSlot[w] = slot;
+        }
+        
+        // Pass 2: lay the groups out back to back
+        int offset = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            slotStart[slot] = offset;
+            offset += groupSize[slot];
+        }
+        
+        // Pass 3: place the words, skipping duplicates from the source list
+        int distinct = 0;
+        for (int w = 0; w < wordCount; w++) {
+            int slot = wordSlot[w];
+            if (!groupContains(slot, pool, wordStart[w], wordStart[w + 1])) {
+                groupedWords[slotStart[slot] + slotCount[slot]++] = w;
+                distinct++;
+            }
+        }
+        this.size = distinct;
+    }
+    
+    /**
+     * Builds a dictionary from the given words. Words are upper-cased and
+     * anything containing characters outside A-Z is skipped.
+     */
+    public static WordDictionary of(Iterable<String> words) {
+        Builder builder = new Builder();
+        for (String word : words) {
+            builder.add(word);
+        }
+        return builder.build();
+    }
+    
+    // Load a word list with one word per line
+    public static WordDictionary load(Path path) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.add(line.trim());
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Returns the shared dictionary: the system word list when one is installed,
+     * otherwise a small built-in list of game words.
+     */
+    public static WordDictionary getDefault() {
+        WordDictionary dictionary = defaultDictionary;
+        if (dictionary == null) {
+            synchronized (WordDictionary.class) {
+                dictionary = defaultDictionary;
+                if (dictionary == null) {
+                    dictionary = loadDefault();
+                    defaultDictionary = dictionary;
+                }
+            }
+        }
+        return dictionary;
+    }
+    
+    private static WordDictionary loadDefault() {
+        Path systemWords = Paths.get("/usr/share/dict/words");
+        if (Files.isReadable(systemWords)) {
+            try {
+                Builder builder = new Builder();
+                for (String word : BUILT_IN_WORDS) {
+                    builder.add(word);
+                }
+                try (BufferedReader reader = Files.newBufferedReader(systemWords, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        builder.add(line.trim());
+                    }
+                }
+                return builder.build();
+            } catch (IOException e) {
+                System.err.println("Could not read system word list: " + e.getMessage());
+            }
+        }
+        return of(Arrays.asList(BUILT_IN_WORDS));
+    }
+    
+    // Check if the text is a dictionary word
+    public boolean contains(String text) {
+        if (text == null) return false;
+        int start = firstNonSpace(text);
+        int end = lastNonSpace(text);
+        long key = signature(text, start, end);
+        if (key == 0) return false;
+        int slot = findSlot(key);
+        return slotKeys[slot] != 0 && groupContains(slot, text, start, end);
+    }
+    
+    /**
+     * Checks if the guess is a dictionary word made of exactly the same letters
+     * as the answer. Runs in time linear in the word length.
+     */
+    public boolean isAnagram(String answer, String guess) {
+        if (answer == null || guess == null) return false;
+        int start = firstNonSpace(guess);
+        int end = lastNonSpace(guess);
+        if (end - start != answer.length()) return false;
+        long key = signature(guess, start, end);
+        if (key == 0 || key != signature(answer, 0, answer.length())) return false;
+        int slot = findSlot(key);
+        return slotKeys[slot] != 0 && sameLetters(answer, guess, start) && groupContains(slot, guess, start, end);
+    }
+    
+    // All dictionary words spelled with the same letters as the given word
+    public String[] anagramsOf(String word) {
+        long key = signature(word, 0, word.length());
+        if (key == 0) return new String[0];
+        int slot = findSlot(key);
+        if (slotKeys[slot] == 0) return new String[0];
+        String[] result = new String[slotCount[slot]];
+        int size = 0;
+        for (int i = 0; i < slotCount[slot]; i++) {
+            int w = groupedWords[slotStart[slot] + i];
+            if (wordStart[w + 1] - wordStart[w] == word.length()) {
+                result[size++] = new String(letters, wordStart[w], wordStart[w + 1] - wordStart[w]);
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+    
+    // Number of distinct words
+    public int size() { return size; }
+    
+    private int findSlot(long key) {
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (slotKeys[slot] != 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private boolean groupContains(int slot, CharSequence text, int start, int end) {
+        for (int i = 0; i < slotCount[slot]; i++) {
+            if (wordEquals(groupedWords[slotStart[slot] + i], text, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean wordEquals(int w, CharSequence text, int start, int end) {
+        int from = wordStart[w];
+        if (wordStart[w + 1] - from != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (letters[from++] != Character.toUpperCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean sameLetters(String answer, String guess, int guessStart) {
+        int[] counts = new int[26];
+        for (int i = 0; i < answer.length(); i++) {
+            counts[Character.toUpperCase(answer.charAt(i)) - 'A']++;
+        }
+        for (int i = 0; i < answer.length(); i++) {
+            if (--counts[Character.toUpperCase(guess.charAt(guessStart + i)) - 'A'] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Order-independent letter signature, or 0 if the text has anything but letters A-Z
+    private static long signature(CharSequence text, int start, int end) {
+        if (end <= start) return 0;
+        long sum = end - start;
+        for (int i = start; i < end; i++) {
+            int letter = Character.toUpperCase(text.charAt(i)) - 'A';
+            if (letter < 0 || letter >= 26) return 0;
+            sum += LETTER_WEIGHTS[letter];
+        }
+        return sum == 0 ? 1 : sum;
+    }
+    
+    private static int firstNonSpace(String text) {
+        int i = 0;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+    
+    private static int lastNonSpace(String text) {
+        int i = text.length();
+        while (i > 0 && Character.isWhitespace(text.charAt(i - 1))) i--;
+        return i;
+    }
+    
+    /**
+     * Accumulates words into the shared char pool before the index is built
+     */
+    public static class Builder {
+        private char[] letters = new char[1024];
+        private int[] wordStart = new int[129];
+        private int length;
+        private int count;
+        
+        public Builder add(String word) {
+            if (word == null || word.isEmpty()) return this;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) {
+                    return this;
+                }
+            }
+            if (length + word.length() > letters.length) {
+                letters = Arrays.copyOf(letters, Math.max(letters.length * 2, length + word.length()));
+            }
+            if (count + 2 > wordStart.length) {
+                wordStart = Arrays.copyOf(wordStart, wordStart.length * 2);
+            }
+            for (int i = 0; i < word.length(); i++) {
+                letters[length++] = Character.toUpperCase(word.charAt(i));
+            }
+            wordStart[++count] = length;
+            return this;
+        }
+        
+        public WordDictionary build() {
+            return new WordDictionary(Arrays.copyOf(letters, length), Arrays.copyOf(wordStart, count + 1), count);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Word scramble puzzle implementation
+ */
+class WordScramblePuzzle extends Puzzle {
+    private WordDictionary dictionary;
+    
+    public WordScramblePuzzle(String scrambledWord, String answer, String hint) {
+        this(scrambledWord, answer, hint, null);
+    }
+    
+    // Any dictionary word using exactly the scrambled letters is also accepted
+    public WordScramblePuzzle(String scrambledWord, String answer, String hint, WordDictionary dictionary) {
+        super(scrambledWord, answer, hint, PuzzleType.WORD_SCRAMBLE);
+        this.dictionary = dictionary;
+    }
+    
+    @Override
+    public boolean validateAnswer(String userAnswer) {
+        return checkAnswer(userAnswer) || (dictionary != null && dictionary.isAnagram(answer, userAnswer));
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Unscramble this word:";
+    }
+    
+    public WordDictionary getDictionary() { return dictionary; }
+}